@@ -0,0 +1,86 @@
+package com.cuackstore.commons.money;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Totales de un pedido de itemCount productos: importes por item (bruto, descuento, subtotal)
+ * y sus sumas, con las fórmulas BigDecimal anteriores y con Money.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MoneyBenchmark {
+
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+    @Param({"1", "10", "100"})
+    public int itemCount;
+
+    private BigDecimal[] prices;
+    private Money[] moneyPrices;
+    private BigDecimal[] discounts;
+    private int[] quantities;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        prices = new BigDecimal[itemCount];
+        moneyPrices = new Money[itemCount];
+        discounts = new BigDecimal[itemCount];
+        quantities = new int[itemCount];
+        for (int i = 0; i < itemCount; i++) {
+            prices[i] = BigDecimal.valueOf(100 + random.nextInt(99_900), 2);
+            moneyPrices[i] = Money.of(prices[i]);
+            // La mitad de los items sin descuento, como en un pedido típico
+            discounts[i] = i % 2 == 0 ? BigDecimal.ZERO : BigDecimal.valueOf(random.nextInt(5_000), 2);
+            quantities[i] = 1 + random.nextInt(10);
+        }
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimal() {
+        BigDecimal subtotal = BigDecimal.ZERO;
+        BigDecimal totalDiscount = BigDecimal.ZERO;
+        for (int i = 0; i < itemCount; i++) {
+            BigDecimal gross = prices[i].multiply(BigDecimal.valueOf(quantities[i]));
+            BigDecimal discount = discounts[i].signum() == 0
+                    ? BigDecimal.ZERO
+                    : prices[i].multiply(discounts[i]).divide(HUNDRED).multiply(BigDecimal.valueOf(quantities[i]))
+                            .setScale(2, RoundingMode.HALF_UP);
+            subtotal = subtotal.add(gross);
+            totalDiscount = totalDiscount.add(discount);
+        }
+        return subtotal.subtract(totalDiscount);
+    }
+
+    @Benchmark
+    public Money money() {
+        Money subtotal = Money.ZERO;
+        Money totalDiscount = Money.ZERO;
+        for (int i = 0; i < itemCount; i++) {
+            Money gross = moneyPrices[i].times(quantities[i]);
+            Money discount = gross.percentage(discounts[i]);
+            subtotal = subtotal.plus(gross);
+            totalDiscount = totalDiscount.plus(discount);
+        }
+        return subtotal.minus(totalDiscount);
+    }
+}
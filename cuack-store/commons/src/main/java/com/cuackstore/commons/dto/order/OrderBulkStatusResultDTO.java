@@ -0,0 +1,19 @@
+package com.cuackstore.commons.dto.order;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderBulkStatusResultDTO {
+
+    private Integer updatedCount;
+    private Integer failedCount;
+    private List<OrderStatusResultDTO> results;
+}
@@ -0,0 +1,31 @@
+package com.cuackstore.commons.dto.order;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
+import javax.validation.constraints.Positive;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderBulkStatusUpdateDTO {
+
+    @NotEmpty(message = "Debe indicar al menos un pedido")
+    @Size(max = 500, message = "No se pueden actualizar más de 500 pedidos a la vez")
+    private List<@NotNull @Positive Long> orderIds;
+
+    @NotNull(message = "El nuevo estatus es requerido")
+    @Pattern(regexp = "PENDIENTE|ENTREGADO|CANCELADO",
+            message = "El estatus debe ser: PENDIENTE, ENTREGADO o CANCELADO")
+    private String status;
+
+    private String reason; // Razón del cambio de estatus
+}
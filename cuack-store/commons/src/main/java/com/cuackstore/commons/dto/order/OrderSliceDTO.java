@@ -0,0 +1,22 @@
+package com.cuackstore.commons.dto.order;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderSliceDTO {
+
+    private List<OrderSummaryDTO> content;
+    private Integer size;
+    private boolean hasNext;
+
+    // Cursor opaco para pedir la siguiente página; null cuando no hay más
+    private String nextCursor;
+}
@@ -13,6 +13,7 @@ import java.math.BigDecimal;
 @AllArgsConstructor
 public class OrderStatsDTO {
 
+    private String storeId;
     private long totalOrders;
     private long pendingOrders;
     private long deliveredOrders;
@@ -0,0 +1,19 @@
+package com.cuackstore.commons.dto.order;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStatusResultDTO {
+
+    private Long orderId;
+    private boolean updated;
+    private String previousStatus;
+    private String status;
+    private String message;
+}
@@ -0,0 +1,20 @@
+package com.cuackstore.commons.dto.order;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservationDTO {
+    @NotEmpty(message = "La reservación debe tener al menos un item")
+    @Valid
+    private List<StockReservationItemDTO> items;
+}
@@ -0,0 +1,25 @@
+package com.cuackstore.commons.dto.products;
+
+import com.cuackstore.commons.enums.ProductChangeType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductChangeDTO {
+    private long sequence;
+    private String hawa;
+    private ProductChangeType type;
+    // Solo viajan los campos que cambiaron: stock en STOCK, available en AVAILABILITY, los tres en CREATED y UPDATED
+    private Integer stock;
+    private Boolean available;
+    private BigDecimal finalPrice;
+    private LocalDateTime timestamp;
+}
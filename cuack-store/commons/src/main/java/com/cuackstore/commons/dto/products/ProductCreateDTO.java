@@ -8,6 +8,7 @@ import lombok.NoArgsConstructor;
 import javax.validation.constraints.DecimalMin;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.PositiveOrZero;
 import java.math.BigDecimal;
 
 @Data
@@ -34,4 +35,7 @@ public class ProductCreateDTO {
     private Integer stock;
 
     private Boolean available;
+
+    @PositiveOrZero(message = "El punto de reorden no puede ser negativo")
+    private Integer reorderThreshold;
 }
@@ -0,0 +1,22 @@
+package com.cuackstore.commons.dto.products;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportBatchDTO {
+    private int batch;
+    private long firstLine;
+    private long lastLine;
+    private int created;
+    private int updated;
+    private int failed;
+    private List<ProductImportErrorDTO> errors;
+}
@@ -0,0 +1,17 @@
+package com.cuackstore.commons.dto.products;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportErrorDTO {
+    // Línea del archivo, contando encabezado y líneas vacías
+    private long line;
+    private String hawa;
+    private String message;
+}
@@ -0,0 +1,22 @@
+package com.cuackstore.commons.dto.products;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductPageDTO {
+
+    private List<ProductResponseDTO> content;
+    private Integer size;
+    private boolean hasNext;
+
+    // Último id de la página; se envía como after para pedir la siguiente. null cuando no hay más
+    private Long nextCursor;
+}
@@ -21,6 +21,8 @@ public class ProductResponseDTO {
     private BigDecimal discount;
     private BigDecimal finalPrice;
     private Integer stock;
+    private Integer stockBuckets;
+    private Integer reorderThreshold;
     private Boolean available;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
@@ -0,0 +1,21 @@
+package com.cuackstore.commons.dto.stock;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LowStockAlertDTO {
+    private String hawa;
+    private Integer stock;
+    private Integer reorderThreshold;
+    // true: el producto bajó a su punto de reorden; false: se repuso o se deshabilitó
+    private Boolean lowStock;
+    private LocalDateTime timestamp;
+}
@@ -0,0 +1,28 @@
+package com.cuackstore.commons.dto.stock;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservationItemDTO {
+    @NotBlank(message = "HAWA es requerido")
+    private String hawa;
+
+    @NotNull(message = "Cantidad es requerida")
+    @Min(value = 1, message = "La cantidad debe ser mayor a 0")
+    private Integer quantity;
+
+    // Solo en liberaciones: los items con un releaseId ya aplicado se ignoran (reintentos idempotentes)
+    @Size(max = 100, message = "El releaseId no puede exceder 100 caracteres")
+    private String releaseId;
+}
@@ -0,0 +1,6 @@
+package com.cuackstore.commons.enums;
+
+public enum OrderExportFormat {
+    NDJSON,
+    CSV
+}
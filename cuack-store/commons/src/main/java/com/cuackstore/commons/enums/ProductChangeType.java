@@ -0,0 +1,9 @@
+package com.cuackstore.commons.enums;
+
+public enum ProductChangeType {
+    CREATED,
+    UPDATED,
+    AVAILABILITY,
+    STOCK,
+    RESET
+}
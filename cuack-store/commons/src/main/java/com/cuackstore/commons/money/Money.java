@@ -0,0 +1,111 @@
+package com.cuackstore.commons.money;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Importe en centavos (dos decimales) sobre un long. Suma, resta y multiplicación por cantidad son
+ * exactas; el único punto con redondeo es la aplicación de porcentajes, siempre HALF_UP como lo
+ * hace SQL Server al guardar DECIMAL(x,2). Las operaciones desbordadas lanzan ArithmeticException.
+ */
+public final class Money implements Comparable<Money> {
+
+    public static final int SCALE = 2;
+    public static final Money ZERO = new Money(0);
+
+    private static final long PERCENT_BASIS = 10_000L;
+
+    private final long minorUnits;
+
+    private Money(long minorUnits) {
+        this.minorUnits = minorUnits;
+    }
+
+    public static Money ofMinor(long minorUnits) {
+        return minorUnits == 0 ? ZERO : new Money(minorUnits);
+    }
+
+    /**
+     * Convierte un importe con más de dos decimales redondeando HALF_UP; null se toma como cero.
+     */
+    public static Money of(BigDecimal amount) {
+        return of(amount, RoundingMode.HALF_UP);
+    }
+
+    public static Money of(BigDecimal amount, RoundingMode roundingMode) {
+        if (amount == null) {
+            return ZERO;
+        }
+        return ofMinor(amount.setScale(SCALE, roundingMode).unscaledValue().longValueExact());
+    }
+
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    public Money plus(Money other) {
+        return other.minorUnits == 0 ? this : ofMinor(Math.addExact(minorUnits, other.minorUnits));
+    }
+
+    public Money minus(Money other) {
+        return other.minorUnits == 0 ? this : ofMinor(Math.subtractExact(minorUnits, other.minorUnits));
+    }
+
+    public Money times(long quantity) {
+        return quantity == 1 ? this : ofMinor(Math.multiplyExact(minorUnits, quantity));
+    }
+
+    /**
+     * Porcentaje del importe (percent = 5.00 es el 5%), redondeado a centavos con HALF_UP.
+     * El porcentaje se toma con dos decimales, como las columnas de descuento.
+     */
+    public Money percentage(BigDecimal percent) {
+        if (percent == null || percent.signum() == 0 || minorUnits == 0) {
+            return ZERO;
+        }
+        long basisPoints = percent.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+        long scaled = Math.multiplyExact(minorUnits, basisPoints);
+        return ofMinor(divideHalfUp(scaled, PERCENT_BASIS));
+    }
+
+    public boolean isZero() {
+        return minorUnits == 0;
+    }
+
+    public boolean isNegative() {
+        return minorUnits < 0;
+    }
+
+    private static long divideHalfUp(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (Math.abs(remainder) * 2 >= divisor) {
+            quotient += Long.signum(dividend);
+        }
+        return quotient;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Money && ((Money) o).minorUnits == minorUnits;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(minorUnits);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
@@ -0,0 +1,161 @@
+package com.cuackstore.commons.money;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Money contra las fórmulas con BigDecimal que reemplazó (OrderItem y Product antes de Money).
+ * Los importes anteriores se comparan como quedaban guardados: DECIMAL(x,2) redondea HALF_UP.
+ */
+class MoneyTest {
+
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+    private static final int[] QUANTITIES = {1, 2, 3, 7, 10, 99};
+
+    @Test
+    void itemDiscountMatchesStoredLegacyValue() {
+        forEachPriceAndPercentage((price, percent) -> {
+            for (int quantity : QUANTITIES) {
+                Money expected = Money.ofMinor(stored(legacyDiscount(price, percent, quantity)).unscaledValue().longValueExact());
+
+                assertThat(Money.of(price).times(quantity).percentage(percent))
+                        .as("descuento de %s x %d al %s%%", price, quantity, percent)
+                        .isEqualTo(expected);
+            }
+        });
+    }
+
+    /**
+     * El subtotal anterior redondeaba (bruto - descuento exacto); el nuevo resta el descuento ya
+     * redondeado. Solo difieren cuando el descuento exacto termina justo en medio centavo: ahí el
+     * anterior redondeaba ambos hacia arriba y subtotal + descuento no daba el bruto.
+     */
+    @Test
+    void itemSubtotalMatchesStoredLegacyValueExceptOnHalfCentDiscounts() {
+        forEachPriceAndPercentage((price, percent) -> {
+            for (int quantity : QUANTITIES) {
+                BigDecimal gross = price.multiply(BigDecimal.valueOf(quantity));
+                BigDecimal discount = legacyDiscount(price, percent, quantity);
+                Money subtotal = Money.of(gross).minus(Money.of(gross).percentage(percent));
+
+                if (isHalfCent(discount)) {
+                    assertThat(subtotal.toBigDecimal()).isEqualTo(stored(gross.subtract(discount)).subtract(new BigDecimal("0.01")));
+                } else {
+                    assertThat(subtotal.toBigDecimal())
+                            .as("subtotal de %s x %d al %s%%", price, quantity, percent)
+                            .isEqualTo(stored(gross.subtract(discount)));
+                }
+                assertThat(subtotal.plus(Money.of(gross).percentage(percent))).isEqualTo(Money.of(gross));
+            }
+        });
+    }
+
+    @Test
+    void halfCentDiscountSubtotalIsPinned() {
+        BigDecimal price = new BigDecimal("10.00");
+        BigDecimal percent = new BigDecimal("1.25");
+
+        // Antes: descuento 0.125 -> 0.13 y subtotal 9.875 -> 9.88 (suman 10.01)
+        assertThat(stored(legacyDiscount(price, percent, 1))).isEqualByComparingTo("0.13");
+        assertThat(stored(price.subtract(legacyDiscount(price, percent, 1)))).isEqualByComparingTo("9.88");
+        // Ahora: descuento 0.13 y subtotal 9.87
+        Money discount = Money.of(price).percentage(percent);
+        assertThat(discount.toBigDecimal()).isEqualByComparingTo("0.13");
+        assertThat(Money.of(price).minus(discount).toBigDecimal()).isEqualByComparingTo("9.87");
+    }
+
+    /**
+     * Precio final unitario (OrderItem.getFinalUnitPrice, Product.getFinalPrice): antes llevaba
+     * todos los decimales del porcentaje, ahora se redondea a centavos.
+     */
+    @Test
+    void finalPriceIsRoundedToCents() {
+        BigDecimal price = new BigDecimal("19.99");
+        BigDecimal percent = new BigDecimal("12.50");
+
+        assertThat(legacyFinalPrice(price, percent)).isEqualByComparingTo("17.49125");
+        Money finalPrice = Money.of(price).minus(Money.of(price).percentage(percent));
+        assertThat(finalPrice.toBigDecimal()).isEqualTo(new BigDecimal("17.49"));
+
+        forEachPriceAndPercentage((listPrice, discount) ->
+                assertThat(Money.of(listPrice).minus(Money.of(listPrice).percentage(discount)).toBigDecimal())
+                        .as("precio final de %s al %s%%", listPrice, discount)
+                        .isEqualTo(stored(listPrice).subtract(stored(listPrice.multiply(discount).divide(HUNDRED)))));
+    }
+
+    @Test
+    void sumsAndProductsAreExact() {
+        Money a = Money.of(new BigDecimal("1234.56"));
+        Money b = Money.of(new BigDecimal("0.07"));
+
+        assertThat(a.plus(b).toBigDecimal()).isEqualTo(new BigDecimal("1234.63"));
+        assertThat(a.minus(b).toBigDecimal()).isEqualTo(new BigDecimal("1234.49"));
+        assertThat(b.minus(a).toBigDecimal()).isEqualTo(new BigDecimal("-1234.49"));
+        assertThat(a.times(3).toBigDecimal()).isEqualTo(new BigDecimal("3703.68"));
+        assertThat(b.times(0)).isSameAs(Money.ZERO);
+    }
+
+    @Test
+    void conversionRoundsHalfUpToCents() {
+        assertThat(Money.of(new BigDecimal("2.345")).toBigDecimal()).isEqualTo(new BigDecimal("2.35"));
+        assertThat(Money.of(new BigDecimal("2.344")).toBigDecimal()).isEqualTo(new BigDecimal("2.34"));
+        assertThat(Money.of(new BigDecimal("-2.345")).toBigDecimal()).isEqualTo(new BigDecimal("-2.35"));
+        assertThat(Money.of(null)).isSameAs(Money.ZERO);
+        assertThat(Money.of(new BigDecimal("5")).toBigDecimal().scale()).isEqualTo(Money.SCALE);
+    }
+
+    @Test
+    void overflowIsRejected() {
+        Money max = Money.ofMinor(Long.MAX_VALUE);
+
+        assertThatThrownBy(() -> max.plus(Money.ofMinor(1))).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> max.times(2)).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> Money.ofMinor(Long.MIN_VALUE).minus(Money.ofMinor(1))).isInstanceOf(ArithmeticException.class);
+    }
+
+    // Precios de 0.01 a 99.97 de 13 en 13 centavos por porcentajes de 0% a 100% de 0.25 en 0.25
+    private static void forEachPriceAndPercentage(PriceAndPercentage check) {
+        for (long cents = 1; cents < 10_000; cents += 13) {
+            BigDecimal price = BigDecimal.valueOf(cents, 2);
+            for (long basisPoints = 0; basisPoints <= 10_000; basisPoints += 25) {
+                check.accept(price, BigDecimal.valueOf(basisPoints, 2));
+            }
+        }
+    }
+
+    // OrderItem.calculateDiscountAmount antes de Money
+    private static BigDecimal legacyDiscount(BigDecimal unitPrice, BigDecimal percent, int quantity) {
+        if (percent.compareTo(BigDecimal.ZERO) == 0) {
+            return BigDecimal.ZERO;
+        }
+        return unitPrice.multiply(percent)
+                .divide(HUNDRED)
+                .multiply(BigDecimal.valueOf(quantity));
+    }
+
+    // OrderItem.getFinalUnitPrice y Product.getFinalPrice antes de Money
+    private static BigDecimal legacyFinalPrice(BigDecimal price, BigDecimal percent) {
+        if (percent.compareTo(BigDecimal.ZERO) == 0) {
+            return price;
+        }
+        return price.subtract(price.multiply(percent).divide(HUNDRED));
+    }
+
+    private static BigDecimal stored(BigDecimal amount) {
+        return amount.setScale(Money.SCALE, RoundingMode.HALF_UP);
+    }
+
+    private static boolean isHalfCent(BigDecimal amount) {
+        return amount.movePointRight(Money.SCALE).remainder(BigDecimal.ONE).abs().compareTo(new BigDecimal("0.5")) == 0;
+    }
+
+    @FunctionalInterface
+    private interface PriceAndPercentage {
+        void accept(BigDecimal price, BigDecimal percent);
+    }
+}
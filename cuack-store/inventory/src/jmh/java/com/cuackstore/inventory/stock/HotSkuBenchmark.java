@@ -0,0 +1,110 @@
+package com.cuackstore.inventory.stock;
+
+import com.cuackstore.inventory.entity.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Reservaciones por segundo sobre un solo HAWA con 16 hilos compitiendo por él.
+ *
+ * - cellReserve: compareAndSet de {@link StockCell}, sin journal (techo del modo memoria).
+ * - lockedReserve: el mismo contador detrás de un candado, como referencia de exclusión mutua.
+ * - journaledReserve: compareAndSet más el anexado al {@link StockJournal}, que es lo que espera
+ *   cada respuesta en modo memoria; con sync=true incluye el fsync de cada grupo.
+ *
+ * El modo database no se mide aquí: su costo es el UPDATE con bloqueo de fila en SQL Server.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class HotSkuBenchmark {
+
+    private static final String HAWA = "HOT-SKU";
+    // Alcanza para cualquier iteración sin que la celda se quede sin stock
+    private static final int INITIAL_STOCK = Integer.MAX_VALUE;
+
+    private StockCell cell;
+    private final ReentrantLock lock = new ReentrantLock();
+    private int lockedStock;
+
+    @Setup(Level.Iteration)
+    public void resetStock() {
+        cell = new StockCell(Product.builder()
+                .hawa(HAWA)
+                .stock(INITIAL_STOCK)
+                .available(true)
+                .build());
+        lockedStock = INITIAL_STOCK;
+    }
+
+    @Benchmark
+    public long cellReserve() {
+        return cell.tryTake(1);
+    }
+
+    @Benchmark
+    public int lockedReserve() {
+        lock.lock();
+        try {
+            return lockedStock >= 1 ? --lockedStock : -1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Benchmark
+    public void journaledReserve(Journal journal) {
+        long state = cell.tryTake(1);
+        journal.journal.append(List.of(new StockJournal.Entry(HAWA, state))).join();
+    }
+
+    @State(Scope.Benchmark)
+    public static class Journal {
+
+        @Param({"true", "false"})
+        public boolean sync;
+
+        private Path directory;
+        private StockJournal journal;
+
+        @Setup(Level.Trial)
+        public void open() throws IOException {
+            directory = Files.createTempDirectory("stock-journal-bench");
+            journal = new StockJournal(directory, sync);
+            journal.open();
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws IOException {
+            journal.close();
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.cuackstore.inventory.cache;
+
+import com.cuackstore.inventory.entity.Product;
+import com.cuackstore.inventory.repository.ProductRepository;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.reactive.TransactionSynchronization;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Filas de products por HAWA. Los fallos concurrentes de una misma llave comparten la misma
+ * consulta, y las entradas leídas después de refresh-after se recargan en segundo plano
+ * mientras se sigue sirviendo el valor anterior. Un HAWA inexistente no se guarda.
+ *
+ * Toda mutación de ProductServiceImpl invalida sus HAWA con {@link #evict(Collection)}.
+ * Métricas en cache.gets / cache.evictions con cache=inventory.catalog.
+ */
+@Component
+public class ProductCatalogCache {
+
+    private final AsyncLoadingCache<String, Product> cache;
+
+    public ProductCatalogCache(ProductRepository productRepository,
+                               MeterRegistry meterRegistry,
+                               @Value("${inventory.catalog-cache.max-size:10000}") long maxSize,
+                               @Value("${inventory.catalog-cache.ttl:10m}") Duration ttl,
+                               @Value("${inventory.catalog-cache.refresh-after:1m}") Duration refreshAfter) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .refreshAfterWrite(refreshAfter)
+                .recordStats()
+                .buildAsync((hawa, executor) -> productRepository.findByHawa(hawa).toFuture());
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), "inventory.catalog");
+    }
+
+    public Mono<Product> get(String hawa) {
+        // copy(): si el suscriptor cancela, se cancela la copia y no la carga que comparten los demás
+        return Mono.fromFuture(cache.get(hawa).copy());
+    }
+
+    /**
+     * Invalida ahora y otra vez al terminar la transacción en curso: una lectura concurrente
+     * entre ambos momentos pudo volver a cargar la fila anterior al commit.
+     */
+    public Mono<Void> evict(Collection<String> hawas) {
+        return Mono.fromRunnable(() -> cache.synchronous().invalidateAll(hawas))
+                .then(TransactionSynchronizationManager.forCurrentTransaction())
+                .filter(TransactionSynchronizationManager::isSynchronizationActive)
+                .doOnNext(synchronizationManager -> synchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public Mono<Void> afterCompletion(int status) {
+                        return Mono.fromRunnable(() -> cache.synchronous().invalidateAll(hawas));
+                    }
+                }))
+                .onErrorResume(NoTransactionException.class, e -> Mono.empty())
+                .then();
+    }
+
+    public Mono<Void> evict(String hawa) {
+        return evict(List.of(hawa));
+    }
+}
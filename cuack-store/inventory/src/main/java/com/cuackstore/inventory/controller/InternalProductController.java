@@ -1,20 +1,27 @@
 package com.cuackstore.inventory.controller;
 
 import com.cuackstore.commons.dto.ApiResponseDTO;
+import com.cuackstore.commons.dto.products.ProductChangeDTO;
 import com.cuackstore.commons.dto.products.ProductResponseDTO;
 import com.cuackstore.commons.dto.stock.AvailabilityResponseDTO;
 import com.cuackstore.commons.dto.stock.StockOperationDTO;
+import com.cuackstore.commons.dto.stock.StockReservationDTO;
+import com.cuackstore.inventory.service.ProductChangeService;
 import com.cuackstore.inventory.service.ProductService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import javax.validation.Valid;
 import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.PositiveOrZero;
+import java.util.List;
 
 @RestController
 @RequestMapping("/v1/inventory")
@@ -24,6 +31,7 @@ import javax.validation.constraints.NotBlank;
 public class InternalProductController {
 
     private final ProductService productService;
+    private final ProductChangeService productChangeService;
 
     @GetMapping("/product/{hawa}")
     @Operation(
@@ -68,4 +76,54 @@ public class InternalProductController {
                 .map(product -> ApiResponseDTO.handleBuild(product, "Stock decrementado exitosamente"));
     }
 
+    @PostMapping("/products/stock/reserve")
+    @Operation(
+            security = @SecurityRequirement(name = "bearer-jwt")
+    )
+    public Mono<ApiResponseDTO<List<ProductResponseDTO>>> reserveStock(
+            @Valid @RequestBody StockReservationDTO reservationDTO) {
+        log.info("POST /api/inventory/products/stock/reserve - Reservando {} items",
+                reservationDTO.getItems().size());
+
+        return productService.reserveStock(reservationDTO)
+                .map(products -> ApiResponseDTO.handleBuild(products, "Stock reservado exitosamente"));
+    }
+
+    @PostMapping("/products/stock/release")
+    @Operation(
+            security = @SecurityRequirement(name = "bearer-jwt")
+    )
+    public Mono<ApiResponseDTO<List<ProductResponseDTO>>> releaseStock(
+            @Valid @RequestBody StockReservationDTO reservationDTO) {
+        log.info("POST /api/inventory/products/stock/release - Liberando {} items",
+                reservationDTO.getItems().size());
+
+        return productService.releaseStock(reservationDTO)
+                .map(products -> ApiResponseDTO.handleBuild(products, "Stock liberado exitosamente"));
+    }
+
+    @GetMapping("/products/changes")
+    @Operation(
+            security = @SecurityRequirement(name = "bearer-jwt")
+    )
+    public Mono<ApiResponseDTO<List<ProductChangeDTO>>> getProductChanges(
+            @RequestParam(defaultValue = "0") @PositiveOrZero Long after) {
+        log.debug("GET /api/inventory/products/changes - Cambios después de #{}", after);
+
+        return Mono.fromSupplier(() -> productChangeService.getChangesAfter(after))
+                .map(changes -> ApiResponseDTO.handleBuild(changes, "Cambios obtenidos exitosamente"));
+    }
+
+    // after: última secuencia recibida; al reconectar se reenvía lo que quede en el historial
+    @GetMapping(value = "/products/changes/stream", produces = {MediaType.TEXT_EVENT_STREAM_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @Operation(
+            security = @SecurityRequirement(name = "bearer-jwt")
+    )
+    public Flux<ProductChangeDTO> streamProductChanges(
+            @RequestParam(required = false) @PositiveOrZero Long after) {
+        log.info("GET /api/inventory/products/changes/stream - Nuevo suscriptor (después de #{})", after);
+
+        return productChangeService.streamChanges(after);
+    }
+
 }
@@ -1,17 +1,27 @@
 package com.cuackstore.inventory.controller;
 
 import com.cuackstore.commons.dto.ApiResponseDTO;
+import com.cuackstore.commons.dto.products.ProductChangeDTO;
 import com.cuackstore.commons.dto.products.ProductCreateDTO;
+import com.cuackstore.commons.dto.products.ProductImportBatchDTO;
+import com.cuackstore.commons.dto.products.ProductPageDTO;
 import com.cuackstore.commons.dto.products.ProductResponseDTO;
 import com.cuackstore.commons.dto.stock.AvailabilityResponseDTO;
+import com.cuackstore.commons.dto.stock.LowStockAlertDTO;
 import com.cuackstore.commons.dto.stock.StockOperationDTO;
 import com.cuackstore.commons.dto.stock.StockUpdateDTO;
+import com.cuackstore.inventory.importer.ProductImportReader;
+import com.cuackstore.inventory.service.LowStockService;
+import com.cuackstore.inventory.service.ProductChangeService;
 import com.cuackstore.inventory.service.ProductService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
@@ -19,8 +29,10 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.Positive;
+import javax.validation.constraints.PositiveOrZero;
 
 @RestController
 @RequestMapping("/api/v1/inventory")
@@ -30,6 +42,9 @@ import javax.validation.constraints.Positive;
 public class ProductController {
 
     private final ProductService productService;
+    private final ProductChangeService productChangeService;
+    private final LowStockService lowStockService;
+    private final ProductImportReader productImportReader;
 
     @GetMapping("/product/{hawa}/availability")
     @Operation(
@@ -53,21 +68,84 @@ public class ProductController {
     @Operation(
             security = @SecurityRequirement(name = "bearer-jwt")
     )
-    public Flux<ProductResponseDTO> getAllProducts() {
+    public Mono<ResponseEntity<Flux<ProductResponseDTO>>> getAllProducts() {
         log.info("GET /api/inventory/products - Obteniendo todos los productos");
 
-        return productService.getAllProducts();
+        return catalogResponse("products", productService.getAllProducts());
     }
 
     @GetMapping("/products/available")
     @Operation(
             security = @SecurityRequirement(name = "bearer-jwt")
     )
-    public Flux<ProductResponseDTO> getAvailableProducts() {
+    public Mono<ResponseEntity<Flux<ProductResponseDTO>>> getAvailableProducts() {
         log.info("GET /api/inventory/products/available - Obteniendo productos disponibles");
 
-        return productService.getAvailableProducts();
+        return catalogResponse("products-available", productService.getAvailableProducts());
+    }
+
+    @GetMapping("/products/page")
+    @Operation(
+            security = @SecurityRequirement(name = "bearer-jwt")
+    )
+    public Mono<ApiResponseDTO<ProductPageDTO>> getProductsPage(
+            @RequestParam(defaultValue = "0") @PositiveOrZero Long after,
+            @RequestParam(defaultValue = "100") @Positive @Max(500) Integer size) {
+        log.info("GET /api/inventory/products/page - Después de: {}, Tamaño: {}", after, size);
 
+        return productService.getProductsPage(after, size)
+                .map(page -> ApiResponseDTO.handleBuild(page, "Productos obtenidos exitosamente"));
+    }
+
+    @GetMapping("/products/available/page")
+    @Operation(
+            security = @SecurityRequirement(name = "bearer-jwt")
+    )
+    public Mono<ApiResponseDTO<ProductPageDTO>> getAvailableProductsPage(
+            @RequestParam(defaultValue = "0") @PositiveOrZero Long after,
+            @RequestParam(defaultValue = "100") @Positive @Max(500) Integer size) {
+        log.info("GET /api/inventory/products/available/page - Después de: {}, Tamaño: {}", after, size);
+
+        return productService.getAvailableProductsPage(after, size)
+                .map(page -> ApiResponseDTO.handleBuild(page, "Productos disponibles obtenidos exitosamente"));
+    }
+
+    /**
+     * NDJSON o SSE según el Accept; cada producto se escribe conforme el cliente lo pide.
+     */
+    @GetMapping(value = "/products/stream", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    @Operation(
+            security = @SecurityRequirement(name = "bearer-jwt")
+    )
+    public Flux<ProductResponseDTO> streamProducts() {
+        log.info("GET /api/inventory/products/stream - Transmitiendo catálogo");
+
+        return productService.streamProducts();
+    }
+
+    @GetMapping(value = "/products/available/stream", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    @Operation(
+            security = @SecurityRequirement(name = "bearer-jwt")
+    )
+    public Flux<ProductResponseDTO> streamAvailableProducts() {
+        log.info("GET /api/inventory/products/available/stream - Transmitiendo productos disponibles");
+
+        return productService.streamAvailableProducts();
+    }
+
+    /**
+     * Cambios de stock, disponibilidad y precio conforme ocurren, para no consultar el catálogo
+     * por polling. Con after se reanuda desde la última secuencia recibida.
+     */
+    @GetMapping(value = "/products/changes/stream", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    @Operation(
+            security = @SecurityRequirement(name = "bearer-jwt")
+    )
+    public Flux<ProductChangeDTO> streamProductChanges(
+            @RequestParam(required = false) @PositiveOrZero Long after) {
+        log.info("GET /api/inventory/products/changes/stream - Nuevo suscriptor (después de #{})", after);
+
+        return productChangeService.streamChanges(after);
     }
 
     @PostMapping("/product")
@@ -83,6 +161,26 @@ public class ProductController {
                 .map(product -> ApiResponseDTO.handleBuild(product, "Producto creado exitosamente"));
     }
 
+    /**
+     * Alta o actualización masiva desde NDJSON o CSV. El cuerpo se lee conforme llega y se guarda por
+     * lotes; por cada lote se responde una línea con altas, actualizaciones y errores por línea.
+     */
+    @PostMapping(value = "/products/import",
+            consumes = {MediaType.APPLICATION_NDJSON_VALUE, "text/csv"},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(
+            security = @SecurityRequirement(name = "bearer-jwt")
+    )
+    public Flux<ProductImportBatchDTO> importProducts(
+            @Parameter(hidden = true) @RequestHeader("Authorization") String token,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            @RequestBody Flux<DataBuffer> body) {
+        log.info("POST /api/inventory/products/import - Importando productos ({})", contentType);
+
+        return productService.importProducts(token.replace("Bearer ", ""),
+                productImportReader.read(body, MediaType.parseMediaType(contentType)));
+    }
+
     @PutMapping("/product/{hawa}/stock")
     @Operation(
             security = @SecurityRequirement(name = "bearer-jwt")
@@ -99,17 +197,81 @@ public class ProductController {
                 );
     }
 
+    @PutMapping("/product/{hawa}/stock/buckets")
+    @Operation(
+            security = @SecurityRequirement(name = "bearer-jwt")
+    )
+    public Mono<ApiResponseDTO<ProductResponseDTO>> configureStockBuckets(
+            @PathVariable @NotBlank String hawa,
+            @RequestParam @Positive @Max(64) Integer count) {
+        log.info("PUT /api/inventory/product/{}/stock/buckets - Cubetas: {}", hawa, count);
+
+        return productService.configureStockBuckets(hawa, count)
+                .map(product ->
+                        ApiResponseDTO.handleBuild(product, "Cubetas de stock configuradas exitosamente")
+                );
+    }
+
     @GetMapping("/products/low-stock")
     @Operation(
             security = @SecurityRequirement(name = "bearer-jwt")
     )
     public Flux<ProductResponseDTO> getProductsWithLowStock(
-            @RequestParam(defaultValue = "5") @Positive Integer threshold) {
+            @Parameter(description = "Sin threshold se usa el punto de reorden de cada producto")
+            @RequestParam(required = false) @Positive Integer threshold) {
         log.info("GET /api/inventory/products/low-stock - Threshold: {}", threshold);
 
         return productService.getProductsWithLowStock(threshold);
     }
 
+    @GetMapping("/products/low-stock/page")
+    @Operation(
+            security = @SecurityRequirement(name = "bearer-jwt")
+    )
+    public Mono<ApiResponseDTO<ProductPageDTO>> getProductsWithLowStockPage(
+            @RequestParam(defaultValue = "5") @Positive Integer threshold,
+            @RequestParam(defaultValue = "0") @PositiveOrZero Long after,
+            @RequestParam(defaultValue = "100") @Positive @Max(500) Integer size) {
+        log.info("GET /api/inventory/products/low-stock/page - Threshold: {}, Después de: {}", threshold, after);
+
+        return productService.getProductsWithLowStockPage(threshold, after, size)
+                .map(page -> ApiResponseDTO.handleBuild(page, "Productos con stock bajo obtenidos exitosamente"));
+    }
+
+    @GetMapping(value = "/products/low-stock/stream", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    @Operation(
+            security = @SecurityRequirement(name = "bearer-jwt")
+    )
+    public Flux<ProductResponseDTO> streamProductsWithLowStock(
+            @RequestParam(defaultValue = "5") @Positive Integer threshold) {
+        log.info("GET /api/inventory/products/low-stock/stream - Threshold: {}", threshold);
+
+        return productService.streamProductsWithLowStock(threshold);
+    }
+
+    @GetMapping(value = "/products/low-stock/alerts/stream", produces = {MediaType.TEXT_EVENT_STREAM_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @Operation(
+            security = @SecurityRequirement(name = "bearer-jwt")
+    )
+    public Flux<LowStockAlertDTO> streamLowStockAlerts() {
+        log.info("GET /api/inventory/products/low-stock/alerts/stream - Nuevo suscriptor");
+
+        return lowStockService.streamAlerts();
+    }
+
+    @PutMapping("/product/{hawa}/reorder-threshold")
+    @Operation(
+            security = @SecurityRequirement(name = "bearer-jwt")
+    )
+    public Mono<ApiResponseDTO<ProductResponseDTO>> updateReorderThreshold(
+            @PathVariable @NotBlank String hawa,
+            @RequestParam @PositiveOrZero Integer threshold) {
+        log.info("PUT /api/inventory/product/{}/reorder-threshold - Punto de reorden: {}", hawa, threshold);
+
+        return productService.updateReorderThreshold(hawa, threshold)
+                .map(product -> ApiResponseDTO.handleBuild(product, "Punto de reorden actualizado exitosamente"));
+    }
+
     @PutMapping("/product/{hawa}/availability")
     @Operation(
             security = @SecurityRequirement(name = "bearer-jwt")
@@ -125,6 +287,17 @@ public class ProductController {
                 );
     }
 
+    /**
+     * ETag fuerte con la versión del catálogo. Si coincide con If-None-Match el handler responde 304
+     * sin suscribirse al Flux: no se consulta la lista ni se serializa.
+     */
+    private Mono<ResponseEntity<Flux<ProductResponseDTO>>> catalogResponse(String name, Flux<ProductResponseDTO> products) {
+        return productService.getCatalogVersion()
+                .map(version -> ResponseEntity.ok()
+                        .eTag("\"" + name + "-" + version + "\"")
+                        .body(products));
+    }
+
     @GetMapping("/health")
     @Operation(
             security = @SecurityRequirement(name = "bearer-jwt")
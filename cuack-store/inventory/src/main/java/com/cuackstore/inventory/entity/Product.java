@@ -1,5 +1,6 @@
 package com.cuackstore.inventory.entity;
 
+import com.cuackstore.commons.money.Money;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -58,6 +59,16 @@ public class Product {
     @Column("available")
     private Boolean available = true;
 
+    // 1: el stock vive en esta fila; N > 1: repartido en product_stock_buckets y stock es la suma
+    @Builder.Default
+    @Column("stock_buckets")
+    private Integer stockBuckets = 1;
+
+    // Con stock <= reorderThreshold (y disponible) el producto está en la lista de stock bajo
+    @Builder.Default
+    @Column("reorder_threshold")
+    private Integer reorderThreshold = 5;
+
     @Builder.Default
     @Column("created_at")
     @UpdateTimestamp
@@ -74,11 +85,11 @@ public class Product {
     }
 
     public BigDecimal getFinalPrice() {
-        if (discount == null || discount.compareTo(BigDecimal.ZERO) == 0) {
+        if (discount == null || discount.signum() == 0) {
             return listPrice;
         }
-        BigDecimal discountAmount = listPrice.multiply(discount).divide(BigDecimal.valueOf(100));
-        return listPrice.subtract(discountAmount);
+        Money price = Money.of(listPrice);
+        return price.minus(price.percentage(discount)).toBigDecimal();
     }
 
     @PreUpdate
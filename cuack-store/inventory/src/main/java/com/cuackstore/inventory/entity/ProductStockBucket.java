@@ -0,0 +1,29 @@
+package com.cuackstore.inventory.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("product_stock_buckets")
+public class ProductStockBucket {
+
+    @Id
+    private Long id;
+
+    @Column("hawa")
+    private String hawa;
+
+    @Column("bucket")
+    private Integer bucket;
+
+    @Column("stock")
+    private Integer stock;
+}
@@ -0,0 +1,173 @@
+package com.cuackstore.inventory.importer;
+
+import com.cuackstore.commons.dto.products.ProductCreateDTO;
+import com.cuackstore.commons.exceptions.ServicesException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.StringDecoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Lee un catálogo en NDJSON o CSV (con encabezado, columnas con los nombres de ProductCreateDTO)
+ * línea por línea conforme llega el cuerpo, valida cada producto con las reglas de ProductCreateDTO
+ * y lo agrupa en lotes de batch-size. Una línea inválida se reporta y no detiene la lectura.
+ */
+@Component
+public class ProductImportReader {
+
+    public static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+    // Marca de línea vacía: se descarta antes de agrupar y no cuenta como error
+    private static final ProductImportRow EMPTY_LINE = ProductImportRow.rejected(0, null, "");
+
+    private final StringDecoder lineDecoder = StringDecoder.allMimeTypes();
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int batchSize;
+
+    public ProductImportReader(ObjectMapper objectMapper,
+                               Validator validator,
+                               @Value("${inventory.import.batch-size:500}") int batchSize) {
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.batchSize = batchSize;
+    }
+
+    public Flux<List<ProductImportRow>> read(Flux<DataBuffer> body, MediaType contentType) {
+        // Las líneas salen del decoder conforme se piden, así que en memoria solo está el lote en curso
+        Flux<String> lines = lineDecoder.decode(body, ResolvableType.forClass(String.class), null, Map.of());
+
+        Flux<ProductImportRow> rows;
+        if (TEXT_CSV.isCompatibleWith(contentType)) {
+            rows = lines.switchOnFirst((first, all) -> {
+                if (!first.hasValue()) {
+                    return all.thenMany(Flux.empty());
+                }
+                List<String> header = parseHeader(first.get());
+                return all.skip(1)
+                        .index((index, line) -> parseCsv(index + 2, header, line));
+            });
+        } else if (MediaType.APPLICATION_NDJSON.isCompatibleWith(contentType)) {
+            rows = lines.index((index, line) -> parseJson(index + 1, line));
+        } else {
+            return Flux.error(new ServicesException("Formato de importación no soportado: " + contentType, HttpStatus.UNSUPPORTED_MEDIA_TYPE));
+        }
+
+        return rows.filter(row -> row != EMPTY_LINE)
+                .buffer(batchSize);
+    }
+
+    private ProductImportRow parseJson(long line, String text) {
+        if (text.isBlank()) {
+            return EMPTY_LINE;
+        }
+        try {
+            return validate(line, objectMapper.readValue(text, ProductCreateDTO.class));
+        } catch (JsonProcessingException e) {
+            return ProductImportRow.rejected(line, null, "JSON inválido: " + e.getOriginalMessage());
+        }
+    }
+
+    private ProductImportRow parseCsv(long line, List<String> header, String text) {
+        if (text.isBlank()) {
+            return EMPTY_LINE;
+        }
+        List<String> values;
+        try {
+            values = splitCsv(text);
+        } catch (IllegalArgumentException e) {
+            return ProductImportRow.rejected(line, null, e.getMessage());
+        }
+        if (values.size() != header.size()) {
+            return ProductImportRow.rejected(line, null,
+                    "Se esperaban " + header.size() + " columnas y se encontraron " + values.size());
+        }
+
+        // Las celdas vacías se omiten para que cuenten como campo ausente y no como texto vacío
+        Map<String, String> fields = new LinkedHashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            String value = values.get(i).trim();
+            if (!value.isEmpty()) {
+                fields.put(header.get(i), value);
+            }
+        }
+        try {
+            return validate(line, objectMapper.convertValue(fields, ProductCreateDTO.class));
+        } catch (IllegalArgumentException e) {
+            String message = e.getCause() instanceof JsonProcessingException
+                    ? ((JsonProcessingException) e.getCause()).getOriginalMessage()
+                    : e.getMessage();
+            return ProductImportRow.rejected(line, fields.get("hawa"), "Valor inválido: " + message);
+        }
+    }
+
+    private ProductImportRow validate(long line, ProductCreateDTO product) {
+        String violations = validator.validate(product).stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining("; "));
+        return violations.isEmpty()
+                ? ProductImportRow.valid(line, product)
+                : ProductImportRow.rejected(line, product.getHawa(), violations);
+    }
+
+    private List<String> parseHeader(String line) {
+        // Un BOM de UTF-8 al inicio del archivo quedaría pegado al nombre de la primera columna
+        String header = line.startsWith("\uFEFF") ? line.substring(1) : line;
+        try {
+            return splitCsv(header).stream()
+                    .map(String::trim)
+                    .collect(Collectors.toList());
+        } catch (IllegalArgumentException e) {
+            throw new ServicesException("Encabezado CSV inválido: " + e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Separa una línea CSV por comas respetando campos entre comillas ("" es una comilla literal).
+     * Los campos no pueden abarcar varias líneas.
+     */
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Comillas sin cerrar");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
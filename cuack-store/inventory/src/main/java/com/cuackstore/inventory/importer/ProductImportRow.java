@@ -0,0 +1,29 @@
+package com.cuackstore.inventory.importer;
+
+import com.cuackstore.commons.dto.products.ProductCreateDTO;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Una línea del archivo de importación: el producto ya validado o el motivo por el que se rechazó.
+ */
+@Getter
+@AllArgsConstructor
+public class ProductImportRow {
+    private final long line;
+    private final String hawa;
+    private final ProductCreateDTO product;
+    private final String error;
+
+    public static ProductImportRow valid(long line, ProductCreateDTO product) {
+        return new ProductImportRow(line, product.getHawa(), product, null);
+    }
+
+    public static ProductImportRow rejected(long line, String hawa, String error) {
+        return new ProductImportRow(line, hawa, null, error);
+    }
+
+    public boolean isValid() {
+        return error == null;
+    }
+}
@@ -8,30 +8,115 @@ import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.LocalDateTime;
+
 @Repository
 public interface ProductRepository extends ReactiveCrudRepository<Product, Long> {
 
-    @Query("SELECT * FROM products WHERE hawa = :hawa")
+    // Para productos con cubetas el stock es la suma de product_stock_buckets; los demás no la consultan
+    String SELECT_PRODUCTS = "SELECT p.id, p.hawa, p.name, p.description, p.list_price, p.discount, " +
+            "CASE WHEN p.stock_buckets > 1 " +
+            "THEN (SELECT COALESCE(SUM(b.stock), 0) FROM product_stock_buckets b WHERE b.hawa = p.hawa) " +
+            "ELSE p.stock END AS stock, " +
+            "p.stock_buckets, p.reorder_threshold, p.available, p.created_at, p.updated_at, p.created_by " +
+            "FROM products p ";
+
+    @Query(SELECT_PRODUCTS)
+    Flux<Product> findAll();
+
+    @Query(SELECT_PRODUCTS + "WHERE p.hawa = :hawa")
     Mono<Product> findByHawa(@Param("hawa") String hawa);
 
-    @Query("SELECT * FROM products WHERE available = 1 AND stock > 0")
+    // Cambia con cualquier UPDATE (row_version) o alta de producto (COUNT); se resuelve sobre IX_products_row_version.
+    // Los movimientos de productos con cubetas solo tocan product_stock_buckets
+    @Query("SELECT CONCAT(COUNT(*), '-', CAST(MAX(row_version) AS BIGINT), '-', " +
+            "(SELECT CAST(MAX(row_version) AS BIGINT) FROM product_stock_buckets)) FROM products")
+    Mono<String> findCatalogVersion();
+
+    @Query("SELECT * FROM (" + SELECT_PRODUCTS + ") p WHERE p.available = 1 AND p.stock > 0")
     Flux<Product> findAvailableProducts();
 
+    // Páginas por llave (id > :afterId) sobre la llave primaria: el costo no crece con la posición
+    @Query("SELECT TOP (:limit) * FROM (" + SELECT_PRODUCTS + ") p WHERE p.id > :afterId ORDER BY p.id")
+    Flux<Product> findPageAfter(@Param("afterId") Long afterId, @Param("limit") Integer limit);
+
+    @Query("SELECT TOP (:limit) * FROM (" + SELECT_PRODUCTS + ") p " +
+            "WHERE p.id > :afterId AND p.available = 1 AND p.stock > 0 ORDER BY p.id")
+    Flux<Product> findAvailablePageAfter(@Param("afterId") Long afterId, @Param("limit") Integer limit);
+
+    @Query("SELECT TOP (:limit) * FROM (" + SELECT_PRODUCTS + ") p " +
+            "WHERE p.id > :afterId AND p.stock <= :threshold AND p.available = 1 ORDER BY p.id")
+    Flux<Product> findLowStockPageAfter(@Param("threshold") Integer threshold, @Param("afterId") Long afterId,
+                                        @Param("limit") Integer limit);
+
+    @Query("SELECT hawa, stock_buckets FROM products WHERE stock_buckets > 1")
+    Flux<Product> findBucketedProducts();
+
     @Query("SELECT COUNT(*) FROM products WHERE hawa = :hawa")
     Mono<Long> countByHawa(@Param("hawa") String hawa);
 
-    @Query("UPDATE products SET stock = :stock WHERE hawa = :hawa")
-    Mono<Integer> updateStockByHawa(@Param("hawa") String hawa, @Param("stock") Integer stock);
+    // Las mutaciones devuelven la fila ya actualizada (OUTPUT inserted.*): un solo viaje a la base.
+    // El descuento condicionado está en DatabaseStockStore porque también clasifica el rechazo
+    @Query("UPDATE products SET stock = :stock OUTPUT inserted.* WHERE hawa = :hawa")
+    Mono<Product> updateStockByHawa(@Param("hawa") String hawa, @Param("stock") Integer stock);
 
-    @Query("UPDATE products SET stock = stock + :quantity WHERE hawa = :hawa")
-    Mono<Integer> incrementStock(@Param("hawa") String hawa, @Param("quantity") Integer quantity);
+    @Query("UPDATE products SET stock = stock + :quantity OUTPUT inserted.* WHERE hawa = :hawa")
+    Mono<Product> incrementStock(@Param("hawa") String hawa, @Param("quantity") Integer quantity);
 
-    @Query("UPDATE products SET stock = stock - :quantity WHERE hawa = :hawa AND stock >= :quantity")
-    Mono<Integer> decrementStock(@Param("hawa") String hawa, @Param("quantity") Integer quantity);
+    @Query("UPDATE p SET p.stock = p.stock - r.quantity " +
+            "OUTPUT inserted.* " +
+            "FROM products p " +
+            "INNER JOIN OPENJSON(:items) WITH (hawa NVARCHAR(50) '$.hawa', quantity INT '$.quantity') r ON p.hawa = r.hawa " +
+            "WHERE p.available = 1 AND p.stock >= r.quantity")
+    Flux<Product> reserveStock(@Param("items") String items);
 
-    @Query("SELECT * FROM products WHERE stock <= :threshold AND available = 1")
+    @Query("UPDATE p SET p.stock = p.stock + r.quantity " +
+            "OUTPUT inserted.* " +
+            "FROM products p " +
+            "INNER JOIN OPENJSON(:items) WITH (hawa NVARCHAR(50) '$.hawa', quantity INT '$.quantity') r ON p.hawa = r.hawa")
+    Flux<Product> releaseStock(@Param("items") String items);
+
+    // Registra los release_id nuevos y devuelve solo esos. UPDLOCK + HOLDLOCK: un duplicado concurrente
+    // espera al primero y, tras su commit, ya no sale como nuevo
+    @Query("INSERT INTO stock_releases (release_id) OUTPUT inserted.release_id " +
+            "SELECT DISTINCT r.value FROM OPENJSON(:releaseIds) r " +
+            "WHERE NOT EXISTS (SELECT 1 FROM stock_releases s WITH (UPDLOCK, HOLDLOCK) WHERE s.release_id = r.value)")
+    Flux<String> recordReleases(@Param("releaseIds") String releaseIds);
+
+    @Query("DELETE FROM stock_releases WHERE created_at < :cutoff")
+    Mono<Integer> deleteReleasesBefore(@Param("cutoff") LocalDateTime cutoff);
+
+    // Escritura diferida del stock en memoria: existencias absolutas por HAWA en un solo UPDATE.
+    // El stock en memoria es uno solo por HAWA, así que las cubetas quedan desactivadas
+    @Query("UPDATE p SET p.stock = s.stock, p.stock_buckets = 1 " +
+            "FROM products p " +
+            "INNER JOIN OPENJSON(:items) WITH (hawa NVARCHAR(50) '$.hawa', stock INT '$.stock') s ON p.hawa = s.hawa")
+    Mono<Integer> applyStockSnapshot(@Param("items") String items);
+
+    @Query("SELECT * FROM (" + SELECT_PRODUCTS + ") p WHERE p.stock <= :threshold AND p.available = 1")
     Flux<Product> findProductsWithLowStock(@Param("threshold") Integer threshold);
 
-    @Query("UPDATE products SET available = :available WHERE hawa = :hawa")
-    Mono<Integer> updateAvailabilityByHawa(@Param("hawa") String hawa, @Param("available") Boolean available);
+    @Query("UPDATE products SET available = :available OUTPUT inserted.* WHERE hawa = :hawa")
+    Mono<Product> updateAvailabilityByHawa(@Param("hawa") String hawa, @Param("available") Boolean available);
+
+    @Query("UPDATE products SET reorder_threshold = :threshold OUTPUT inserted.* WHERE hawa = :hawa")
+    Mono<Product> updateReorderThresholdByHawa(@Param("hawa") String hawa, @Param("threshold") Integer threshold);
+
+    // Importación por lotes: un MERGE por lote. El stock solo se escribe en altas; el de productos existentes
+    // se fija con el StockStore (cubetas, modo memoria). Las filas actualizadas salen con updated_at, las altas sin él
+    @Query("MERGE products WITH (HOLDLOCK) AS t " +
+            "USING OPENJSON(:items) WITH (hawa NVARCHAR(50) '$.hawa', name NVARCHAR(200) '$.name', " +
+            "description NVARCHAR(500) '$.description', list_price DECIMAL(10,2) '$.listPrice', " +
+            "discount DECIMAL(5,2) '$.discount', stock INT '$.stock', available BIT '$.available', " +
+            "reorder_threshold INT '$.reorderThreshold') AS s ON t.hawa = s.hawa " +
+            "WHEN MATCHED THEN UPDATE SET t.name = s.name, t.description = s.description, t.list_price = s.list_price, " +
+            "t.discount = s.discount, t.available = s.available, t.reorder_threshold = s.reorder_threshold, t.updated_at = GETDATE() " +
+            "WHEN NOT MATCHED THEN INSERT (hawa, name, description, list_price, discount, stock, available, reorder_threshold, created_at, created_by) " +
+            "VALUES (s.hawa, s.name, s.description, s.list_price, s.discount, s.stock, s.available, s.reorder_threshold, GETDATE(), :createdBy) " +
+            "OUTPUT inserted.*;")
+    Flux<Product> mergeProducts(@Param("items") String items, @Param("createdBy") String createdBy);
+
+    // Carga inicial y resincronización de la lista de stock bajo; compara cada fila con su propio punto de reorden
+    @Query("SELECT * FROM (" + SELECT_PRODUCTS + ") p WHERE p.stock <= p.reorder_threshold AND p.available = 1")
+    Flux<Product> findBelowReorderThreshold();
 }
@@ -0,0 +1,80 @@
+package com.cuackstore.inventory.repository;
+
+import com.cuackstore.inventory.entity.Product;
+import com.cuackstore.inventory.entity.ProductStockBucket;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Cubetas 0..N-1 de los productos con stock_buckets > 1; el stock del producto es su suma.
+ */
+@Repository
+public interface ProductStockBucketRepository extends ReactiveCrudRepository<ProductStockBucket, Long> {
+
+    // Una sola cubeta con existencias suficientes, empezando en :offset y saltando las bloqueadas (READPAST)
+    @Query("WITH pick AS (" +
+            "SELECT TOP (1) stock FROM product_stock_buckets WITH (ROWLOCK, UPDLOCK, READPAST) " +
+            "WHERE hawa = :hawa AND stock >= :quantity " +
+            "ORDER BY (bucket + :offset) % :buckets) " +
+            "UPDATE pick SET stock = stock - :quantity")
+    Mono<Integer> takeFromOneBucket(@Param("hawa") String hawa, @Param("quantity") Integer quantity,
+                                    @Param("offset") Integer offset, @Param("buckets") Integer buckets);
+
+    // Respaldo: descuenta en orden de cubeta usando sumas acumuladas; todo o nada contra el total
+    @Query("WITH b AS (" +
+            "SELECT stock, SUM(stock) OVER (ORDER BY bucket ROWS UNBOUNDED PRECEDING) AS running, " +
+            "SUM(stock) OVER () AS total " +
+            "FROM product_stock_buckets WITH (UPDLOCK, HOLDLOCK) WHERE hawa = :hawa) " +
+            "UPDATE b SET stock = CASE WHEN running <= :quantity THEN 0 ELSE running - :quantity END " +
+            "WHERE total >= :quantity AND running - stock < :quantity")
+    Mono<Integer> takeAcrossBuckets(@Param("hawa") String hawa, @Param("quantity") Integer quantity);
+
+    @Query("UPDATE product_stock_buckets SET stock = stock + :quantity WHERE hawa = :hawa AND bucket = :bucket")
+    Mono<Integer> addToBucket(@Param("hawa") String hawa, @Param("bucket") Integer bucket, @Param("quantity") Integer quantity);
+
+    // Reparte :stock en partes iguales; las primeras (stock % N) cubetas llevan una unidad más
+    @Query("UPDATE b SET b.stock = :stock / n.buckets + CASE WHEN b.bucket < :stock % n.buckets THEN 1 ELSE 0 END " +
+            "FROM product_stock_buckets b " +
+            "CROSS APPLY (SELECT COUNT(*) AS buckets FROM product_stock_buckets WHERE hawa = :hawa) n " +
+            "WHERE b.hawa = :hawa")
+    Mono<Integer> setTotal(@Param("hawa") String hawa, @Param("stock") Integer stock);
+
+    // Igual que setTotal con el total actual, solo si alguna cubeta quedó por debajo de la mitad del promedio
+    @Query("WITH t AS (" +
+            "SELECT SUM(stock) AS total, COUNT(*) AS buckets, MIN(stock) AS min_stock " +
+            "FROM product_stock_buckets WITH (UPDLOCK, HOLDLOCK) WHERE hawa = :hawa) " +
+            "UPDATE b SET b.stock = t.total / t.buckets + CASE WHEN b.bucket < t.total % t.buckets THEN 1 ELSE 0 END " +
+            "FROM product_stock_buckets b CROSS JOIN t " +
+            "WHERE b.hawa = :hawa AND t.min_stock * 2 < t.total / t.buckets")
+    Mono<Integer> rebalance(@Param("hawa") String hawa);
+
+    // Stock que una instancia con la configuración vieja dejó en products; se pasa a la cubeta 0
+    @Query("UPDATE products SET stock = 0 OUTPUT inserted.hawa, deleted.stock " +
+            "WHERE stock_buckets > 1 AND stock > 0")
+    Flux<Product> takeStrayProductStock();
+
+    // Pasa todo a products.stock (cubetas incluidas) y fija el nuevo número de cubetas
+    @Query("UPDATE p SET p.stock = p.stock + COALESCE((" +
+            "SELECT SUM(b.stock) FROM product_stock_buckets b WITH (UPDLOCK, HOLDLOCK) WHERE b.hawa = p.hawa), 0), " +
+            "p.stock_buckets = :buckets " +
+            "FROM products p WHERE p.hawa = :hawa")
+    Mono<Integer> consolidate(@Param("hawa") String hawa, @Param("buckets") Integer buckets);
+
+    @Query("DELETE FROM product_stock_buckets WHERE hawa = :hawa")
+    Mono<Integer> deleteByHawa(@Param("hawa") String hawa);
+
+    // Crea las N cubetas con products.stock repartido; después se deja products.stock en 0
+    @Query("INSERT INTO product_stock_buckets (hawa, bucket, stock) " +
+            "SELECT p.hawa, n.bucket, p.stock / p.stock_buckets + CASE WHEN n.bucket < p.stock % p.stock_buckets THEN 1 ELSE 0 END " +
+            "FROM products p " +
+            "CROSS APPLY (SELECT TOP (p.stock_buckets) ROW_NUMBER() OVER (ORDER BY (SELECT NULL)) - 1 AS bucket FROM sys.all_objects) n " +
+            "WHERE p.hawa = :hawa")
+    Mono<Integer> createBuckets(@Param("hawa") String hawa);
+
+    @Query("UPDATE products SET stock = 0 WHERE hawa = :hawa")
+    Mono<Integer> clearProductStock(@Param("hawa") String hawa);
+}
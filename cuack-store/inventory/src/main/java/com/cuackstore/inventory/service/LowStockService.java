@@ -0,0 +1,13 @@
+package com.cuackstore.inventory.service;
+
+import com.cuackstore.commons.dto.stock.LowStockAlertDTO;
+import com.cuackstore.inventory.entity.Product;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+public interface LowStockService {
+    void track(Product product);
+    List<Product> getLowStockProducts();
+    Flux<LowStockAlertDTO> streamAlerts();
+}
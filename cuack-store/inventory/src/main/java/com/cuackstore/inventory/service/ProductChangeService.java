@@ -0,0 +1,14 @@
+package com.cuackstore.inventory.service;
+
+import com.cuackstore.commons.dto.products.ProductChangeDTO;
+import com.cuackstore.commons.dto.products.ProductResponseDTO;
+import com.cuackstore.commons.enums.ProductChangeType;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+public interface ProductChangeService {
+    void publish(ProductChangeType type, ProductResponseDTO product);
+    Flux<ProductChangeDTO> streamChanges(Long after);
+    List<ProductChangeDTO> getChangesAfter(long sequence);
+}
@@ -1,23 +1,41 @@
 package com.cuackstore.inventory.service;
 
 import com.cuackstore.commons.dto.products.ProductCreateDTO;
+import com.cuackstore.commons.dto.products.ProductImportBatchDTO;
+import com.cuackstore.commons.dto.products.ProductPageDTO;
 import com.cuackstore.commons.dto.products.ProductResponseDTO;
 import com.cuackstore.commons.dto.stock.AvailabilityResponseDTO;
 import com.cuackstore.commons.dto.stock.StockOperationDTO;
+import com.cuackstore.commons.dto.stock.StockReservationDTO;
 import com.cuackstore.commons.dto.stock.StockUpdateDTO;
+import com.cuackstore.inventory.importer.ProductImportRow;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 public interface ProductService {
     Flux<ProductResponseDTO> getAllProducts();
+    Mono<String> getCatalogVersion();
     Mono<ProductResponseDTO> getProductByHawa(String hawa);
     Mono<AvailabilityResponseDTO> checkAvailability(String hawa);
     Flux<ProductResponseDTO> getAvailableProducts();
     Mono<ProductResponseDTO> createProduct(String token, ProductCreateDTO createDTO);
+    Flux<ProductImportBatchDTO> importProducts(String token, Flux<List<ProductImportRow>> batches);
     Mono<ProductResponseDTO> updateStock(String hawa, StockUpdateDTO stockUpdateDTO);
     Mono<ProductResponseDTO> incrementStock(String hawa, StockOperationDTO operationDTO);
     Mono<ProductResponseDTO> decrementStock(String hawa, StockOperationDTO operationDTO);
+    Mono<List<ProductResponseDTO>> reserveStock(StockReservationDTO reservationDTO);
+    Mono<List<ProductResponseDTO>> releaseStock(StockReservationDTO reservationDTO);
     Flux<ProductResponseDTO> getProductsWithLowStock(Integer threshold);
+    Mono<ProductPageDTO> getProductsPage(Long after, int size);
+    Mono<ProductPageDTO> getAvailableProductsPage(Long after, int size);
+    Mono<ProductPageDTO> getProductsWithLowStockPage(Integer threshold, Long after, int size);
+    Flux<ProductResponseDTO> streamProducts();
+    Flux<ProductResponseDTO> streamAvailableProducts();
+    Flux<ProductResponseDTO> streamProductsWithLowStock(Integer threshold);
     Mono<ProductResponseDTO> updateAvailability(String hawa, Boolean available);
+    Mono<ProductResponseDTO> updateReorderThreshold(String hawa, Integer threshold);
+    Mono<ProductResponseDTO> configureStockBuckets(String hawa, Integer buckets);
 
 }
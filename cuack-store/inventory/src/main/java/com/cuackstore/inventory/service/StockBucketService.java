@@ -0,0 +1,11 @@
+package com.cuackstore.inventory.service;
+
+import reactor.core.publisher.Mono;
+
+public interface StockBucketService {
+    int bucketsFor(String hawa);
+    Mono<Boolean> take(String hawa, int quantity);
+    Mono<Void> add(String hawa, int quantity);
+    Mono<Integer> setTotal(String hawa, int stock);
+    Mono<Void> configure(String hawa, int buckets);
+}
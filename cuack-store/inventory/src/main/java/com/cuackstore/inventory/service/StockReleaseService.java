@@ -0,0 +1,10 @@
+package com.cuackstore.inventory.service;
+
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.Set;
+
+public interface StockReleaseService {
+    Mono<Set<String>> recordNew(Collection<String> releaseIds);
+}
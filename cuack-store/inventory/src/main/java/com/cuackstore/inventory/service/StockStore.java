@@ -0,0 +1,33 @@
+package com.cuackstore.inventory.service;
+
+import com.cuackstore.inventory.entity.Product;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dónde vive el stock autoritativo (inventory.stock.mode): database, cada movimiento es un UPDATE
+ * sobre products; memory, contadores en memoria con journal local y escritura diferida.
+ */
+public interface StockStore {
+    Mono<Product> setStock(String hawa, int stock);
+    Mono<Product> increment(String hawa, int quantity);
+    Mono<Product> decrement(String hawa, int quantity);
+
+    /**
+     * Devuelve los productos que alcanzaron. Si falta alguno el llamador debe fallar:
+     * la reservación es de todo o nada y no queda nada aplicado.
+     */
+    Mono<List<Product>> reserve(Map<String, Integer> quantities);
+    Mono<List<Product>> release(Map<String, Integer> quantities);
+    Mono<Product> setAvailability(String hawa, boolean available);
+    Mono<Product> setReorderThreshold(String hawa, int threshold);
+    Mono<Product> configureBuckets(String hawa, int buckets);
+
+    /**
+     * Alta de un producto, o datos de catálogo nuevos de uno existente; no cambia su stock.
+     */
+    void register(Product product);
+    Product withCurrentStock(Product product);
+}
@@ -0,0 +1,186 @@
+package com.cuackstore.inventory.service.impl;
+
+import com.cuackstore.commons.dto.stock.StockReservationItemDTO;
+import com.cuackstore.commons.exceptions.ServicesException;
+import com.cuackstore.inventory.entity.Product;
+import com.cuackstore.inventory.repository.ProductRepository;
+import com.cuackstore.inventory.service.StockBucketService;
+import com.cuackstore.inventory.service.StockStore;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.r2dbc.convert.R2dbcConverter;
+import org.springframework.http.HttpStatus;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuples;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Stock en SQL Server: cada movimiento es un UPDATE condicionado sobre products, o sobre
+ * product_stock_buckets para los HAWA configurados con cubetas (ver StockBucketServiceImpl).
+ * La reservación parcial se revierte con la transacción del llamador.
+ */
+@Service
+@ConditionalOnProperty(name = "inventory.stock.mode", havingValue = "database", matchIfMissing = true)
+@RequiredArgsConstructor
+public class DatabaseStockStore implements StockStore {
+
+    private static final String DECREMENT_STOCK =
+            "UPDATE products SET stock = stock - :quantity " +
+            "OUTPUT inserted.*, CAST(1 AS BIT) AS applied " +
+            "WHERE hawa = :hawa AND stock >= :quantity; " +
+            "IF @@ROWCOUNT = 0 SELECT *, CAST(0 AS BIT) AS applied FROM products WHERE hawa = :hawa";
+
+    private final ProductRepository productRepository;
+    private final DatabaseClient databaseClient;
+    private final R2dbcConverter converter;
+    private final ObjectMapper objectMapper;
+    private final StockBucketService stockBucketService;
+
+    @Override
+    public Mono<Product> setStock(String hawa, int stock) {
+        if (isBucketed(hawa)) {
+            return stockBucketService.setTotal(hawa, stock)
+                    .flatMap(rowsUpdated -> rowsUpdated == 0
+                            ? Mono.<Product>error(new ServicesException("Producto no encontrado con HAWA: " + hawa, HttpStatus.NOT_FOUND))
+                            : productRepository.findByHawa(hawa));
+        }
+        return productRepository.updateStockByHawa(hawa, stock)
+                .switchIfEmpty(Mono.error(new ServicesException("Producto no encontrado con HAWA: " + hawa, HttpStatus.NOT_FOUND)));
+    }
+
+    @Override
+    public Mono<Product> increment(String hawa, int quantity) {
+        if (isBucketed(hawa)) {
+            return stockBucketService.add(hawa, quantity)
+                    .then(productRepository.findByHawa(hawa));
+        }
+        return productRepository.incrementStock(hawa, quantity)
+                .switchIfEmpty(Mono.error(new ServicesException("Producto no encontrado con HAWA: " + hawa, HttpStatus.NOT_FOUND)));
+    }
+
+    @Override
+    public Mono<Product> decrement(String hawa, int quantity) {
+        if (isBucketed(hawa)) {
+            return stockBucketService.take(hawa, quantity)
+                    .flatMap(taken -> productRepository.findByHawa(hawa)
+                            .flatMap(product -> taken ? Mono.just(product) : insufficient(product)))
+                    .switchIfEmpty(Mono.error(new ServicesException("Producto no encontrado con HAWA: " + hawa, HttpStatus.NOT_FOUND)));
+        }
+
+        // Un solo viaje: la fila actualizada o, si no alcanzó, la fila actual; sin filas no existe
+        return databaseClient.sql(DECREMENT_STOCK)
+                .bind("hawa", hawa)
+                .bind("quantity", quantity)
+                .map((row, metadata) -> Tuples.of(converter.read(Product.class, row, metadata),
+                        Boolean.TRUE.equals(row.get("applied", Boolean.class))))
+                .one()
+                .flatMap(result -> result.getT2() ? Mono.just(result.getT1()) : insufficient(result.getT1()))
+                .switchIfEmpty(Mono.error(new ServicesException("Producto no encontrado con HAWA: " + hawa, HttpStatus.NOT_FOUND)));
+    }
+
+    @Override
+    public Mono<List<Product>> reserve(Map<String, Integer> quantities) {
+        Map<Boolean, Map<String, Integer>> split = splitByBuckets(quantities);
+
+        // Los HAWA con cubetas se descuentan uno por uno; el resto en un solo UPDATE con OPENJSON
+        Flux<Product> bucketed = Flux.fromIterable(split.get(true).entrySet())
+                .concatMap(item -> stockBucketService.take(item.getKey(), item.getValue())
+                        .filter(Boolean::booleanValue)
+                        .flatMap(taken -> productRepository.findByHawa(item.getKey()))
+                        .filter(product -> Boolean.TRUE.equals(product.getAvailable())));
+
+        return plain(split.get(false), productRepository::reserveStock)
+                .concatWith(bucketed)
+                .collectList();
+    }
+
+    @Override
+    public Mono<List<Product>> release(Map<String, Integer> quantities) {
+        Map<Boolean, Map<String, Integer>> split = splitByBuckets(quantities);
+
+        Flux<Product> bucketed = Flux.fromIterable(split.get(true).entrySet())
+                .concatMap(item -> stockBucketService.add(item.getKey(), item.getValue())
+                        .then(productRepository.findByHawa(item.getKey())));
+
+        return plain(split.get(false), productRepository::releaseStock)
+                .concatWith(bucketed)
+                .collectList();
+    }
+
+    @Override
+    public Mono<Product> configureBuckets(String hawa, int buckets) {
+        return stockBucketService.configure(hawa, buckets)
+                .then(productRepository.findByHawa(hawa));
+    }
+
+    @Override
+    public Mono<Product> setAvailability(String hawa, boolean available) {
+        return productRepository.updateAvailabilityByHawa(hawa, available)
+                // Con cubetas inserted.stock es 0; la suma requiere leer el producto
+                .flatMap(product -> isBucketed(hawa) ? productRepository.findByHawa(hawa) : Mono.just(product))
+                .switchIfEmpty(Mono.error(new ServicesException("Producto no encontrado con HAWA: " + hawa, HttpStatus.NOT_FOUND)));
+    }
+
+    @Override
+    public Mono<Product> setReorderThreshold(String hawa, int threshold) {
+        return productRepository.updateReorderThresholdByHawa(hawa, threshold)
+                .flatMap(product -> isBucketed(hawa) ? productRepository.findByHawa(hawa) : Mono.just(product))
+                .switchIfEmpty(Mono.error(new ServicesException("Producto no encontrado con HAWA: " + hawa, HttpStatus.NOT_FOUND)));
+    }
+
+    @Override
+    public void register(Product product) {
+        // El stock ya quedó en la fila insertada
+    }
+
+    @Override
+    public Product withCurrentStock(Product product) {
+        return product;
+    }
+
+    private Mono<Product> insufficient(Product product) {
+        return Mono.error(new ServicesException("Stock insuficiente. Stock actual: " + product.getStock(), HttpStatus.CONFLICT));
+    }
+
+    private boolean isBucketed(String hawa) {
+        return stockBucketService.bucketsFor(hawa) > 1;
+    }
+
+    private Map<Boolean, Map<String, Integer>> splitByBuckets(Map<String, Integer> quantities) {
+        return quantities.entrySet().stream()
+                .collect(Collectors.partitioningBy(entry -> isBucketed(entry.getKey()),
+                        Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, Integer::sum, LinkedHashMap::new)));
+    }
+
+    private Flux<Product> plain(Map<String, Integer> quantities, Function<String, Flux<Product>> statement) {
+        if (quantities.isEmpty()) {
+            return Flux.empty();
+        }
+        return Mono.fromCallable(() -> toItemsJson(quantities))
+                .flatMapMany(statement);
+    }
+
+    private String toItemsJson(Map<String, Integer> quantities) {
+        List<StockReservationItemDTO> items = quantities.entrySet().stream()
+                .map(entry -> StockReservationItemDTO.builder()
+                        .hawa(entry.getKey())
+                        .quantity(entry.getValue())
+                        .build())
+                .collect(Collectors.toList());
+        try {
+            return objectMapper.writeValueAsString(items);
+        } catch (JsonProcessingException e) {
+            throw new ServicesException("No se pudo serializar la reservación", e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+}
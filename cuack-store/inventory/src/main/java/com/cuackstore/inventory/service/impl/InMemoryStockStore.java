@@ -0,0 +1,316 @@
+package com.cuackstore.inventory.service.impl;
+
+import com.cuackstore.commons.exceptions.ServicesException;
+import com.cuackstore.inventory.entity.Product;
+import com.cuackstore.inventory.repository.ProductRepository;
+import com.cuackstore.inventory.service.StockStore;
+import com.cuackstore.inventory.stock.StockCell;
+import com.cuackstore.inventory.stock.StockJournal;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stock autoritativo en memoria: cada HAWA es un {@link StockCell} que decide las reservaciones
+ * con compareAndSet, sin ir a la base. Cada movimiento se anexa al journal local y responde
+ * cuando el journal lo hizo durable; un hilo escribe el estado sucio en products con un
+ * UPDATE por lotes cada flush-interval.
+ *
+ * Al arrancar se aplica en la base lo que quedó en el journal y después se cargan las celdas.
+ * Requiere una sola instancia de inventario: otra instancia no vería estos contadores.
+ */
+@Service
+@ConditionalOnProperty(name = "inventory.stock.mode", havingValue = "memory")
+@Slf4j
+public class InMemoryStockStore implements StockStore {
+
+    private final ProductRepository productRepository;
+    private final ObjectMapper objectMapper;
+    private final StockJournal journal;
+    private final Duration flushInterval;
+    private final int flushBatchSize;
+
+    private final Map<String, StockCell> cells = new ConcurrentHashMap<>();
+    private final List<Path> coveredSegments = new ArrayList<>();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "stock-write-behind");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public InMemoryStockStore(ProductRepository productRepository,
+                              ObjectMapper objectMapper,
+                              @Value("${inventory.stock.journal-dir:./data/stock-journal}") String journalDir,
+                              @Value("${inventory.stock.journal-sync:true}") boolean journalSync,
+                              @Value("${inventory.stock.flush-interval:500ms}") Duration flushInterval,
+                              @Value("${inventory.stock.flush-batch-size:500}") int flushBatchSize) {
+        this.productRepository = productRepository;
+        this.objectMapper = objectMapper;
+        this.journal = new StockJournal(Paths.get(journalDir), journalSync);
+        this.flushInterval = flushInterval;
+        this.flushBatchSize = flushBatchSize;
+    }
+
+    @PostConstruct
+    public void start() {
+        Map<String, Long> recovered = journal.recover();
+        if (!recovered.isEmpty()) {
+            List<Map<String, Object>> rows = new ArrayList<>();
+            recovered.forEach((hawa, state) -> rows.add(Map.of("hawa", hawa, "stock", StockCell.stock(state))));
+            writeRows(rows);
+            log.warn("Stock recuperado del journal para {} productos", recovered.size());
+        }
+
+        productRepository.findAll()
+                .doOnNext(product -> cells.put(product.getHawa(), new StockCell(product)))
+                .blockLast();
+        journal.open();
+
+        flusher.scheduleWithFixedDelay(this::flushSafely, flushInterval.toMillis(), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+        log.info("Stock en memoria iniciado: {} productos, escritura diferida cada {}", cells.size(), flushInterval);
+    }
+
+    @PreDestroy
+    public void stop() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushSafely();
+        journal.close();
+    }
+
+    @Override
+    public Mono<Product> setStock(String hawa, int stock) {
+        return Mono.defer(() -> {
+            StockCell cell = cells.get(hawa);
+            if (cell == null) {
+                return notFound(hawa);
+            }
+            long previous = cell.getAndSet(stock);
+            long state = StockCell.pack(StockCell.version(previous) + 1, stock);
+            return journaled(List.of(new StockJournal.Entry(hawa, state)), cell.toProduct(state),
+                    Map.of(hawa, StockCell.stock(previous) - stock));
+        });
+    }
+
+    @Override
+    public Mono<Product> increment(String hawa, int quantity) {
+        return Mono.defer(() -> {
+            StockCell cell = cells.get(hawa);
+            if (cell == null) {
+                return notFound(hawa);
+            }
+            long state = cell.add(quantity);
+            return journaled(List.of(new StockJournal.Entry(hawa, state)), cell.toProduct(state),
+                    Map.of(hawa, -quantity));
+        });
+    }
+
+    @Override
+    public Mono<Product> decrement(String hawa, int quantity) {
+        return Mono.defer(() -> {
+            StockCell cell = cells.get(hawa);
+            if (cell == null) {
+                return notFound(hawa);
+            }
+            long state = cell.tryTake(quantity);
+            if (state == StockCell.REJECTED) {
+                return Mono.error(new ServicesException("Stock insuficiente. Stock actual: " + StockCell.stock(cell.state()), HttpStatus.CONFLICT));
+            }
+            return journaled(List.of(new StockJournal.Entry(hawa, state)), cell.toProduct(state),
+                    Map.of(hawa, quantity));
+        });
+    }
+
+    @Override
+    public Mono<List<Product>> reserve(Map<String, Integer> quantities) {
+        return Mono.defer(() -> {
+            Map<String, Integer> taken = new LinkedHashMap<>();
+            List<StockJournal.Entry> entries = new ArrayList<>();
+            List<Product> reserved = new ArrayList<>();
+            boolean rejected = false;
+
+            // Se intentan todos para reportar exactamente cuáles no alcanzaron
+            for (Map.Entry<String, Integer> item : quantities.entrySet()) {
+                StockCell cell = cells.get(item.getKey());
+                long state = cell != null && cell.isAvailable() ? cell.tryTake(item.getValue()) : StockCell.REJECTED;
+                if (state == StockCell.REJECTED) {
+                    rejected = true;
+                    continue;
+                }
+                taken.put(item.getKey(), item.getValue());
+                entries.add(new StockJournal.Entry(item.getKey(), state));
+                reserved.add(cell.toProduct(state));
+            }
+
+            if (!rejected) {
+                return journaled(entries, reserved, taken);
+            }
+
+            // Todo o nada: se devuelve lo tomado. Un flush pudo ver el estado intermedio, así que
+            // la devolución también va al journal
+            List<StockJournal.Entry> undo = new ArrayList<>();
+            taken.forEach((hawa, quantity) -> undo.add(new StockJournal.Entry(hawa, cells.get(hawa).add(quantity))));
+            return journaled(undo, reserved, null);
+        });
+    }
+
+    @Override
+    public Mono<List<Product>> release(Map<String, Integer> quantities) {
+        return Mono.defer(() -> {
+            Map<String, Integer> returned = new LinkedHashMap<>();
+            List<StockJournal.Entry> entries = new ArrayList<>();
+            List<Product> released = new ArrayList<>();
+            quantities.forEach((hawa, quantity) -> {
+                StockCell cell = cells.get(hawa);
+                if (cell != null) {
+                    long state = cell.add(quantity);
+                    returned.put(hawa, -quantity);
+                    entries.add(new StockJournal.Entry(hawa, state));
+                    released.add(cell.toProduct(state));
+                }
+            });
+            return journaled(entries, released, returned);
+        });
+    }
+
+    @Override
+    public Mono<Product> setAvailability(String hawa, boolean available) {
+        return productRepository.updateAvailabilityByHawa(hawa, available)
+                .switchIfEmpty(notFound(hawa))
+                .map(product -> {
+                    StockCell cell = cells.computeIfAbsent(hawa, key -> new StockCell(product));
+                    cell.setProduct(product);
+                    return cell.toProduct(cell.state());
+                });
+    }
+
+    @Override
+    public Mono<Product> setReorderThreshold(String hawa, int threshold) {
+        return productRepository.updateReorderThresholdByHawa(hawa, threshold)
+                .switchIfEmpty(notFound(hawa))
+                .map(product -> {
+                    StockCell cell = cells.computeIfAbsent(hawa, key -> new StockCell(product));
+                    cell.setProduct(product);
+                    return cell.toProduct(cell.state());
+                });
+    }
+
+    @Override
+    public Mono<Product> configureBuckets(String hawa, int buckets) {
+        return Mono.error(new ServicesException("Las cubetas de stock solo aplican con inventory.stock.mode=database", HttpStatus.BAD_REQUEST));
+    }
+
+    @Override
+    public void register(Product product) {
+        cells.compute(product.getHawa(), (hawa, cell) -> {
+            if (cell == null) {
+                return new StockCell(product);
+            }
+            cell.setProduct(product);
+            return cell;
+        });
+    }
+
+    @Override
+    public Product withCurrentStock(Product product) {
+        StockCell cell = cells.get(product.getHawa());
+        return cell != null ? cell.toProduct(cell.state()) : product;
+    }
+
+    /**
+     * Responde cuando el journal hizo durables las entradas. Si el journal falla, compensation
+     * (cantidad a sumar por HAWA) deshace el movimiento en las celdas y se reporta como error.
+     * Se deshace la diferencia y no se restaura el estado anterior: lo que otros movimientos
+     * cambiaron mientras tanto se conserva. null solo cuando las celdas ya quedaron como estaban.
+     */
+    private <T> Mono<T> journaled(List<StockJournal.Entry> entries, T result, Map<String, Integer> compensation) {
+        if (entries.isEmpty()) {
+            return Mono.just(result);
+        }
+        return Mono.fromFuture(journal.append(entries))
+                .thenReturn(result)
+                .onErrorMap(e -> {
+                    if (compensation != null) {
+                        compensation.forEach((hawa, quantity) -> cells.get(hawa).add(quantity));
+                    }
+                    return new ServicesException("No se pudo registrar el movimiento de stock", e.getMessage(),
+                            HttpStatus.SERVICE_UNAVAILABLE);
+                });
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Error en la escritura diferida de stock, se reintenta: {}", e.getMessage());
+        }
+    }
+
+    private void flush() {
+        // Todo lo anexado antes de la rotación tiene versión <= la que se lee abajo
+        coveredSegments.addAll(journal.rotate().join());
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        List<StockCell> dirtyCells = new ArrayList<>();
+        List<Long> states = new ArrayList<>();
+        cells.forEach((hawa, cell) -> {
+            long state = cell.state();
+            if (cell.isDirty(state)) {
+                rows.add(Map.of("hawa", hawa, "stock", StockCell.stock(state)));
+                dirtyCells.add(cell);
+                states.add(state);
+            }
+        });
+
+        if (!rows.isEmpty()) {
+            writeRows(rows);
+            for (int i = 0; i < dirtyCells.size(); i++) {
+                dirtyCells.get(i).markFlushed(states.get(i));
+            }
+            log.debug("Stock escrito en la base para {} productos", rows.size());
+        }
+
+        journal.delete(coveredSegments);
+        coveredSegments.clear();
+    }
+
+    private void writeRows(List<Map<String, Object>> rows) {
+        for (int from = 0; from < rows.size(); from += flushBatchSize) {
+            List<Map<String, Object>> chunk = rows.subList(from, Math.min(from + flushBatchSize, rows.size()));
+            String items;
+            try {
+                items = objectMapper.writeValueAsString(chunk);
+            } catch (JsonProcessingException e) {
+                throw new ServicesException("No se pudo serializar el stock", e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+            }
+            productRepository.applyStockSnapshot(items).block();
+        }
+    }
+
+    private <T> Mono<T> notFound(String hawa) {
+        return Mono.error(new ServicesException("Producto no encontrado con HAWA: " + hawa, HttpStatus.NOT_FOUND));
+    }
+}
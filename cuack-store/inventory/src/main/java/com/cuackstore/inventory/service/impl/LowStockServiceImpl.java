@@ -0,0 +1,216 @@
+package com.cuackstore.inventory.service.impl;
+
+import com.cuackstore.commons.dto.stock.LowStockAlertDTO;
+import com.cuackstore.inventory.entity.Product;
+import com.cuackstore.inventory.repository.ProductRepository;
+import com.cuackstore.inventory.service.LowStockService;
+import com.cuackstore.inventory.service.StockStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Lista de productos en o por debajo de su punto de reorden, mantenida con la post-imagen de
+ * cada movimiento de stock: consultarla cuesta lo que mide la lista, no lo que mide products.
+ * Se ordena por cuánto le falta a cada producto para volver a su punto de reorden.
+ *
+ * Al cruzar el punto de reorden (en cualquier sentido) se emite una alerta por SSE y, si hay
+ * webhook-url, se envía por POST. En modo database otra instancia puede mover stock sin pasar
+ * por aquí, así que la lista se resincroniza contra la base cada resync-interval.
+ */
+@Service
+@Slf4j
+public class LowStockServiceImpl implements LowStockService {
+
+    private static final Duration WEBHOOK_TIMEOUT = Duration.ofSeconds(5);
+
+    private final ProductRepository productRepository;
+    private final StockStore stockStore;
+    private final WebClient webhookClient;
+    private final Duration resyncInterval;
+    private final boolean memoryMode;
+
+    private final Map<String, Entry> lowStock = new ConcurrentHashMap<>();
+    private final NavigableSet<Entry> ordered = new ConcurrentSkipListSet<>(
+            Comparator.comparingInt(Entry::getDeficit).reversed().thenComparing(Entry::getHawa));
+    // Generación del último movimiento por HAWA: la resincronización no pisa lo que cambió después de leer
+    private final Map<String, Long> touched = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final Sinks.Many<LowStockAlertDTO> alerts = Sinks.many().multicast().directBestEffort();
+    private Disposable resync;
+
+    public LowStockServiceImpl(ProductRepository productRepository,
+                               StockStore stockStore,
+                               WebClient.Builder webClientBuilder,
+                               @Value("${inventory.low-stock.webhook-url:}") String webhookUrl,
+                               @Value("${inventory.low-stock.resync-interval:5m}") Duration resyncInterval,
+                               @Value("${inventory.stock.mode:database}") String stockMode) {
+        this.productRepository = productRepository;
+        this.stockStore = stockStore;
+        this.webhookClient = webhookUrl.isBlank() ? null : webClientBuilder.baseUrl(webhookUrl).build();
+        this.resyncInterval = resyncInterval;
+        this.memoryMode = "memory".equals(stockMode);
+    }
+
+    @PostConstruct
+    public void start() {
+        // El StockStore ya arrancó (es dependencia), así que en modo memoria la base tiene lo recuperado del journal
+        reload(false).block();
+        log.info("Lista de stock bajo: {} productos en o debajo de su punto de reorden", lowStock.size());
+
+        // En modo memoria todo movimiento pasa por esta instancia; no hay nada que resincronizar
+        if (!memoryMode) {
+            resync = Flux.interval(resyncInterval)
+                    .onBackpressureDrop()
+                    .concatMap(tick -> reload(true)
+                            .onErrorResume(e -> {
+                                log.error("Error al resincronizar la lista de stock bajo: {}", e.getMessage());
+                                return Mono.empty();
+                            }))
+                    .subscribe();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (resync != null) {
+            resync.dispose();
+        }
+    }
+
+    @Override
+    public void track(Product product) {
+        update(product.getHawa(), product, generation.incrementAndGet(), true);
+    }
+
+    @Override
+    public List<Product> getLowStockProducts() {
+        return ordered.stream()
+                .map(Entry::getProduct)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Flux<LowStockAlertDTO> streamAlerts() {
+        return alerts.asFlux();
+    }
+
+    private Mono<Void> reload(boolean notify) {
+        long readAt = generation.incrementAndGet();
+        return productRepository.findBelowReorderThreshold()
+                .map(stockStore::withCurrentStock)
+                .collectMap(Product::getHawa)
+                .doOnNext(rows -> {
+                    rows.forEach((hawa, product) -> update(hawa, product, readAt, notify));
+                    for (String hawa : new ArrayList<>(lowStock.keySet())) {
+                        if (!rows.containsKey(hawa)) {
+                            update(hawa, null, readAt, notify);
+                        }
+                    }
+                })
+                .then();
+    }
+
+    /**
+     * product: post-imagen, o null si la base dice que ya no está en stock bajo. version: generación
+     * en que se obtuvo; si el HAWA ya se actualizó con una posterior, se descarta.
+     */
+    private void update(String hawa, Product product, long version, boolean notify) {
+        Product low = product != null && isLow(product) ? product : null;
+        boolean[] crossed = {false};
+        lowStock.compute(hawa, (key, previous) -> {
+            if (touched.getOrDefault(key, 0L) > version) {
+                return previous;
+            }
+            touched.put(key, version);
+            Entry next = low != null ? new Entry(low) : null;
+            if (previous != null) {
+                ordered.remove(previous);
+            }
+            if (next != null) {
+                ordered.add(next);
+            }
+            crossed[0] = (previous == null) != (next == null);
+            return next;
+        });
+        if (crossed[0] && notify) {
+            alert(hawa, product, low != null);
+        }
+    }
+
+    private void alert(String hawa, Product product, boolean low) {
+        LowStockAlertDTO alert = LowStockAlertDTO.builder()
+                .hawa(hawa)
+                .stock(product != null ? product.getStock() : null)
+                .reorderThreshold(product != null ? product.getReorderThreshold() : null)
+                .lowStock(low)
+                .timestamp(LocalDateTime.now())
+                .build();
+        log.info("Producto {} {} su punto de reorden", hawa, low ? "llegó a" : "salió de");
+
+        // El sink no admite emisiones concurrentes
+        synchronized (alerts) {
+            alerts.tryEmitNext(alert);
+        }
+        if (webhookClient != null) {
+            webhookClient.post()
+                    .bodyValue(alert)
+                    .retrieve()
+                    .toBodilessEntity()
+                    .timeout(WEBHOOK_TIMEOUT)
+                    .doOnError(e -> log.warn("No se pudo notificar stock bajo de {} al webhook: {}", hawa, e.getMessage()))
+                    .onErrorResume(e -> Mono.empty())
+                    .subscribe();
+        }
+    }
+
+    private static boolean isLow(Product product) {
+        return Boolean.TRUE.equals(product.getAvailable())
+                && product.getStock() != null
+                && product.getStock() <= product.getReorderThreshold();
+    }
+
+    /**
+     * Copia inmutable para el orden: el déficit no puede cambiar mientras la entrada está en el conjunto.
+     */
+    private static final class Entry {
+        private final Product product;
+        private final int deficit;
+
+        private Entry(Product product) {
+            this.product = product;
+            this.deficit = product.getReorderThreshold() - product.getStock();
+        }
+
+        private Product getProduct() {
+            return product;
+        }
+
+        private String getHawa() {
+            return product.getHawa();
+        }
+
+        private int getDeficit() {
+            return deficit;
+        }
+    }
+}
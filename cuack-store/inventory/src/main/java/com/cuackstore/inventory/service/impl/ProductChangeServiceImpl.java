@@ -0,0 +1,212 @@
+package com.cuackstore.inventory.service.impl;
+
+import com.cuackstore.commons.dto.products.ProductChangeDTO;
+import com.cuackstore.commons.dto.products.ProductResponseDTO;
+import com.cuackstore.commons.enums.ProductChangeType;
+import com.cuackstore.inventory.service.ProductChangeService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Canal de cambios de catálogo: se difunde por SSE/NDJSON y se guardan los últimos eventos
+ * para que los clientes que hacen polling o reconectan puedan ponerse al día por número de secuencia.
+ *
+ * Cada suscriptor tiene un buffer acotado con un solo evento pendiente por HAWA: si no alcanza
+ * a leer, los cambios de un mismo producto se combinan en el más reciente, y si acumula más
+ * productos distintos que subscriber-buffer recibe un RESET y debe volver a cargar el catálogo.
+ */
+@Service
+@Slf4j
+public class ProductChangeServiceImpl implements ProductChangeService {
+
+    private final Deque<ProductChangeDTO> history = new ArrayDeque<>();
+    private final Set<ChangeSubscriber> subscribers = new LinkedHashSet<>();
+    private final int historySize;
+    private final int subscriberBuffer;
+    private long sequence;
+
+    public ProductChangeServiceImpl(@Value("${inventory.changes.history-size:1024}") int historySize,
+                                    @Value("${inventory.changes.subscriber-buffer:1024}") int subscriberBuffer) {
+        this.historySize = historySize;
+        this.subscriberBuffer = subscriberBuffer;
+    }
+
+    @Override
+    public void publish(ProductChangeType type, ProductResponseDTO product) {
+        ProductChangeDTO.ProductChangeDTOBuilder builder = ProductChangeDTO.builder()
+                .hawa(product.getHawa())
+                .type(type);
+        switch (type) {
+            case STOCK:
+                builder.stock(product.getStock());
+                break;
+            case AVAILABILITY:
+                builder.available(product.getAvailable());
+                break;
+            default:
+                builder.stock(product.getStock())
+                        .available(product.getAvailable())
+                        .finalPrice(product.getFinalPrice());
+        }
+
+        ProductChangeDTO change;
+        synchronized (history) {
+            change = builder.sequence(++sequence)
+                    .timestamp(LocalDateTime.now())
+                    .build();
+            history.addLast(change);
+            if (history.size() > historySize) {
+                history.removeFirst();
+            }
+            // Se entrega dentro del bloqueo para que los suscriptores reciban las secuencias en orden;
+            // sin suscriptores el evento solo queda en el historial
+            for (ChangeSubscriber subscriber : subscribers) {
+                subscriber.offer(change);
+            }
+        }
+        log.debug("Cambio de producto publicado: {} {} (#{})", change.getHawa(), type, change.getSequence());
+    }
+
+    @Override
+    public Flux<ProductChangeDTO> streamChanges(Long after) {
+        return Flux.create(sink -> {
+            ChangeSubscriber subscriber = new ChangeSubscriber(sink, subscriberBuffer);
+            // Historial y registro bajo el mismo bloqueo: no se pierde ni se repite ningún evento
+            synchronized (history) {
+                if (after != null) {
+                    changesAfter(after).forEach(subscriber::offer);
+                }
+                subscribers.add(subscriber);
+            }
+            sink.onRequest(requested -> subscriber.drain());
+            sink.onDispose(() -> {
+                synchronized (history) {
+                    subscribers.remove(subscriber);
+                }
+            });
+        });
+    }
+
+    @Override
+    public List<ProductChangeDTO> getChangesAfter(long after) {
+        synchronized (history) {
+            return changesAfter(after);
+        }
+    }
+
+    private List<ProductChangeDTO> changesAfter(long after) {
+        ProductChangeDTO oldest = history.peekFirst();
+        // El cliente se quedó atrás del historial (o el servicio se reinició): debe descartar todo
+        if (after > sequence || (oldest != null && after < oldest.getSequence() - 1)) {
+            return List.of(reset(sequence));
+        }
+        List<ProductChangeDTO> changes = new ArrayList<>();
+        for (ProductChangeDTO change : history) {
+            if (change.getSequence() > after) {
+                changes.add(change);
+            }
+        }
+        return changes;
+    }
+
+    private static ProductChangeDTO reset(long sequence) {
+        return ProductChangeDTO.builder()
+                .sequence(sequence)
+                .type(ProductChangeType.RESET)
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+
+    /**
+     * Eventos pendientes de un suscriptor, uno por HAWA en orden de secuencia. Solo se emite
+     * lo que el suscriptor pidió, así que un cliente lento no acumula más que el buffer.
+     */
+    private static final class ChangeSubscriber {
+
+        private final FluxSink<ProductChangeDTO> sink;
+        private final int maxPending;
+        // La llave null es el RESET pendiente
+        private final Map<String, ProductChangeDTO> pending = new LinkedHashMap<>();
+        private boolean draining;
+
+        private ChangeSubscriber(FluxSink<ProductChangeDTO> sink, int maxPending) {
+            this.sink = sink;
+            this.maxPending = maxPending;
+        }
+
+        synchronized void offer(ProductChangeDTO change) {
+            if (change.getType() == ProductChangeType.RESET) {
+                pending.clear();
+                pending.put(null, change);
+            } else {
+                // Se quita y se vuelve a poner para que la entrada quede al final, con la secuencia más reciente
+                ProductChangeDTO previous = pending.remove(change.getHawa());
+                pending.put(change.getHawa(), previous != null ? merge(previous, change) : change);
+                if (pending.size() > maxPending) {
+                    log.warn("Suscriptor de cambios rebasó {} productos pendientes, se le envía RESET", maxPending);
+                    pending.clear();
+                    pending.put(null, reset(change.getSequence()));
+                }
+            }
+            drain();
+        }
+
+        synchronized void drain() {
+            // sink.next puede volver a entrar por onRequest en el mismo hilo; el ciclo de afuera sigue
+            if (draining) {
+                return;
+            }
+            draining = true;
+            try {
+                while (!pending.isEmpty() && sink.requestedFromDownstream() > 0) {
+                    Iterator<ProductChangeDTO> iterator = pending.values().iterator();
+                    ProductChangeDTO next = iterator.next();
+                    iterator.remove();
+                    sink.next(next);
+                }
+            } finally {
+                draining = false;
+            }
+        }
+
+        private static ProductChangeDTO merge(ProductChangeDTO older, ProductChangeDTO newer) {
+            return ProductChangeDTO.builder()
+                    .sequence(newer.getSequence())
+                    .hawa(newer.getHawa())
+                    .type(dominant(older.getType(), newer.getType()))
+                    .stock(newer.getStock() != null ? newer.getStock() : older.getStock())
+                    .available(newer.getAvailable() != null ? newer.getAvailable() : older.getAvailable())
+                    .finalPrice(newer.getFinalPrice() != null ? newer.getFinalPrice() : older.getFinalPrice())
+                    .timestamp(newer.getTimestamp())
+                    .build();
+        }
+
+        // Un CREATED combinado sigue siendo CREATED; datos de catálogo pesan más que disponibilidad y esta más que stock
+        private static ProductChangeType dominant(ProductChangeType older, ProductChangeType newer) {
+            if (older == ProductChangeType.CREATED || newer == ProductChangeType.CREATED) {
+                return ProductChangeType.CREATED;
+            }
+            if (older == ProductChangeType.UPDATED || newer == ProductChangeType.UPDATED) {
+                return ProductChangeType.UPDATED;
+            }
+            if (older == ProductChangeType.AVAILABILITY || newer == ProductChangeType.AVAILABILITY) {
+                return ProductChangeType.AVAILABILITY;
+            }
+            return ProductChangeType.STOCK;
+        }
+    }
+}
@@ -2,24 +2,56 @@ package com.cuackstore.inventory.service.impl;
 
 import com.cuackstore.commons.dto.JwtStructure;
 import com.cuackstore.commons.dto.products.ProductCreateDTO;
+import com.cuackstore.commons.dto.products.ProductImportBatchDTO;
+import com.cuackstore.commons.dto.products.ProductImportErrorDTO;
+import com.cuackstore.commons.dto.products.ProductPageDTO;
 import com.cuackstore.commons.dto.products.ProductResponseDTO;
 import com.cuackstore.commons.dto.stock.AvailabilityResponseDTO;
 import com.cuackstore.commons.dto.stock.StockOperationDTO;
+import com.cuackstore.commons.dto.stock.StockReservationDTO;
+import com.cuackstore.commons.dto.stock.StockReservationItemDTO;
 import com.cuackstore.commons.dto.stock.StockUpdateDTO;
+import com.cuackstore.commons.enums.ProductChangeType;
 import com.cuackstore.commons.exceptions.ServicesException;
 import com.cuackstore.commons.utils.JwtUtils;
+import com.cuackstore.inventory.cache.ProductCatalogCache;
 import com.cuackstore.inventory.entity.Product;
+import com.cuackstore.inventory.importer.ProductImportRow;
 import com.cuackstore.inventory.repository.ProductRepository;
+import com.cuackstore.inventory.service.LowStockService;
+import com.cuackstore.inventory.service.ProductChangeService;
 import com.cuackstore.inventory.service.ProductService;
+import com.cuackstore.inventory.service.StockReleaseService;
+import com.cuackstore.inventory.service.StockStore;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.reactive.TransactionSynchronization;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -27,21 +59,41 @@ import java.time.LocalDateTime;
 @Transactional
 public class ProductServiceImpl implements ProductService {
 
+    // Filas por consulta al recorrer el catálogo en streaming; la siguiente página se consulta
+    // solo cuando el cliente consumió la anterior
+    private static final int STREAM_PAGE_SIZE = 500;
+    private static final int DEFAULT_REORDER_THRESHOLD = 5;
+    // Productos de un lote importado que ajustan stock o publican su cambio a la vez
+    private static final int IMPORT_CONCURRENCY = 8;
+
     private final ProductRepository productRepository;
     private final JwtUtils jwtUtils;
+    private final ProductChangeService productChangeService;
+    private final StockStore stockStore;
+    private final ProductCatalogCache productCatalogCache;
+    private final LowStockService lowStockService;
+    private final StockReleaseService stockReleaseService;
+    private final ObjectMapper objectMapper;
 
     @Override
     public Flux<ProductResponseDTO> getAllProducts() {
         log.info("Obteniendo todos los productos");
         return productRepository.findAll()
+                .map(stockStore::withCurrentStock)
                 .map(this::mapToResponseDTO)
                 .doOnNext(product -> log.debug("Producto obtenido: {}", product.getHawa()));
     }
 
+    @Override
+    public Mono<String> getCatalogVersion() {
+        return productRepository.findCatalogVersion();
+    }
+
     @Override
     public Mono<ProductResponseDTO> getProductByHawa(String hawa) {
         log.info("Buscando producto con HAWA: {}", hawa);
-        return productRepository.findByHawa(hawa)
+        return productCatalogCache.get(hawa)
+                .map(stockStore::withCurrentStock)
                 .map(this::mapToResponseDTO)
                 .doOnNext(product -> log.info("Producto encontrado: {}", product.getHawa()))
                 .switchIfEmpty(Mono.error(new ServicesException("Producto no encontrado con HAWA: " + hawa, HttpStatus.NOT_FOUND)));
@@ -50,7 +102,8 @@ public class ProductServiceImpl implements ProductService {
     @Override
     public Mono<AvailabilityResponseDTO> checkAvailability(String hawa) {
         log.info("Verificando disponibilidad para HAWA: {}", hawa);
-        return productRepository.findByHawa(hawa)
+        return productCatalogCache.get(hawa)
+                .map(stockStore::withCurrentStock)
                 .map(product -> {
                     if (!product.getAvailable()) {
                         return AvailabilityResponseDTO.unavailable(hawa, "Producto deshabilitado");
@@ -68,6 +121,8 @@ public class ProductServiceImpl implements ProductService {
     public Flux<ProductResponseDTO> getAvailableProducts() {
         log.info("Obteniendo productos disponibles");
         return productRepository.findAvailableProducts()
+                .map(stockStore::withCurrentStock)
+                .filter(Product::hasStock)
                 .map(this::mapToResponseDTO);
     }
 
@@ -87,32 +142,40 @@ public class ProductServiceImpl implements ProductService {
                             .name(createDTO.getName())
                             .description(createDTO.getDescription())
                             .listPrice(createDTO.getListPrice())
-                            .discount(createDTO.getDiscount() != null ? createDTO.getDiscount() : java.math.BigDecimal.ZERO)
+                            .discount(createDTO.getDiscount() != null ? createDTO.getDiscount() : BigDecimal.ZERO)
                             .stock(createDTO.getStock())
                             .available(createDTO.getAvailable() != null ? createDTO.getAvailable() : true)
+                            .reorderThreshold(createDTO.getReorderThreshold() != null ? createDTO.getReorderThreshold() : DEFAULT_REORDER_THRESHOLD)
                             .createdAt(LocalDateTime.now())
                             .createdBy(jwtStructure.getEmail())
                             .build();
 
                     return productRepository.save(product);
                 })
-                .map(this::mapToResponseDTO)
+                .doOnNext(stockStore::register)
+                .flatMap(product -> productCatalogCache.evict(product.getHawa()).thenReturn(product))
+                .flatMap(product -> notifyChange(product, ProductChangeType.CREATED))
                 .doOnNext(product -> log.info("Producto creado exitosamente: {}", product.getHawa()));
     }
 
+    // Sin transacción: cada lote se confirma por su cuenta y un lote con error no deshace los anteriores
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Flux<ProductImportBatchDTO> importProducts(String token, Flux<List<ProductImportRow>> batches) {
+        return Mono.fromSupplier(() -> jwtUtils.getJwtStructure(token).getEmail())
+                .doOnNext(createdBy -> log.info("Importando productos (usuario: {})", createdBy))
+                // Prefetch 1: el siguiente lote no se lee del cuerpo mientras el actual está en la base
+                .flatMapMany(createdBy -> batches.index()
+                        .concatMap(batch -> importBatch(batch.getT1().intValue() + 1, batch.getT2(), createdBy), 1));
+    }
+
     @Override
     public Mono<ProductResponseDTO> updateStock(String hawa, StockUpdateDTO stockUpdateDTO) {
         log.info("Actualizando stock para HAWA: {} a {}", hawa, stockUpdateDTO.getStock());
 
-        return productRepository.updateStockByHawa(hawa, stockUpdateDTO.getStock())
-                .switchIfEmpty(Mono.error(new ServicesException("Producto no encontrado con HAWA: " + hawa, HttpStatus.NOT_FOUND)))
-                .flatMap(rowsUpdated -> {
-                    if (rowsUpdated == 0) {
-                        return Mono.error(new ServicesException("Producto no encontrado con HAWA: " + hawa, HttpStatus.NOT_FOUND));
-                    }
-                    return productRepository.findByHawa(hawa);
-                })
-                .map(this::mapToResponseDTO)
+        return stockStore.setStock(hawa, stockUpdateDTO.getStock())
+                .flatMap(product -> productCatalogCache.evict(hawa).thenReturn(product))
+                .flatMap(product -> notifyChange(product, ProductChangeType.STOCK))
                 .doOnNext(product -> log.info("Stock actualizado para {}: {}", hawa, product.getStock()));
     }
 
@@ -120,11 +183,9 @@ public class ProductServiceImpl implements ProductService {
     public Mono<ProductResponseDTO> incrementStock(String hawa, StockOperationDTO operationDTO) {
         log.info("Incrementando stock para HAWA: {} en {}", hawa, operationDTO.getQuantity());
 
-        return productRepository.incrementStock(hawa, operationDTO.getQuantity())
-                .flatMap(rowsUpdated -> {
-                    return productRepository.findByHawa(hawa);
-                })
-                .map(this::mapToResponseDTO)
+        return stockStore.increment(hawa, operationDTO.getQuantity())
+                .flatMap(product -> productCatalogCache.evict(hawa).thenReturn(product))
+                .flatMap(product -> notifyChange(product, ProductChangeType.STOCK))
                 .doOnNext(product -> log.info("Stock incrementado para {}: {}", hawa, product.getStock()));
     }
 
@@ -132,46 +193,368 @@ public class ProductServiceImpl implements ProductService {
     public Mono<ProductResponseDTO> decrementStock(String hawa, StockOperationDTO operationDTO) {
         log.info("Decrementando stock para HAWA: {} en {}", hawa, operationDTO.getQuantity());
 
-        return productRepository.decrementStock(hawa, operationDTO.getQuantity())
-                .flatMap(rowsUpdated -> {
-                    if (rowsUpdated == 0) {
-                        return productRepository.findByHawa(hawa)
-                                .flatMap(product -> {
-                                    if (product.getStock() < operationDTO.getQuantity()) {
-                                        return Mono.error(new ServicesException("Stock insuficiente. Stock actual: " + product.getStock(), HttpStatus.CONFLICT));
-                                    }
-                                    return Mono.error(new ServicesException("Producto no encontrado con HAWA: " + hawa, HttpStatus.NOT_FOUND));
-                                });
+        return stockStore.decrement(hawa, operationDTO.getQuantity())
+                .flatMap(product -> productCatalogCache.evict(hawa).thenReturn(product))
+                .flatMap(product -> notifyChange(product, ProductChangeType.STOCK))
+                .doOnNext(product -> log.info("Stock decrementado para {}: {}", hawa, product.getStock()));
+    }
+
+    @Override
+    public Mono<List<ProductResponseDTO>> reserveStock(StockReservationDTO reservationDTO) {
+        Map<String, Integer> quantities = mergeQuantities(reservationDTO);
+        log.info("Reservando stock para {} productos", quantities.size());
+
+        return stockStore.reserve(quantities)
+                .flatMap(reserved -> productCatalogCache.evict(quantities.keySet()).thenReturn(reserved))
+                .flatMap(reserved -> {
+                    // La reservación es de todo o nada: si algún producto no alcanzó, se revierte la transacción
+                    // (en modo memoria el StockStore ya devolvió lo tomado)
+                    if (reserved.size() != quantities.size()) {
+                        String rejected = missingHawas(quantities, reserved);
+                        return Mono.error(new ServicesException("Stock insuficiente o producto no disponible: " + rejected, HttpStatus.CONFLICT));
                     }
-                    return productRepository.findByHawa(hawa);
+                    return notifyStockChanges(reserved);
                 })
-                .map(this::mapToResponseDTO)
-                .doOnNext(product -> log.info("Stock decrementado para {}: {}", hawa, product.getStock()));
+                .doOnNext(products -> log.info("Stock reservado para {} productos", products.size()));
+    }
+
+    @Override
+    public Mono<List<ProductResponseDTO>> releaseStock(StockReservationDTO reservationDTO) {
+        Set<String> releaseIds = reservationDTO.getItems().stream()
+                .map(StockReservationItemDTO::getReleaseId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        if (releaseIds.isEmpty()) {
+            return release(mergeQuantities(reservationDTO.getItems()));
+        }
+
+        // Los items de un releaseId ya aplicado se descartan: el reintento no vuelve a sumar su stock
+        return stockReleaseService.recordNew(releaseIds)
+                .flatMap(recorded -> {
+                    if (recorded.size() < releaseIds.size()) {
+                        log.info("Devoluciones de stock ya aplicadas, se ignoran: {}", releaseIds.stream()
+                                .filter(releaseId -> !recorded.contains(releaseId))
+                                .collect(Collectors.joining(", ")));
+                    }
+                    List<StockReservationItemDTO> pending = reservationDTO.getItems().stream()
+                            .filter(item -> item.getReleaseId() == null || recorded.contains(item.getReleaseId()))
+                            .collect(Collectors.toList());
+                    return pending.isEmpty()
+                            ? Mono.just(Collections.<ProductResponseDTO>emptyList())
+                            : release(mergeQuantities(pending));
+                });
+    }
+
+    private Mono<List<ProductResponseDTO>> release(Map<String, Integer> quantities) {
+        log.info("Liberando stock para {} productos", quantities.size());
+
+        return stockStore.release(quantities)
+                .flatMap(released -> productCatalogCache.evict(quantities.keySet()).thenReturn(released))
+                .doOnNext(released -> {
+                    if (released.size() != quantities.size()) {
+                        log.warn("No se encontraron productos para liberar stock: {}", missingHawas(quantities, released));
+                    }
+                })
+                .flatMap(this::notifyStockChanges)
+                .doOnNext(products -> log.info("Stock liberado para {} productos", products.size()));
     }
 
     @Override
     public Flux<ProductResponseDTO> getProductsWithLowStock(Integer threshold) {
         log.info("Obteniendo productos con stock bajo (threshold: {})", threshold);
+        if (threshold == null) {
+            // Punto de reorden de cada producto: sale de la lista en memoria, sin consultar products
+            return Flux.fromIterable(lowStockService.getLowStockProducts())
+                    .map(stockStore::withCurrentStock)
+                    .filter(product -> product.getStock() <= product.getReorderThreshold())
+                    .map(this::mapToResponseDTO);
+        }
         return productRepository.findProductsWithLowStock(threshold)
+                .map(stockStore::withCurrentStock)
                 .map(this::mapToResponseDTO);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Mono<ProductPageDTO> getProductsPage(Long after, int size) {
+        log.info("Obteniendo página de productos después de id {} (tamaño {})", after, size);
+        return page(productRepository::findPageAfter, after, size);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Mono<ProductPageDTO> getAvailableProductsPage(Long after, int size) {
+        log.info("Obteniendo página de productos disponibles después de id {} (tamaño {})", after, size);
+        return page(productRepository::findAvailablePageAfter, after, size);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Mono<ProductPageDTO> getProductsWithLowStockPage(Integer threshold, Long after, int size) {
+        log.info("Obteniendo página de productos con stock bajo (threshold: {}) después de id {}", threshold, after);
+        return page((afterId, limit) -> productRepository.findLowStockPageAfter(threshold, afterId, limit), after, size);
+    }
+
+    // Sin transacción: cada página toma y devuelve su conexión, un cliente lento no retiene ninguna
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Flux<ProductResponseDTO> streamProducts() {
+        log.info("Transmitiendo catálogo de productos");
+        return stream(productRepository::findPageAfter);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Flux<ProductResponseDTO> streamAvailableProducts() {
+        log.info("Transmitiendo productos disponibles");
+        return stream(productRepository::findAvailablePageAfter);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Flux<ProductResponseDTO> streamProductsWithLowStock(Integer threshold) {
+        log.info("Transmitiendo productos con stock bajo (threshold: {})", threshold);
+        return stream((afterId, limit) -> productRepository.findLowStockPageAfter(threshold, afterId, limit));
+    }
+
     @Override
     public Mono<ProductResponseDTO> updateAvailability(String hawa, Boolean available) {
         log.info("Actualizando disponibilidad para HAWA: {} a {}", hawa, available);
 
-        return productRepository.updateAvailabilityByHawa(hawa, available)
-                .switchIfEmpty(Mono.error(new ServicesException("Producto no encontrado con HAWA: " + hawa, HttpStatus.NOT_FOUND)))
-                .flatMap(rowsUpdated -> {
-                    if (rowsUpdated == 0) {
-                        return Mono.error(new ServicesException("Producto no encontrado con HAWA: " + hawa, HttpStatus.NOT_FOUND));
-                    }
-                    return productRepository.findByHawa(hawa);
-                })
-                .map(this::mapToResponseDTO)
+        return stockStore.setAvailability(hawa, available)
+                .flatMap(product -> productCatalogCache.evict(hawa).thenReturn(product))
+                .flatMap(product -> notifyChange(product, ProductChangeType.AVAILABILITY))
                 .doOnNext(product -> log.info("Disponibilidad actualizada para {}: {}", hawa, product.getAvailable()));
     }
 
+    @Override
+    public Mono<ProductResponseDTO> updateReorderThreshold(String hawa, Integer threshold) {
+        log.info("Actualizando punto de reorden para HAWA: {} a {}", hawa, threshold);
+
+        return stockStore.setReorderThreshold(hawa, threshold)
+                .flatMap(product -> productCatalogCache.evict(hawa).thenReturn(product))
+                .flatMap(product -> notifyChange(product, null))
+                .doOnNext(product -> log.info("Punto de reorden actualizado para {}: {}", hawa, product.getReorderThreshold()));
+    }
+
+    @Override
+    public Mono<ProductResponseDTO> configureStockBuckets(String hawa, Integer buckets) {
+        log.info("Configurando cubetas de stock para HAWA: {} a {}", hawa, buckets);
+
+        return stockStore.configureBuckets(hawa, buckets)
+                .flatMap(product -> productCatalogCache.evict(hawa).thenReturn(product))
+                .flatMap(product -> notifyChange(product, null))
+                .doOnNext(product -> log.info("Stock de {} repartido en {} cubetas ({} unidades)",
+                        hawa, product.getStockBuckets(), product.getStock()));
+    }
+
+    private Mono<ProductImportBatchDTO> importBatch(int batch, List<ProductImportRow> rows, String createdBy) {
+        List<ProductImportErrorDTO> errors = Collections.synchronizedList(new ArrayList<>());
+        // MERGE no admite llaves repetidas: un HAWA repetido en el lote se queda con su última línea
+        Map<String, ProductImportRow> valid = new LinkedHashMap<>();
+        for (ProductImportRow row : rows) {
+            if (!row.isValid()) {
+                errors.add(importError(row.getLine(), row.getHawa(), row.getError()));
+                continue;
+            }
+            ProductImportRow replaced = valid.remove(row.getHawa());
+            if (replaced != null) {
+                errors.add(importError(replaced.getLine(), replaced.getHawa(),
+                        "HAWA repetido en el lote, se aplicó la línea " + row.getLine()));
+            }
+            valid.put(row.getHawa(), row);
+        }
+
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger updated = new AtomicInteger();
+        Mono<Void> upsert = valid.isEmpty() ? Mono.empty() : Flux.defer(() -> productRepository.mergeProducts(toImportItems(valid.values()), createdBy))
+                .flatMap(merged -> {
+                    ProductImportRow row = valid.get(merged.getHawa());
+                    return applyImported(merged, row.getProduct().getStock())
+                            .doOnNext(isNew -> (isNew ? created : updated).incrementAndGet())
+                            .onErrorResume(e -> {
+                                errors.add(importError(row.getLine(), row.getHawa(), e.getMessage()));
+                                return Mono.empty();
+                            });
+                }, IMPORT_CONCURRENCY)
+                .then(productCatalogCache.evict(valid.keySet()))
+                .onErrorResume(e -> {
+                    log.error("Error al guardar el lote {} de la importación: {}", batch, e.getMessage());
+                    valid.values().forEach(row -> errors.add(importError(row.getLine(), row.getHawa(),
+                            "Error al guardar el lote: " + e.getMessage())));
+                    return Mono.empty();
+                });
+
+        return upsert.then(Mono.fromSupplier(() -> {
+                    List<ProductImportErrorDTO> batchErrors = new ArrayList<>(errors);
+                    batchErrors.sort(Comparator.comparingLong(ProductImportErrorDTO::getLine));
+                    return ProductImportBatchDTO.builder()
+                            .batch(batch)
+                            .firstLine(rows.get(0).getLine())
+                            .lastLine(rows.get(rows.size() - 1).getLine())
+                            .created(created.get())
+                            .updated(updated.get())
+                            .failed(batchErrors.size())
+                            .errors(batchErrors)
+                            .build();
+                }))
+                .doOnNext(result -> log.info("Lote {} importado: {} altas, {} actualizados, {} con error",
+                        batch, result.getCreated(), result.getUpdated(), result.getFailed()));
+    }
+
+    /**
+     * Lo mismo que un alta o cambio individual: StockStore, lista de stock bajo y canal de cambios.
+     * Emite true si el producto es nuevo.
+     */
+    private Mono<Boolean> applyImported(Product merged, Integer stock) {
+        boolean isNew = merged.getUpdatedAt() == null;
+        stockStore.register(merged);
+
+        Mono<Product> current;
+        if (isNew) {
+            current = Mono.just(merged);
+        } else {
+            Product withStock = stockStore.withCurrentStock(merged);
+            // Con cubetas la fila no trae el total, así que ahí el stock siempre se fija con el StockStore
+            current = merged.getStockBuckets() <= 1 && stock.equals(withStock.getStock())
+                    ? Mono.just(withStock)
+                    : stockStore.setStock(merged.getHawa(), stock);
+        }
+        return current
+                .flatMap(product -> notifyChange(product, isNew ? ProductChangeType.CREATED : ProductChangeType.UPDATED))
+                .thenReturn(isNew);
+    }
+
+    /**
+     * Lista de stock bajo (y su alerta o webhook) y canal de cambios con la post-imagen, una vez
+     * confirmada la transacción. type null: el cambio no se publica (punto de reorden, cubetas).
+     */
+    private Mono<ProductResponseDTO> notifyChange(Product product, ProductChangeType type) {
+        ProductResponseDTO response = mapToResponseDTO(product);
+        return afterCommit(() -> {
+            lowStockService.track(product);
+            if (type != null) {
+                productChangeService.publish(type, response);
+            }
+        }).thenReturn(response);
+    }
+
+    private Mono<List<ProductResponseDTO>> notifyStockChanges(List<Product> products) {
+        List<ProductResponseDTO> responses = products.stream()
+                .map(this::mapToResponseDTO)
+                .collect(Collectors.toList());
+        return afterCommit(() -> {
+            products.forEach(lowStockService::track);
+            responses.forEach(response -> productChangeService.publish(ProductChangeType.STOCK, response));
+        }).thenReturn(responses);
+    }
+
+    /**
+     * Ejecuta la acción al confirmarse la transacción en curso, o en el acto si no hay una real
+     * (la importación confirma cada MERGE por su cuenta): un rollback no debe dejar avisos de
+     * cambios que nunca ocurrieron. Un fallo de la acción no cambia la respuesta, el commit ya pasó.
+     */
+    private Mono<Void> afterCommit(Runnable action) {
+        Mono<Void> run = Mono.<Void>fromRunnable(action)
+                .onErrorResume(e -> {
+                    log.error("Error en tarea posterior al commit: {}", e.getMessage(), e);
+                    return Mono.empty();
+                });
+        return TransactionSynchronizationManager.forCurrentTransaction()
+                .filter(synchronizationManager -> synchronizationManager.isSynchronizationActive()
+                        && synchronizationManager.isActualTransactionActive())
+                .doOnNext(synchronizationManager -> synchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public Mono<Void> afterCommit() {
+                        return run;
+                    }
+                }))
+                .onErrorResume(NoTransactionException.class, e -> Mono.empty())
+                .hasElement()
+                .flatMap(registered -> registered ? Mono.<Void>empty() : run);
+    }
+
+    private String toImportItems(Collection<ProductImportRow> rows) {
+        List<ProductCreateDTO> items = rows.stream()
+                .map(ProductImportRow::getProduct)
+                .map(product -> ProductCreateDTO.builder()
+                        .hawa(product.getHawa())
+                        .name(product.getName())
+                        .description(product.getDescription())
+                        .listPrice(product.getListPrice())
+                        .discount(product.getDiscount() != null ? product.getDiscount() : BigDecimal.ZERO)
+                        .stock(product.getStock())
+                        .available(product.getAvailable() != null ? product.getAvailable() : true)
+                        .reorderThreshold(product.getReorderThreshold() != null ? product.getReorderThreshold() : DEFAULT_REORDER_THRESHOLD)
+                        .build())
+                .collect(Collectors.toList());
+        try {
+            return objectMapper.writeValueAsString(items);
+        } catch (JsonProcessingException e) {
+            throw new ServicesException("No se pudo preparar el lote de importación", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    private ProductImportErrorDTO importError(long line, String hawa, String message) {
+        return ProductImportErrorDTO.builder()
+                .line(line)
+                .hawa(hawa)
+                .message(message)
+                .build();
+    }
+
+    // Se pide una fila de más para saber si hay siguiente página sin un COUNT
+    private Mono<ProductPageDTO> page(BiFunction<Long, Integer, Flux<Product>> query, Long after, int size) {
+        return query.apply(after, size + 1)
+                .collectList()
+                .map(rows -> {
+                    boolean hasNext = rows.size() > size;
+                    List<Product> pageRows = hasNext ? rows.subList(0, size) : rows;
+                    List<ProductResponseDTO> content = pageRows.stream()
+                            .map(stockStore::withCurrentStock)
+                            .map(this::mapToResponseDTO)
+                            .collect(Collectors.toList());
+                    return ProductPageDTO.builder()
+                            .content(content)
+                            .size(content.size())
+                            .hasNext(hasNext)
+                            .nextCursor(hasNext ? pageRows.get(pageRows.size() - 1).getId() : null)
+                            .build();
+                });
+    }
+
+    // Páginas por llave encadenadas con expand; concatMapIterable con prefetch 1 no pide otra
+    // página hasta vaciar la actual, así que la memoria queda acotada a una o dos páginas
+    private Flux<ProductResponseDTO> stream(BiFunction<Long, Integer, Flux<Product>> query) {
+        return query.apply(0L, STREAM_PAGE_SIZE)
+                .collectList()
+                .expand(rows -> rows.size() < STREAM_PAGE_SIZE
+                        ? Mono.empty()
+                        : query.apply(rows.get(rows.size() - 1).getId(), STREAM_PAGE_SIZE).collectList())
+                .concatMapIterable(rows -> rows, 1)
+                .map(stockStore::withCurrentStock)
+                .map(this::mapToResponseDTO);
+    }
+
+    private Map<String, Integer> mergeQuantities(StockReservationDTO reservationDTO) {
+        return mergeQuantities(reservationDTO.getItems());
+    }
+
+    private Map<String, Integer> mergeQuantities(List<StockReservationItemDTO> items) {
+        return items.stream()
+                .collect(Collectors.toMap(StockReservationItemDTO::getHawa, StockReservationItemDTO::getQuantity,
+                        Integer::sum, LinkedHashMap::new));
+    }
+
+    private String missingHawas(Map<String, Integer> quantities, List<Product> products) {
+        Set<String> found = products.stream()
+                .map(Product::getHawa)
+                .collect(Collectors.toSet());
+        return quantities.keySet().stream()
+                .filter(hawa -> !found.contains(hawa))
+                .collect(Collectors.joining(", "));
+    }
+
     private ProductResponseDTO mapToResponseDTO(Product product) {
         return ProductResponseDTO.builder()
                 .id(product.getId())
@@ -182,6 +565,8 @@ public class ProductServiceImpl implements ProductService {
                 .discount(product.getDiscount())
                 .finalPrice(product.getFinalPrice())
                 .stock(product.getStock())
+                .stockBuckets(product.getStockBuckets())
+                .reorderThreshold(product.getReorderThreshold())
                 .available(product.getAvailable())
                 .createdAt(product.getCreatedAt())
                 .updatedAt(product.getUpdatedAt())
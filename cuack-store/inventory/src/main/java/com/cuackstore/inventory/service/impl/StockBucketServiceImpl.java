@@ -0,0 +1,157 @@
+package com.cuackstore.inventory.service.impl;
+
+import com.cuackstore.commons.exceptions.ServicesException;
+import com.cuackstore.inventory.entity.Product;
+import com.cuackstore.inventory.repository.ProductRepository;
+import com.cuackstore.inventory.repository.ProductStockBucketRepository;
+import com.cuackstore.inventory.service.StockBucketService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Stock repartido en cubetas para los HAWA calientes (products.stock_buckets > 1). Cada descuento
+ * empieza en una cubeta al azar y salta las bloqueadas; si ninguna alcanza sola, descuenta a
+ * través de todas. Los demás productos no pasan por aquí.
+ *
+ * El número de cubetas por HAWA se guarda en memoria y se refresca en cada ciclo de mantenimiento,
+ * que además rebalancea las cubetas desiguales. Una instancia con la configuración vieja nunca
+ * sobrevende: a lo sumo rechaza reservaciones hasta el siguiente refresco.
+ */
+@Service
+@ConditionalOnProperty(name = "inventory.stock.mode", havingValue = "database", matchIfMissing = true)
+@Slf4j
+public class StockBucketServiceImpl implements StockBucketService {
+
+    private final ProductRepository productRepository;
+    private final ProductStockBucketRepository bucketRepository;
+    private final TransactionalOperator transactionalOperator;
+    private final Duration maintenanceInterval;
+
+    private volatile Map<String, Integer> bucketCounts = Map.of();
+    private Disposable maintenance;
+
+    public StockBucketServiceImpl(ProductRepository productRepository,
+                                  ProductStockBucketRepository bucketRepository,
+                                  TransactionalOperator transactionalOperator,
+                                  @Value("${inventory.stock.buckets.maintenance-interval:30s}") Duration maintenanceInterval) {
+        this.productRepository = productRepository;
+        this.bucketRepository = bucketRepository;
+        this.transactionalOperator = transactionalOperator;
+        this.maintenanceInterval = maintenanceInterval;
+    }
+
+    @PostConstruct
+    public void start() {
+        refresh().block();
+        maintenance = Flux.interval(maintenanceInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> maintain()
+                        .onErrorResume(e -> {
+                            log.error("Error en el mantenimiento de cubetas de stock: {}", e.getMessage());
+                            return Mono.empty();
+                        }))
+                .subscribe();
+        log.info("Cubetas de stock: {} productos con stock repartido", bucketCounts.size());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (maintenance != null) {
+            maintenance.dispose();
+        }
+    }
+
+    @Override
+    public int bucketsFor(String hawa) {
+        return bucketCounts.getOrDefault(hawa, 1);
+    }
+
+    @Override
+    public Mono<Boolean> take(String hawa, int quantity) {
+        int buckets = bucketsFor(hawa);
+        int offset = ThreadLocalRandom.current().nextInt(buckets);
+        return bucketRepository.takeFromOneBucket(hawa, quantity, offset, buckets)
+                .flatMap(rows -> rows > 0
+                        ? Mono.just(true)
+                        : bucketRepository.takeAcrossBuckets(hawa, quantity).map(across -> across > 0));
+    }
+
+    @Override
+    public Mono<Void> add(String hawa, int quantity) {
+        int bucket = ThreadLocalRandom.current().nextInt(bucketsFor(hawa));
+        return bucketRepository.addToBucket(hawa, bucket, quantity)
+                .flatMap(rows -> {
+                    if (rows > 0) {
+                        return Mono.empty();
+                    }
+                    // El producto ya no tiene cubetas (configuración vieja en esta instancia)
+                    return productRepository.incrementStock(hawa, quantity).then(refresh());
+                })
+                .then();
+    }
+
+    @Override
+    public Mono<Integer> setTotal(String hawa, int stock) {
+        return bucketRepository.setTotal(hawa, stock);
+    }
+
+    @Override
+    public Mono<Void> configure(String hawa, int buckets) {
+        log.info("Configurando {} cubetas de stock para HAWA: {}", buckets, hawa);
+
+        Mono<Void> steps = bucketRepository.consolidate(hawa, buckets)
+                .flatMap(rows -> rows == 0
+                        ? Mono.error(new ServicesException("Producto no encontrado con HAWA: " + hawa, HttpStatus.NOT_FOUND))
+                        : bucketRepository.deleteByHawa(hawa))
+                .flatMap(deleted -> buckets > 1
+                        ? bucketRepository.createBuckets(hawa).then(bucketRepository.clearProductStock(hawa))
+                        : Mono.just(0))
+                .then();
+
+        return transactionalOperator.transactional(steps)
+                .then(refresh());
+    }
+
+    private Mono<Void> maintain() {
+        return refresh()
+                .then(transactionalOperator.transactional(moveStrayStock()))
+                .thenMany(Flux.fromIterable(bucketCounts.keySet()))
+                .concatMap(bucketRepository::rebalance)
+                .reduce(0, Integer::sum)
+                .doOnNext(rows -> {
+                    if (rows > 0) {
+                        log.info("Cubetas de stock rebalanceadas: {} filas", rows);
+                    }
+                })
+                .then();
+    }
+
+    private Mono<Void> refresh() {
+        return productRepository.findBucketedProducts()
+                .collectMap(Product::getHawa, Product::getStockBuckets)
+                .doOnNext(counts -> bucketCounts = counts)
+                .then();
+    }
+
+    private Mono<Void> moveStrayStock() {
+        return bucketRepository.takeStrayProductStock()
+                .concatMap(product -> {
+                    log.warn("Moviendo {} unidades de products.stock a las cubetas de {}", product.getStock(), product.getHawa());
+                    return bucketRepository.addToBucket(product.getHawa(), 0, product.getStock());
+                })
+                .then();
+    }
+}
@@ -0,0 +1,81 @@
+package com.cuackstore.inventory.service.impl;
+
+import com.cuackstore.commons.exceptions.ServicesException;
+import com.cuackstore.inventory.repository.ProductRepository;
+import com.cuackstore.inventory.service.StockReleaseService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Registro de devoluciones de stock ya aplicadas (stock_releases). Quien reintenta una devolución
+ * sin saber si la anterior llegó (p. ej. la expiración de pedidos al vencer su lease) manda el mismo
+ * releaseId y aquí se descarta. El registro corre en la transacción del movimiento de stock, así que
+ * un releaseId queda guardado si y solo si su stock se sumó.
+ */
+@Service
+@Slf4j
+public class StockReleaseServiceImpl implements StockReleaseService {
+
+    private final ProductRepository productRepository;
+    private final ObjectMapper objectMapper;
+    private final Duration retention;
+    private Disposable purge;
+
+    public StockReleaseServiceImpl(ProductRepository productRepository,
+                                   ObjectMapper objectMapper,
+                                   @Value("${inventory.stock.release-retention:7d}") Duration retention) {
+        this.productRepository = productRepository;
+        this.objectMapper = objectMapper;
+        this.retention = retention;
+    }
+
+    @PostConstruct
+    public void start() {
+        purge = Flux.interval(Duration.ofHours(1))
+                .onBackpressureDrop()
+                .concatMap(tick -> productRepository.deleteReleasesBefore(LocalDateTime.now().minus(retention))
+                        .doOnNext(deleted -> log.info("Devoluciones de stock expiradas eliminadas: {}", deleted))
+                        .onErrorResume(e -> {
+                            log.error("Error al purgar devoluciones de stock: {}", e.getMessage());
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (purge != null) {
+            purge.dispose();
+        }
+    }
+
+    /**
+     * Registra los releaseId que aún no existen y devuelve solo esos; los demás ya se aplicaron.
+     */
+    @Override
+    public Mono<Set<String>> recordNew(Collection<String> releaseIds) {
+        String ids;
+        try {
+            ids = objectMapper.writeValueAsString(releaseIds);
+        } catch (JsonProcessingException e) {
+            return Mono.error(new ServicesException("No se pudo preparar la devolución de stock", HttpStatus.INTERNAL_SERVER_ERROR));
+        }
+        return productRepository.recordReleases(ids)
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,124 @@
+package com.cuackstore.inventory.stock;
+
+import com.cuackstore.inventory.entity.Product;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stock de un HAWA en un solo long: versión en los 32 bits altos y existencias en los bajos.
+ * Cada cambio es un compareAndSet que incrementa la versión, así que el journal puede
+ * reproducirse en cualquier orden quedándose con la versión más alta.
+ */
+public final class StockCell {
+
+    public static final long REJECTED = -1L;
+
+    private final AtomicLong state;
+    private volatile Product product;
+    private volatile int flushedVersion;
+
+    public StockCell(Product product) {
+        this.product = product;
+        this.state = new AtomicLong(pack(0, product.getStock() != null ? product.getStock() : 0));
+    }
+
+    public static long pack(int version, int stock) {
+        return ((long) version << 32) | (stock & 0xFFFFFFFFL);
+    }
+
+    public static int version(long state) {
+        return (int) (state >>> 32);
+    }
+
+    public static int stock(long state) {
+        return (int) state;
+    }
+
+    /**
+     * Versiones con vuelta de 32 bits: a es más nueva que b si la diferencia con signo es positiva.
+     */
+    public static boolean isNewer(long a, long b) {
+        return version(a) - version(b) > 0;
+    }
+
+    public long state() {
+        return state.get();
+    }
+
+    /**
+     * Descuenta sin bloquear; devuelve el nuevo estado o {@link #REJECTED} si no alcanza.
+     */
+    public long tryTake(int quantity) {
+        while (true) {
+            long current = state.get();
+            int stock = stock(current);
+            if (stock < quantity) {
+                return REJECTED;
+            }
+            long next = pack(version(current) + 1, stock - quantity);
+            if (state.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    public long add(int quantity) {
+        while (true) {
+            long current = state.get();
+            long next = pack(version(current) + 1, stock(current) + quantity);
+            if (state.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Fija las existencias y devuelve el estado anterior; el nuevo tiene la versión siguiente.
+     */
+    public long getAndSet(int stock) {
+        while (true) {
+            long current = state.get();
+            if (state.compareAndSet(current, pack(version(current) + 1, stock))) {
+                return current;
+            }
+        }
+    }
+
+    public boolean isAvailable() {
+        return Boolean.TRUE.equals(product.getAvailable());
+    }
+
+    public void setProduct(Product product) {
+        this.product = product;
+    }
+
+    public boolean isDirty(long state) {
+        return version(state) != flushedVersion;
+    }
+
+    public void markFlushed(long state) {
+        this.flushedVersion = version(state);
+    }
+
+    /**
+     * Copia de los datos de catálogo con las existencias del estado indicado.
+     */
+    public Product toProduct(long state) {
+        Product source = product;
+        return Product.builder()
+                .id(source.getId())
+                .hawa(source.getHawa())
+                .name(source.getName())
+                .description(source.getDescription())
+                .listPrice(source.getListPrice())
+                .discount(source.getDiscount())
+                .stock(stock(state))
+                .available(source.getAvailable())
+                .stockBuckets(source.getStockBuckets())
+                .reorderThreshold(source.getReorderThreshold())
+                .createdAt(source.getCreatedAt())
+                .updatedAt(source.getUpdatedAt())
+                .createdBy(source.getCreatedBy())
+                .build();
+    }
+}
@@ -0,0 +1,280 @@
+package com.cuackstore.inventory.stock;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Log local de solo anexado con el estado (versión + existencias) de cada movimiento de stock.
+ * Un hilo escribe por grupos: todas las entradas encoladas desde el último fsync se escriben
+ * y se sincronizan juntas, y sus futuros se completan después.
+ *
+ * El log se divide en segmentos. Antes de cada escritura diferida se rota el segmento; cuando la
+ * escritura en SQL Server termina, los segmentos anteriores ya están cubiertos y se borran.
+ */
+@Slf4j
+public class StockJournal {
+
+    private static final String SEGMENT_PREFIX = "stock-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final Object STOP = new Object();
+
+    private final Path directory;
+    private final boolean sync;
+    private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+
+    private FileChannel channel;
+    private Path segment;
+    private long segmentIndex;
+    private volatile IOException failure;
+    private volatile boolean closed;
+
+    public StockJournal(Path directory, boolean sync) {
+        this.directory = directory;
+        this.sync = sync;
+        this.writer = new Thread(this::writeLoop, "stock-journal");
+        this.writer.setDaemon(true);
+    }
+
+    /**
+     * Último estado por HAWA de todos los segmentos; una línea incompleta al final se descarta.
+     */
+    public Map<String, Long> recover() {
+        Map<String, Long> latest = new HashMap<>();
+        for (Path path : segments()) {
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.split("\t");
+                    if (parts.length != 3) {
+                        log.warn("Entrada incompleta en {}: {}", path.getFileName(), line);
+                        continue;
+                    }
+                    long state;
+                    try {
+                        state = StockCell.pack(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+                    } catch (NumberFormatException e) {
+                        log.warn("Entrada inválida en {}: {}", path.getFileName(), line);
+                        continue;
+                    }
+                    latest.merge(parts[0], state, (current, candidate) ->
+                            StockCell.isNewer(candidate, current) ? candidate : current);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo leer el journal de stock " + path, e);
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * Empieza un journal vacío. Solo se llama después de aplicar {@link #recover()} en la base.
+     */
+    public void open() {
+        try {
+            Files.createDirectories(directory);
+            for (Path path : segments()) {
+                Files.delete(path);
+            }
+            openSegment();
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo abrir el journal de stock en " + directory, e);
+        }
+        writer.start();
+    }
+
+    public CompletableFuture<Void> append(List<Entry> entries) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        if (failure != null || closed) {
+            future.completeExceptionally(failure != null ? failure : new IOException("Journal de stock cerrado"));
+            return future;
+        }
+        StringBuilder lines = new StringBuilder(entries.size() * 32);
+        for (Entry entry : entries) {
+            lines.append(entry.hawa).append('\t')
+                    .append(StockCell.version(entry.state)).append('\t')
+                    .append(StockCell.stock(entry.state)).append('\n');
+        }
+        queue.add(new Append(lines.toString().getBytes(StandardCharsets.UTF_8), future));
+        return future;
+    }
+
+    /**
+     * Cierra el segmento actual. El futuro entrega el segmento cerrado: queda cubierto por
+     * cualquier estado leído después de que el futuro se complete.
+     */
+    public CompletableFuture<List<Path>> rotate() {
+        CompletableFuture<List<Path>> future = new CompletableFuture<>();
+        queue.add(new Rotate(future));
+        return future;
+    }
+
+    public void delete(List<Path> covered) {
+        for (Path path : covered) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                log.warn("No se pudo borrar el segmento {}: {}", path.getFileName(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Escribe lo pendiente y detiene el hilo; las entradas que lleguen después fallan.
+     */
+    public void close() {
+        closed = true;
+        queue.add(STOP);
+        try {
+            writer.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        List<Object> batch = new ArrayList<>();
+        boolean stopped = false;
+        while (!stopped) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            queue.drainTo(batch);
+
+            List<CompletableFuture<Void>> written = new ArrayList<>();
+            for (Object task : batch) {
+                if (task == STOP) {
+                    stopped = true;
+                    continue;
+                }
+                try {
+                    if (stopped || failure != null) {
+                        fail(task, failure != null ? failure : new IOException("Journal de stock cerrado"));
+                    } else if (task instanceof Append) {
+                        ByteBuffer buffer = ByteBuffer.wrap(((Append) task).data);
+                        while (buffer.hasRemaining()) {
+                            channel.write(buffer);
+                        }
+                        written.add(((Append) task).future);
+                    } else {
+                        // Lo escrito antes de la rotación debe ser durable antes de entregar el segmento
+                        force(written);
+                        written = new ArrayList<>();
+                        Path closed = segment;
+                        channel.close();
+                        openSegment();
+                        ((Rotate) task).future.complete(List.of(closed));
+                    }
+                } catch (IOException e) {
+                    log.error("Journal de stock fuera de servicio: {}", e.getMessage());
+                    failure = e;
+                    written.forEach(future -> future.completeExceptionally(e));
+                    written = new ArrayList<>();
+                    fail(task, e);
+                }
+            }
+            force(written);
+            batch.clear();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Error cerrando el journal de stock: {}", e.getMessage());
+        }
+    }
+
+    private void fail(Object task, IOException e) {
+        if (task instanceof Append) {
+            ((Append) task).future.completeExceptionally(e);
+        } else if (task instanceof Rotate) {
+            ((Rotate) task).future.completeExceptionally(e);
+        }
+    }
+
+    private void force(List<CompletableFuture<Void>> written) {
+        if (written.isEmpty()) {
+            return;
+        }
+        try {
+            if (sync) {
+                channel.force(false);
+            }
+            written.forEach(future -> future.complete(null));
+        } catch (IOException e) {
+            log.error("Journal de stock fuera de servicio: {}", e.getMessage());
+            failure = e;
+            written.forEach(future -> future.completeExceptionally(e));
+        }
+    }
+
+    private void openSegment() throws IOException {
+        segment = directory.resolve(SEGMENT_PREFIX + (++segmentIndex) + SEGMENT_SUFFIX);
+        channel = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private List<Path> segments() {
+        if (!Files.isDirectory(directory)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo listar el journal de stock en " + directory, e);
+        }
+    }
+
+    public static final class Entry {
+        private final String hawa;
+        private final long state;
+
+        public Entry(String hawa, long state) {
+            this.hawa = hawa;
+            this.state = state;
+        }
+    }
+
+    private static final class Append {
+        private final byte[] data;
+        private final CompletableFuture<Void> future;
+
+        private Append(byte[] data, CompletableFuture<Void> future) {
+            this.data = data;
+            this.future = future;
+        }
+    }
+
+    private static final class Rotate {
+        private final CompletableFuture<List<Path>> future;
+
+        private Rotate(CompletableFuture<List<Path>> future) {
+            this.future = future;
+        }
+    }
+}
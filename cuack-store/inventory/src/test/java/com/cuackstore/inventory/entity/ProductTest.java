@@ -0,0 +1,38 @@
+package com.cuackstore.inventory.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductTest {
+
+    @Test
+    void finalPriceIsRoundedToCents() {
+        // Antes: 19.99 - 19.99 * 12.50 / 100 = 17.49125
+        assertThat(product("19.99", "12.50").getFinalPrice()).isEqualTo(new BigDecimal("17.49"));
+        // Antes: 10.00 - 0.125 = 9.875; ahora el descuento se redondea primero (0.13)
+        assertThat(product("10.00", "1.25").getFinalPrice()).isEqualTo(new BigDecimal("9.87"));
+    }
+
+    @Test
+    void finalPriceWithoutDiscountIsListPrice() {
+        assertThat(product("19.99", "0").getFinalPrice()).isEqualTo(new BigDecimal("19.99"));
+        assertThat(product("19.99", null).getFinalPrice()).isEqualTo(new BigDecimal("19.99"));
+    }
+
+    @Test
+    void finalPriceMatchesLegacyWhenAlreadyInCents() {
+        // 100.00 al 15%: 85.00 antes y ahora
+        assertThat(product("100.00", "15.00").getFinalPrice()).isEqualByComparingTo("85.00");
+    }
+
+    private static Product product(String listPrice, String discount) {
+        return Product.builder()
+                .hawa("HAWA-TEST")
+                .listPrice(new BigDecimal(listPrice))
+                .discount(discount != null ? new BigDecimal(discount) : null)
+                .build();
+    }
+}
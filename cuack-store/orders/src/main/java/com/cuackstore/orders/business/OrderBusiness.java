@@ -5,15 +5,24 @@ import com.cuackstore.commons.enums.OrderStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 
 public interface OrderBusiness {
     OrderResponseDTO createOrder(OrderCreateDTO createDTO);
     Page<OrderSummaryDTO> getAllOrders(Pageable pageable);
     List<OrderSummaryDTO> getOrdersByStatus(OrderStatus status);
+    OrderSliceDTO getOrdersSlice(String cursor, int size, OrderStatus status, String storeId);
     OrderResponseDTO getOrderById(Long id);
+    Optional<String> getOrderETag(Long id);
     OrderResponseDTO updateOrderStatus(Long id, OrderStatusUpdateDTO statusDTO);
-    List<OrderSummaryDTO> searchOrdersByCustomer(String customerName);
-    List<OrderSummaryDTO> searchOrdersBySeller(String sellerName);
+    OrderBulkStatusResultDTO updateOrdersStatus(OrderBulkStatusUpdateDTO statusDTO);
+    List<OrderSummaryDTO> searchOrdersByCustomer(String customerName, int page, int size);
+    List<OrderSummaryDTO> searchOrdersBySeller(String sellerName, int page, int size);
     OrderStatsDTO getOrderStatistics();
+    OrderStatsDTO getOrderStatistics(String storeId);
+    List<OrderStatsDTO> getOrderStatisticsByStore();
+    List<ProductSalesDTO> getProductSales(LocalDate startDate, LocalDate endDate, String storeId, int limit);
+    int rebuildProductSales(LocalDate startDate, LocalDate endDate);
 }
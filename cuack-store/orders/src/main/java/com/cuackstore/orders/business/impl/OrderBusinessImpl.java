@@ -3,92 +3,139 @@ package com.cuackstore.orders.business.impl;
 import com.cuackstore.commons.dto.order.*;
 import com.cuackstore.commons.enums.OrderStatus;
 import com.cuackstore.commons.exceptions.BusinessException;
+import com.cuackstore.commons.money.Money;
 import com.cuackstore.orders.business.OrderBusiness;
 import com.cuackstore.orders.entity.Customer;
 import com.cuackstore.orders.entity.Order;
 import com.cuackstore.orders.entity.OrderItem;
 import com.cuackstore.orders.repository.OrderRepository;
+import com.cuackstore.orders.repository.projection.OrderSummaryView;
+import com.cuackstore.orders.service.IdempotencyService;
 import com.cuackstore.orders.service.InventoryService;
+import com.cuackstore.orders.service.OrderExpiryService;
+import com.cuackstore.orders.service.OrderSearchIndexService;
+import com.cuackstore.orders.service.OrderStatisticsService;
+import com.cuackstore.orders.service.ProductSalesService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+/**
+ * Las escrituras no retienen conexión durante las llamadas al inventario: llamada remota,
+ * transacción local corta (TransactionTemplate) y compensación después del commit.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
-@Transactional
 public class OrderBusinessImpl implements OrderBusiness {
 
     private final OrderRepository orderRepository;
     private final InventoryService inventoryService;
+    private final TransactionTemplate transactionTemplate;
+    private final OrderStatisticsService orderStatisticsService;
+    private final OrderSearchIndexService orderSearchIndexService;
+    private final ProductSalesService productSalesService;
+    private final OrderExpiryService orderExpiryService;
+    private final IdempotencyService idempotencyService;
 
     @Override
     public OrderResponseDTO createOrder(OrderCreateDTO createDTO) {
         log.info("Iniciando creación de pedido para cliente: {}", createDTO.getCustomer().getName());
 
-        for (OrderItemCreateDTO itemDTO : createDTO.getItems()) {
-            AvailabilityResponseDTO availability = inventoryService.checkAvailability(itemDTO.getProductHawa());
-
-            if (!availability.getAvailable()) {
-                throw new BusinessException("Producto no disponible: " + itemDTO.getProductHawa() +
-                        " - " + availability.getMessage(), HttpStatus.NOT_FOUND);
-            }
+        List<StockReservationItemDTO> reservedItems = createDTO.getItems().stream()
+                .map(item -> StockReservationItemDTO.builder()
+                        .hawa(item.getProductHawa())
+                        .quantity(item.getQuantity())
+                        .build())
+                .collect(Collectors.toList());
 
-            if (availability.getStock() < itemDTO.getQuantity()) {
-                throw new BusinessException("Stock insuficiente para producto: " + itemDTO.getProductHawa() +
-                        ". Stock disponible: " + availability.getStock() +
-                        ", Solicitado: " + itemDTO.getQuantity(), HttpStatus.NOT_FOUND);
-            }
+        // Fases 0 y 1 comparten un solo plazo frente al inventario (inventory.client.order-deadline)
+        Map<String, InventoryProductDTO> products = inventoryService.withinDeadline(() -> reserveProducts(reservedItems));
+
+        // Fase 2: transacción local, solo SQL
+        Order savedOrder;
+        try {
+            Order order = buildOrder(createDTO, products);
+            savedOrder = transactionTemplate.execute(status -> {
+                // Flush inmediato: el pedido y sus items salen en lote antes de las escrituras JDBC que lo referencian
+                Order saved = orderRepository.saveAndFlush(order);
+                // Con Idempotency-Key, la llave queda ligada al pedido en esta misma transacción
+                idempotencyService.bindOrder(saved.getId());
+                orderSearchIndexService.index(saved);
+                productSalesService.recordCreated(saved);
+                afterCommit(() -> orderStatisticsService.recordCreated(saved.getStoreId(), saved.getItemCount(), saved.getTotal()));
+                afterCommit(() -> orderExpiryService.schedule(saved.getId(), saved.getCreatedAt()));
+                return saved;
+            });
+        } catch (RuntimeException e) {
+            // Fase 3: compensación, se devuelve lo reservado si no se pudo guardar el pedido
+            log.error("No se pudo guardar el pedido, liberando stock reservado: {}", e.getMessage());
+            releaseReservedStock(reservedItems, null);
+            throw e;
         }
+        log.info("Pedido creado con ID: {}", savedOrder.getId());
 
-        Order order = Order.builder()
-                .storeId(createDTO.getStoreId())
-                .sellerName(createDTO.getSellerName())
-                .customer(mapToCustomerEntity(createDTO.getCustomer()))
-                .status(OrderStatus.PENDIENTE)
-                .comments(createDTO.getComments())
-                .userIp(createDTO.getUserIp())
-                .build();
-
-        for (OrderItemCreateDTO itemDTO : createDTO.getItems()) {
-            InventoryProductDTO product = inventoryService.getProduct(itemDTO.getProductHawa());
+        return mapToOrderResponseDTO(savedOrder);
 
-            OrderItem orderItem = OrderItem.builder()
-                    .productHawa(product.getHawa())
-                    .productName(product.getName())
-                    .quantity(itemDTO.getQuantity())
-                    .unitPrice(product.getListPrice())
-                    .discountPercentage(product.getDiscount())
-                    .build();
+    }
 
-            order.addItem(orderItem);
+    /**
+     * Fases 0 y 1 de createOrder: datos de catálogo y reservación. Devuelve los productos del pedido
+     * con la post-imagen de la reservación.
+     */
+    private Map<String, InventoryProductDTO> reserveProducts(List<StockReservationItemDTO> reservedItems) {
+        // Fase 0: datos de catálogo desde el near-cache; solo los HAWA que no están se piden al inventario.
+        // Un producto no disponible se rechaza aquí, sin reservar stock que luego habría que devolver
+        List<String> hawas = reservedItems.stream()
+                .map(StockReservationItemDTO::getHawa)
+                .distinct()
+                .collect(Collectors.toList());
+        Map<String, InventoryProductDTO> products = new HashMap<>(inventoryService.getProducts(hawas));
+        for (String hawa : hawas) {
+            InventoryProductDTO product = products.get(hawa);
+            if (product == null || !Boolean.TRUE.equals(product.getAvailable())) {
+                throw new BusinessException("Producto no disponible: " + hawa, HttpStatus.NOT_FOUND);
+            }
         }
 
-        order = orderRepository.save(order);
-        log.info("Pedido creado con ID: {}", order.getId());
-
-        for (OrderItem item : order.getItems()) {
-            boolean stockDecremented = inventoryService.decrementStock(
-                    item.getProductHawa(),
-                    item.getQuantity()
-            );
-
-            if (!stockDecremented) {
-                log.warn("No se pudo decrementar stock para producto: {}", item.getProductHawa());
+        // Fase 1: reservación remota, sin conexión a la base de datos. El stock se decide siempre en el
+        // inventario y su post-imagen reemplaza a la copia del cache si el precio cambió entretanto
+        List<InventoryProductDTO> reserved;
+        try {
+            reserved = inventoryService.reserveStock(reservedItems);
+        } catch (BusinessException e) {
+            if (e.getHttpStatus() != HttpStatus.CONFLICT) {
+                throw e;
             }
+            throw describeRejectedReservation(reservedItems, hawas);
         }
-
-        return mapToOrderResponseDTO(order);
-
+        reserved.forEach(product -> products.put(product.getHawa(), product));
+        return products;
     }
 
     @Transactional(readOnly = true)
@@ -97,7 +144,7 @@ public class OrderBusinessImpl implements OrderBusiness {
         log.info("Obteniendo pedidos con paginación: página {}, tamaño {}",
                 pageable.getPageNumber(), pageable.getPageSize());
 
-        return orderRepository.findAllByOrderByCreatedAtDesc(pageable)
+        return orderRepository.findAllSummaries(pageable)
                 .map(this::mapToOrderSummaryDTO);
     }
 
@@ -106,12 +153,60 @@ public class OrderBusinessImpl implements OrderBusiness {
     public List<OrderSummaryDTO> getOrdersByStatus(OrderStatus status) {
         log.info("Obteniendo pedidos por estatus: {}", status);
 
-        return orderRepository.findByStatusOrderByCreatedAtDesc(status)
+        return orderRepository.findSummariesByStatus(status)
                 .stream()
                 .map(this::mapToOrderSummaryDTO)
                 .collect(Collectors.toList());
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public OrderSliceDTO getOrdersSlice(String cursor, int size, OrderStatus status, String storeId) {
+        log.info("Obteniendo pedidos por cursor: tamaño {}, estatus {}, tienda {}", size, status, storeId);
+
+        // Sin cursor se arranca desde el extremo más reciente del índice
+        LocalDateTime createdAt = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+        Long id = Long.MAX_VALUE;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] position = decodeCursor(cursor);
+            createdAt = LocalDateTime.parse(position[0]);
+            id = Long.valueOf(position[1]);
+        }
+
+        // Se pide una fila extra para saber si hay siguiente página sin ejecutar COUNT
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<OrderSummaryView> rows;
+        if (status != null && storeId != null) {
+            rows = orderRepository.findSummariesByStoreAndStatusAfter(storeId, status, createdAt, id, limit);
+        } else if (status != null) {
+            rows = orderRepository.findSummariesByStatusAfter(status, createdAt, id, limit);
+        } else if (storeId != null) {
+            rows = orderRepository.findSummariesByStoreAfter(storeId, createdAt, id, limit);
+        } else {
+            rows = orderRepository.findSummariesAfter(createdAt, id, limit);
+        }
+
+        boolean hasNext = rows.size() > size;
+        if (hasNext) {
+            rows = rows.subList(0, size);
+        }
+
+        String nextCursor = null;
+        if (hasNext) {
+            OrderSummaryView last = rows.get(rows.size() - 1);
+            nextCursor = encodeCursor(last.getCreatedAt(), last.getId());
+        }
+
+        return OrderSliceDTO.builder()
+                .content(rows.stream()
+                        .map(this::mapToOrderSummaryDTO)
+                        .collect(Collectors.toList()))
+                .size(size)
+                .hasNext(hasNext)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
     @Override
     @Transactional(readOnly = true)
     public OrderResponseDTO getOrderById(Long id) {
@@ -123,62 +218,239 @@ public class OrderBusinessImpl implements OrderBusiness {
         return mapToOrderResponseDTO(order);
     }
 
+    /**
+     * Toda escritura incrementa la versión, pero canBeCancelled cambia con el reloj sin escribir nada:
+     * el ETag lleva también ese estado para que la respuesta en cache no lo siga anunciando vencido.
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public Optional<String> getOrderETag(Long id) {
+        return orderRepository.findVersionById(id)
+                .map(view -> "order-" + id + "-" + view.getVersion()
+                        + (Order.canBeCancelled(view.getStatus(), view.getCreatedAt(), orderExpiryService.getExpireAfter())
+                        ? "-cancelable" : ""));
+    }
+
     @Override
     public OrderResponseDTO updateOrderStatus(Long id, OrderStatusUpdateDTO statusDTO) {
         log.info("Actualizando estatus del pedido ID: {} a {}", id, statusDTO.getStatus());
 
-        Order order = orderRepository.findById(id)
-                .orElseThrow(() -> new BusinessException("Pedido no encontrado con ID: " + id, HttpStatus.BAD_REQUEST));
-
         OrderStatus newStatus = OrderStatus.valueOf(statusDTO.getStatus());
-        OrderStatus previousStatus = order.getStatus();
+        List<StockReservationItemDTO> stockToReturn = new ArrayList<>();
 
-        validateStatusChange(order, newStatus);
+        OrderResponseDTO response;
+        try {
+            response = transactionTemplate.execute(status -> {
+                Order order = orderRepository.findById(id)
+                        .orElseThrow(() -> new BusinessException("Pedido no encontrado con ID: " + id, HttpStatus.BAD_REQUEST));
 
-        order.setStatus(newStatus);
-        order = orderRepository.save(order);
+                OrderStatus previousStatus = order.getStatus();
+                validateStatusChange(order, newStatus);
 
-        handleStockChangesForStatusUpdate(order, previousStatus, newStatus);
+                order.setStatus(newStatus);
+                order = orderRepository.saveAndFlush(order);
 
-        log.info("Estatus del pedido {} cambiado de {} a {}", id, previousStatus, newStatus);
-        return mapToOrderResponseDTO(order);
+                Order updated = order;
+                afterCommit(() -> orderStatisticsService.recordStatusChange(updated.getStoreId(), previousStatus, newStatus,
+                        updated.getItemCount(), updated.getTotal()));
+
+                if (newStatus == OrderStatus.CANCELADO) {
+                    productSalesService.recordCancelled(order);
+                    if (previousStatus == OrderStatus.PENDIENTE) {
+                        stockToReturn.addAll(toStockItems(order.getItems()));
+                    }
+                }
+
+                log.info("Estatus del pedido {} cambiado de {} a {}", id, previousStatus, newStatus);
+                return mapToOrderResponseDTO(order);
+            });
+        } catch (ObjectOptimisticLockingFailureException e) {
+            // La expiración automática u otro nodo cambió el pedido entre la lectura y el guardado
+            throw new BusinessException("El pedido fue modificado por otro proceso, intente de nuevo", HttpStatus.CONFLICT);
+        }
+
+        // Después del commit: devolución de stock al inventario
+        if (!stockToReturn.isEmpty()) {
+            log.info("Devolviendo stock al inventario por cancelación del pedido {}", id);
+            releaseReservedStock(stockToReturn, id);
+        }
+
+        return response;
     }
 
+    /**
+     * Aplica el mismo cambio de estatus a varios pedidos: una sola consulta de carga, validación
+     * por pedido, un UPDATE por lotes y una sola devolución de stock (el inventario la agrega por HAWA).
+     * Los pedidos cancelados quedan con stock_return_pending: si la devolución falla, la reintenta
+     * el barrido de expiración, y el releaseId de cada pedido evita devolver su stock dos veces.
+     */
+    @Override
+    public OrderBulkStatusResultDTO updateOrdersStatus(OrderBulkStatusUpdateDTO statusDTO) {
+        List<Long> ids = statusDTO.getOrderIds().stream().distinct().collect(Collectors.toList());
+        log.info("Actualizando estatus de {} pedidos a {}", ids.size(), statusDTO.getStatus());
+
+        OrderStatus newStatus = OrderStatus.valueOf(statusDTO.getStatus());
+        List<Order> stockToReturn = new ArrayList<>();
+
+        List<OrderStatusResultDTO> results;
+        try {
+            results = transactionTemplate.execute(status -> {
+                Map<Long, Order> orders = orderRepository.findWithItemsByIdIn(ids)
+                        .stream()
+                        .collect(Collectors.toMap(Order::getId, Function.identity()));
+
+                List<OrderStatusResultDTO> orderResults = new ArrayList<>(ids.size());
+                List<Order> changed = new ArrayList<>();
+                Map<Long, OrderStatus> previousStatuses = new HashMap<>();
+
+                for (Long id : ids) {
+                    Order order = orders.get(id);
+                    if (order == null) {
+                        orderResults.add(OrderStatusResultDTO.builder()
+                                .orderId(id)
+                                .updated(false)
+                                .message("Pedido no encontrado con ID: " + id)
+                                .build());
+                        continue;
+                    }
+
+                    OrderStatus previousStatus = order.getStatus();
+                    try {
+                        validateStatusChange(order, newStatus);
+                    } catch (BusinessException e) {
+                        orderResults.add(OrderStatusResultDTO.builder()
+                                .orderId(id)
+                                .updated(false)
+                                .previousStatus(previousStatus.name())
+                                .status(previousStatus.name())
+                                .message(e.getMessage())
+                                .build());
+                        continue;
+                    }
+
+                    order.setStatus(newStatus);
+                    changed.add(order);
+                    previousStatuses.put(id, previousStatus);
+                    orderResults.add(OrderStatusResultDTO.builder()
+                            .orderId(id)
+                            .updated(true)
+                            .previousStatus(previousStatus.name())
+                            .status(newStatus.name())
+                            .message("Estatus actualizado")
+                            .build());
+                }
+
+                if (changed.isEmpty()) {
+                    return orderResults;
+                }
+
+                // Un solo flush: Hibernate agrupa los UPDATE (hibernate.jdbc.batch_size) con su chequeo de versión
+                orderRepository.saveAllAndFlush(changed);
+
+                for (Order order : changed) {
+                    OrderStatus previousStatus = previousStatuses.get(order.getId());
+                    afterCommit(() -> orderStatisticsService.recordStatusChange(order.getStoreId(), previousStatus, newStatus,
+                            order.getItemCount(), order.getTotal()));
+
+                    if (newStatus == OrderStatus.CANCELADO) {
+                        productSalesService.recordCancelled(order);
+                        if (previousStatus == OrderStatus.PENDIENTE) {
+                            stockToReturn.add(order);
+                        }
+                    }
+                }
+                orderExpiryService.markStockReturnPending(stockToReturn.stream()
+                        .map(Order::getId)
+                        .collect(Collectors.toList()));
+
+                log.info("{} de {} pedidos cambiados a {}", changed.size(), ids.size(), newStatus);
+                return orderResults;
+            });
+        } catch (ObjectOptimisticLockingFailureException e) {
+            // Algún pedido del lote cambió entre la lectura y el guardado; el lote completo se revierte
+            throw new BusinessException("Uno o más pedidos fueron modificados por otro proceso, intente de nuevo", HttpStatus.CONFLICT);
+        }
+
+        // Después del commit: una sola devolución de stock para todos los pedidos cancelados
+        if (!stockToReturn.isEmpty()) {
+            log.info("Devolviendo stock al inventario por cancelación de {} pedidos", stockToReturn.size());
+            orderExpiryService.returnStock(stockToReturn);
+        }
+
+        int updatedCount = (int) results.stream().filter(OrderStatusResultDTO::isUpdated).count();
+        return OrderBulkStatusResultDTO.builder()
+                .updatedCount(updatedCount)
+                .failedCount(results.size() - updatedCount)
+                .results(results)
+                .build();
+    }
 
     @Transactional(readOnly = true)
     @Override
-    public List<OrderSummaryDTO> searchOrdersByCustomer(String customerName) {
-        log.info("Buscando pedidos por cliente: {}", customerName);
+    public List<OrderSummaryDTO> searchOrdersByCustomer(String customerName, int page, int size) {
+        log.info("Buscando pedidos por cliente: {} (página {}, tamaño {})", customerName, page, size);
 
-        return orderRepository.findByCustomerName(customerName)
-                .stream()
-                .map(this::mapToOrderSummaryDTO)
-                .collect(Collectors.toList());
+        return findSummariesInOrder(orderSearchIndexService.searchCustomers(customerName, page, size));
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<OrderSummaryDTO> searchOrdersBySeller(String sellerName) {
-        log.info("Buscando pedidos por vendedor: {}", sellerName);
+    public List<OrderSummaryDTO> searchOrdersBySeller(String sellerName, int page, int size) {
+        log.info("Buscando pedidos por vendedor: {} (página {}, tamaño {})", sellerName, page, size);
 
-        return orderRepository.findBySellerNameContainingIgnoreCaseOrderByCreatedAtDesc(sellerName)
+        return findSummariesInOrder(orderSearchIndexService.searchSellers(sellerName, page, size));
+    }
+
+    // El índice de búsqueda devuelve los ids ya ordenados por relevancia; se conserva ese orden
+    private List<OrderSummaryDTO> findSummariesInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, OrderSummaryView> summaries = orderRepository.findSummariesByIdIn(ids)
                 .stream()
+                .collect(Collectors.toMap(OrderSummaryView::getId, Function.identity()));
+
+        return ids.stream()
+                .map(summaries::get)
+                .filter(Objects::nonNull)
                 .map(this::mapToOrderSummaryDTO)
                 .collect(Collectors.toList());
     }
 
 
-    @Transactional(readOnly = true)
     @Override
     public OrderStatsDTO getOrderStatistics() {
         log.info("Obteniendo estadísticas de pedidos");
 
-        return OrderStatsDTO.builder()
-                .totalOrders(orderRepository.count())
-                .pendingOrders(orderRepository.countByStatus(OrderStatus.PENDIENTE))
-                .deliveredOrders(orderRepository.countByStatus(OrderStatus.ENTREGADO))
-                .cancelledOrders(orderRepository.countByStatus(OrderStatus.CANCELADO))
-                .build();
+        return orderStatisticsService.getStatistics();
+    }
+
+    @Override
+    public OrderStatsDTO getOrderStatistics(String storeId) {
+        log.info("Obteniendo estadísticas de pedidos de la tienda: {}", storeId);
+
+        return orderStatisticsService.getStatistics(storeId);
+    }
+
+    @Override
+    public List<OrderStatsDTO> getOrderStatisticsByStore() {
+        log.info("Obteniendo estadísticas de pedidos por tienda");
+
+        return orderStatisticsService.getStatisticsByStore();
+    }
+
+    @Override
+    public List<ProductSalesDTO> getProductSales(LocalDate startDate, LocalDate endDate, String storeId, int limit) {
+        log.info("Obteniendo ventas por producto de {} a {} (tienda: {})", startDate, endDate, storeId);
+
+        return productSalesService.getProductSales(startDate, endDate, storeId, limit);
+    }
+
+    @Override
+    public int rebuildProductSales(LocalDate startDate, LocalDate endDate) {
+        log.info("Recalculando ventas por producto de {} a {}", startDate, endDate);
+
+        return productSalesService.rebuild(startDate, endDate);
     }
 
     private void validateStatusChange(Order order, OrderStatus newStatus) {
@@ -192,32 +464,111 @@ public class OrderBusinessImpl implements OrderBusiness {
             throw new BusinessException("Solo se puede cambiar el estatus de pedidos pendientes", HttpStatus.BAD_REQUEST);
         }
 
-        if (newStatus == OrderStatus.CANCELADO && !order.canBeCancelled()) {
-            throw new BusinessException("No se puede cancelar el pedido. Han pasado más de 10 minutos desde su creación.", HttpStatus.BAD_REQUEST);
+        Duration cancelWindow = orderExpiryService.getExpireAfter();
+        if (newStatus == OrderStatus.CANCELADO && !order.canBeCancelled(cancelWindow)) {
+            throw new BusinessException("No se puede cancelar el pedido. Han pasado más de " + describe(cancelWindow) +
+                    " desde su creación.", HttpStatus.BAD_REQUEST);
         }
     }
 
-    private void handleStockChangesForStatusUpdate(Order order, OrderStatus previousStatus, OrderStatus newStatus) {
+    private static String describe(Duration window) {
+        return window.getSeconds() % 60 == 0 ? window.toMinutes() + " minutos" : window.getSeconds() + " segundos";
+    }
+
+    private Order buildOrder(OrderCreateDTO createDTO, Map<String, InventoryProductDTO> products) {
+        Order order = Order.builder()
+                .storeId(createDTO.getStoreId())
+                .sellerName(createDTO.getSellerName())
+                .customer(mapToCustomerEntity(createDTO.getCustomer()))
+                .status(OrderStatus.PENDIENTE)
+                .comments(createDTO.getComments())
+                .userIp(createDTO.getUserIp())
+                .build();
+
+        for (OrderItemCreateDTO itemDTO : createDTO.getItems()) {
+            InventoryProductDTO product = products.get(itemDTO.getProductHawa());
+
+            OrderItem orderItem = OrderItem.builder()
+                    .productHawa(product.getHawa())
+                    .productName(product.getName())
+                    .quantity(itemDTO.getQuantity())
+                    .unitPrice(Money.of(product.getListPrice()))
+                    .discountPercentage(product.getDiscount())
+                    .build();
+
+            order.addItem(orderItem);
+        }
+
+        return order;
+    }
 
-        if (newStatus == OrderStatus.CANCELADO && previousStatus == OrderStatus.PENDIENTE) {
-            log.info("Devolviendo stock al inventario por cancelación del pedido {}", order.getId());
+    /**
+     * La reservación es todo o nada y el inventario no dice qué producto la rechazó: se consulta
+     * la disponibilidad de todos en paralelo para armar el mensaje. Solo corre cuando ya se rechazó.
+     */
+    private BusinessException describeRejectedReservation(List<StockReservationItemDTO> items, List<String> hawas) {
+        Map<String, Integer> requested = new LinkedHashMap<>();
+        items.forEach(item -> requested.merge(item.getHawa(), item.getQuantity(), Integer::sum));
+
+        Map<String, AvailabilityResponseDTO> availability;
+        try {
+            availability = inventoryService.checkAvailability(hawas);
+        } catch (RuntimeException e) {
+            log.warn("No se pudo consultar la disponibilidad para detallar la reservación rechazada: {}", e.getMessage());
+            return new BusinessException("Stock insuficiente o producto no disponible", HttpStatus.CONFLICT);
+        }
 
-            for (OrderItem item : order.getItems()) {
-                boolean stockIncremented = inventoryService.incrementStock(
-                        item.getProductHawa(),
-                        item.getQuantity()
-                );
+        List<String> shortages = new ArrayList<>();
+        requested.forEach((hawa, quantity) -> {
+            AvailabilityResponseDTO product = availability.get(hawa);
+            if (product == null || !Boolean.TRUE.equals(product.getAvailable())) {
+                shortages.add(hawa + " no disponible");
+            } else if (product.getStock() < quantity) {
+                shortages.add(hawa + " (disponible: " + product.getStock() + ", solicitado: " + quantity + ")");
+            }
+        });
+        // Sin faltantes visibles: otro pedido tomó el stock y lo devolvió entre la reservación y la consulta
+        String detail = shortages.isEmpty() ? "intente de nuevo" : String.join(", ", shortages);
+        return new BusinessException("Stock insuficiente para: " + detail, HttpStatus.CONFLICT);
+    }
 
-                if (stockIncremented) {
-                    log.info("Stock devuelto para producto {}: {} unidades",
-                            item.getProductHawa(), item.getQuantity());
-                } else {
-                    log.warn("No se pudo devolver stock para producto: {}", item.getProductHawa());
+    /**
+     * Las tareas posteriores al commit no pueden fallar hacia afuera: TransactionTemplate relanzaría
+     * la excepción y la compensación devolvería el stock de un pedido que ya quedó guardado.
+     * Los contadores se corrigen en la reconciliación y la expiración perdida la toma el barrido periódico.
+     */
+    private void afterCommit(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    action.run();
+                } catch (RuntimeException e) {
+                    log.error("Error en tarea posterior al commit: {}", e.getMessage(), e);
                 }
             }
+        });
+    }
+
+    private void releaseReservedStock(List<StockReservationItemDTO> items, Long orderId) {
+        try {
+            if (!inventoryService.releaseStock(items)) {
+                log.warn("No se pudo devolver stock del pedido {}: {}", orderId, items);
+            }
+        } catch (RuntimeException e) {
+            log.error("Error devolviendo stock del pedido {}: {} - {}", orderId, items, e.getMessage());
         }
     }
 
+    private List<StockReservationItemDTO> toStockItems(List<OrderItem> items) {
+        return items.stream()
+                .map(item -> StockReservationItemDTO.builder()
+                        .hawa(item.getProductHawa())
+                        .quantity(item.getQuantity())
+                        .build())
+                .collect(Collectors.toList());
+    }
+
     private Customer mapToCustomerEntity(CustomerDTO dto) {
         return Customer.builder()
                 .name(dto.getName())
@@ -240,36 +591,54 @@ public class OrderBusinessImpl implements OrderBusiness {
                 .sellerName(order.getSellerName())
                 .customer(mapToCustomerDTO(order.getCustomer()))
                 .status(order.getStatus().name())
-                .subtotal(order.getSubtotal())
-                .totalDiscount(order.getTotalDiscount())
-                .total(order.getTotal())
+                .subtotal(order.getSubtotal().toBigDecimal())
+                .totalDiscount(order.getTotalDiscount().toBigDecimal())
+                .total(order.getTotal().toBigDecimal())
                 .totalQuantity(order.getTotalQuantity())
                 .items(order.getItems().stream()
                         .map(this::mapToOrderItemResponseDTO)
                         .collect(Collectors.toList()))
                 .comments(order.getComments())
                 .userIp(order.getUserIp())
-                .canBeCancelled(order.canBeCancelled())
+                .canBeCancelled(order.canBeCancelled(orderExpiryService.getExpireAfter()))
                 .minutesSinceCreation(minutesSinceCreation)
                 .build();
     }
 
-    private OrderSummaryDTO mapToOrderSummaryDTO(Order order) {
+    private OrderSummaryDTO mapToOrderSummaryDTO(OrderSummaryView order) {
         return OrderSummaryDTO.builder()
                 .id(order.getId())
                 .createdAt(order.getCreatedAt())
                 .storeId(order.getStoreId())
                 .sellerName(order.getSellerName())
-                .customerName(order.getCustomer().getName())
-                .customerEmail(order.getCustomer().getEmail())
+                .customerName(order.getCustomerName())
+                .customerEmail(order.getCustomerEmail())
                 .status(order.getStatus().name())
-                .total(order.getTotal())
-                .totalItems(order.getItems().size())
+                .total(order.getTotal().toBigDecimal())
+                .totalItems(order.getItemCount())
                 .totalQuantity(order.getTotalQuantity())
-                .canBeCancelled(order.canBeCancelled())
+                .canBeCancelled(Order.canBeCancelled(order.getStatus(), order.getCreatedAt(), orderExpiryService.getExpireAfter()))
                 .build();
     }
 
+    private String encodeCursor(LocalDateTime createdAt, Long id) {
+        String position = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String[] decodeCursor(String cursor) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = position.split("\\|");
+            LocalDateTime.parse(parts[0]);
+            Long.parseLong(parts[1]);
+            return parts;
+        } catch (IllegalArgumentException | DateTimeParseException | ArrayIndexOutOfBoundsException e) {
+            throw new BusinessException("Cursor de paginación inválido", HttpStatus.BAD_REQUEST);
+        }
+    }
+
     private CustomerDTO mapToCustomerDTO(Customer customer) {
         return CustomerDTO.builder()
                 .name(customer.getName())
@@ -287,11 +656,11 @@ public class OrderBusinessImpl implements OrderBusiness {
                 .productHawa(item.getProductHawa())
                 .productName(item.getProductName())
                 .quantity(item.getQuantity())
-                .unitPrice(item.getUnitPrice())
+                .unitPrice(item.getUnitPrice().toBigDecimal())
                 .discountPercentage(item.getDiscountPercentage())
-                .discountAmount(item.getDiscountAmount())
-                .finalUnitPrice(item.getFinalUnitPrice())
-                .subtotal(item.getSubtotal())
+                .discountAmount(item.getDiscountAmount().toBigDecimal())
+                .finalUnitPrice(item.getFinalUnitPrice().toBigDecimal())
+                .subtotal(item.getSubtotal().toBigDecimal())
                 .build();
     }
 
@@ -0,0 +1,96 @@
+package com.cuackstore.orders.cache;
+
+import com.cuackstore.commons.dto.products.ProductChangeDTO;
+import com.cuackstore.commons.enums.ProductChangeType;
+import com.cuackstore.orders.client.InventoryReactiveClient;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Invalida el near-cache de productos con los cambios que publica el inventario:
+ * push por SSE reanudado desde la última secuencia aplicada y, mientras el stream no
+ * está conectado, polling por número de secuencia.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductChangeListener {
+
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(5);
+
+    private final InventoryReactiveClient inventoryClient;
+    private final ProductSnapshotCache productCache;
+
+    private final AtomicLong lastSequence = new AtomicLong();
+    private volatile boolean streaming;
+    private Disposable subscription;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void subscribe() {
+        // Al (re)conectar el inventario reenvía lo publicado después de lastSequence. Un cierre normal
+        // del stream se trata como error para que la reconexión también espere el backoff; este se
+        // reinicia en cuanto vuelven a llegar eventos (transientErrors)
+        subscription = Flux.defer(() -> inventoryClient.streamProductChanges(lastSequence.get()))
+                .concatWith(Mono.error(() -> new IllegalStateException("el inventario cerró el stream")))
+                .doOnSubscribe(s -> streaming = true)
+                .doOnNext(this::apply)
+                .doOnError(e -> log.warn("Stream de cambios de inventario desconectado: {}", e.getMessage()))
+                .doFinally(signal -> streaming = false)
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                        .maxBackoff(Duration.ofSeconds(30))
+                        .transientErrors(true))
+                .subscribe();
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.product-cache.poll-interval:PT30S}")
+    public void poll() {
+        if (!streaming) {
+            catchUp().block(POLL_TIMEOUT);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    private Mono<Void> catchUp() {
+        return inventoryClient.getProductChanges(lastSequence.get())
+                .timeout(POLL_TIMEOUT)
+                .doOnNext(response -> {
+                    if (response.getData() != null) {
+                        response.getData().forEach(this::apply);
+                    }
+                })
+                .doOnError(e -> log.warn("No se pudieron consultar los cambios de inventario: {}", e.getMessage()))
+                .onErrorResume(e -> Mono.empty())
+                .then();
+    }
+
+    private void apply(ProductChangeDTO change) {
+        if (change.getType() == ProductChangeType.RESET) {
+            productCache.invalidateAll();
+            lastSequence.set(change.getSequence());
+            return;
+        }
+        // El near-cache no guarda stock, así que un cambio solo de stock no lo invalida
+        if (change.getType() != ProductChangeType.STOCK) {
+            productCache.invalidate(change.getHawa());
+        }
+        lastSequence.accumulateAndGet(change.getSequence(), Math::max);
+    }
+}
@@ -0,0 +1,89 @@
+package com.cuackstore.orders.cache;
+
+import com.cuackstore.commons.dto.order.InventoryProductDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Near-cache de datos de producto (nombre, precio de lista, descuento). El stock nunca se
+ * sirve desde aquí: se guarda en null y se valida siempre contra el inventario.
+ * Métricas en cache.gets / cache.evictions con cache=inventory.products.
+ */
+@Component
+@Slf4j
+public class ProductSnapshotCache {
+
+    private final Cache<String, InventoryProductDTO> cache;
+
+    public ProductSnapshotCache(MeterRegistry meterRegistry,
+                                @Value("${inventory.product-cache.max-size:10000}") long maxSize,
+                                @Value("${inventory.product-cache.ttl:10m}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "inventory.products");
+    }
+
+    public InventoryProductDTO get(String hawa, Function<String, InventoryProductDTO> loader) {
+        return cache.get(hawa, key -> toSnapshot(loader.apply(key)));
+    }
+
+    public Map<String, InventoryProductDTO> getAll(Collection<String> hawas,
+                                                   Function<Collection<String>, Map<String, InventoryProductDTO>> loader) {
+        return cache.getAll(hawas, missing -> {
+            List<String> keys = new ArrayList<>();
+            missing.forEach(keys::add);
+
+            Map<String, InventoryProductDTO> loaded = new LinkedHashMap<>();
+            loader.apply(keys).forEach((hawa, product) -> {
+                if (product != null) {
+                    loaded.put(hawa, toSnapshot(product));
+                }
+            });
+            return loaded;
+        });
+    }
+
+    public void putAll(Collection<InventoryProductDTO> products) {
+        products.forEach(product -> cache.put(product.getHawa(), toSnapshot(product)));
+    }
+
+    public void invalidate(String hawa) {
+        cache.invalidate(hawa);
+    }
+
+    public void invalidateAll() {
+        log.info("Invalidando near-cache de productos ({} entradas)", cache.estimatedSize());
+        cache.invalidateAll();
+    }
+
+    private InventoryProductDTO toSnapshot(InventoryProductDTO product) {
+        if (product == null) {
+            return null;
+        }
+        return InventoryProductDTO.builder()
+                .hawa(product.getHawa())
+                .name(product.getName())
+                .description(product.getDescription())
+                .listPrice(product.getListPrice())
+                .discount(product.getDiscount())
+                .finalPrice(product.getFinalPrice())
+                .available(product.getAvailable())
+                .build();
+    }
+}
@@ -4,12 +4,16 @@ import com.cuackstore.commons.dto.ApiResponseDTO;
 import com.cuackstore.commons.dto.order.AvailabilityResponseDTO;
 import com.cuackstore.commons.dto.order.InventoryProductDTO;
 import com.cuackstore.commons.dto.order.StockOperationDTO;
+import com.cuackstore.commons.dto.order.StockReservationDTO;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 
+import java.util.List;
+
 @FeignClient(
         name = "msvc-inventory"
         //fallback = InventoryClientFallback.class
@@ -33,4 +37,10 @@ public interface InventoryClient {
             @PathVariable String hawa,
             @RequestBody StockOperationDTO stockOperation
     );
+
+    @PostMapping("/v1/inventory/products/stock/reserve")
+    ApiResponseDTO<List<InventoryProductDTO>> reserveStock(@RequestBody StockReservationDTO reservation);
+
+    @PostMapping("/v1/inventory/products/stock/release")
+    ApiResponseDTO<List<InventoryProductDTO>> releaseStock(@RequestBody StockReservationDTO reservation);
 }
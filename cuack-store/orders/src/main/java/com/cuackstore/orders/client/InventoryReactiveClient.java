@@ -0,0 +1,35 @@
+package com.cuackstore.orders.client;
+
+import com.cuackstore.commons.dto.ApiResponseDTO;
+import com.cuackstore.commons.dto.order.AvailabilityResponseDTO;
+import com.cuackstore.commons.dto.order.InventoryProductDTO;
+import com.cuackstore.commons.dto.order.StockOperationDTO;
+import com.cuackstore.commons.dto.order.StockReservationDTO;
+import com.cuackstore.commons.dto.products.ProductChangeDTO;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Contraparte no bloqueante de {@link InventoryClient}: la usa el modo inventory.client.mode=webclient
+ * y el canal de cambios del catálogo
+ */
+public interface InventoryReactiveClient {
+
+    Mono<ApiResponseDTO<InventoryProductDTO>> getProductByHawa(String hawa);
+
+    Mono<ApiResponseDTO<AvailabilityResponseDTO>> checkAvailability(String hawa);
+
+    Mono<ApiResponseDTO<InventoryProductDTO>> decrementStock(String hawa, StockOperationDTO stockOperation);
+
+    Mono<ApiResponseDTO<InventoryProductDTO>> incrementStock(String hawa, StockOperationDTO stockOperation);
+
+    Mono<ApiResponseDTO<List<InventoryProductDTO>>> reserveStock(StockReservationDTO reservation);
+
+    Mono<ApiResponseDTO<List<InventoryProductDTO>>> releaseStock(StockReservationDTO reservation);
+
+    Mono<ApiResponseDTO<List<ProductChangeDTO>>> getProductChanges(long after);
+
+    Flux<ProductChangeDTO> streamProductChanges(long after);
+}
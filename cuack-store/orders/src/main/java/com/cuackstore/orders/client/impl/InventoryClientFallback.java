@@ -4,11 +4,13 @@ import com.cuackstore.commons.dto.ApiResponseDTO;
 import com.cuackstore.commons.dto.order.AvailabilityResponseDTO;
 import com.cuackstore.commons.dto.order.InventoryProductDTO;
 import com.cuackstore.commons.dto.order.StockOperationDTO;
+import com.cuackstore.commons.dto.order.StockReservationDTO;
 import com.cuackstore.orders.client.InventoryClient;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 @Component
 @Slf4j
@@ -47,4 +49,14 @@ public class InventoryClientFallback implements InventoryClient {
         return null;
     }
 
+    @Override
+    public ApiResponseDTO<List<InventoryProductDTO>> reserveStock(StockReservationDTO reservation) {
+        return null;
+    }
+
+    @Override
+    public ApiResponseDTO<List<InventoryProductDTO>> releaseStock(StockReservationDTO reservation) {
+        return null;
+    }
+
 }
@@ -0,0 +1,128 @@
+package com.cuackstore.orders.client.impl;
+
+import com.cuackstore.commons.dto.ApiResponseDTO;
+import com.cuackstore.commons.dto.order.AvailabilityResponseDTO;
+import com.cuackstore.commons.dto.order.InventoryProductDTO;
+import com.cuackstore.commons.dto.order.StockOperationDTO;
+import com.cuackstore.commons.dto.order.StockReservationDTO;
+import com.cuackstore.commons.dto.products.ProductChangeDTO;
+import com.cuackstore.commons.exceptions.BusinessException;
+import com.cuackstore.orders.client.InventoryReactiveClient;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class InventoryReactiveClientImpl implements InventoryReactiveClient {
+
+    private static final ParameterizedTypeReference<ApiResponseDTO<InventoryProductDTO>> PRODUCT_RESPONSE =
+            new ParameterizedTypeReference<>() {};
+    private static final ParameterizedTypeReference<ApiResponseDTO<AvailabilityResponseDTO>> AVAILABILITY_RESPONSE =
+            new ParameterizedTypeReference<>() {};
+    private static final ParameterizedTypeReference<ApiResponseDTO<List<InventoryProductDTO>>> PRODUCT_LIST_RESPONSE =
+            new ParameterizedTypeReference<>() {};
+    private static final ParameterizedTypeReference<ApiResponseDTO<List<ProductChangeDTO>>> CHANGE_LIST_RESPONSE =
+            new ParameterizedTypeReference<>() {};
+
+    private final WebClient inventoryWebClient;
+
+    @Override
+    public Mono<ApiResponseDTO<InventoryProductDTO>> getProductByHawa(String hawa) {
+        return inventoryWebClient.get()
+                .uri("/v1/inventory/product/{hawa}", hawa)
+                .retrieve()
+                .onStatus(status -> status.isError(), this::toException)
+                .bodyToMono(PRODUCT_RESPONSE);
+    }
+
+    @Override
+    public Mono<ApiResponseDTO<AvailabilityResponseDTO>> checkAvailability(String hawa) {
+        return inventoryWebClient.get()
+                .uri("/api/v1/inventory/product/{hawa}/availability", hawa)
+                .retrieve()
+                .onStatus(status -> status.isError(), this::toException)
+                .bodyToMono(AVAILABILITY_RESPONSE);
+    }
+
+    @Override
+    public Mono<ApiResponseDTO<InventoryProductDTO>> decrementStock(String hawa, StockOperationDTO stockOperation) {
+        return exchange(HttpMethod.PUT, "/v1/inventory/product/{hawa}/stock/decrement", stockOperation, PRODUCT_RESPONSE, hawa);
+    }
+
+    @Override
+    public Mono<ApiResponseDTO<InventoryProductDTO>> incrementStock(String hawa, StockOperationDTO stockOperation) {
+        return exchange(HttpMethod.PUT, "/v1/inventory/product/{hawa}/stock/increment", stockOperation, PRODUCT_RESPONSE, hawa);
+    }
+
+    @Override
+    public Mono<ApiResponseDTO<List<InventoryProductDTO>>> reserveStock(StockReservationDTO reservation) {
+        return exchange(HttpMethod.POST, "/v1/inventory/products/stock/reserve", reservation, PRODUCT_LIST_RESPONSE);
+    }
+
+    @Override
+    public Mono<ApiResponseDTO<List<InventoryProductDTO>>> releaseStock(StockReservationDTO reservation) {
+        return exchange(HttpMethod.POST, "/v1/inventory/products/stock/release", reservation, PRODUCT_LIST_RESPONSE);
+    }
+
+    @Override
+    public Mono<ApiResponseDTO<List<ProductChangeDTO>>> getProductChanges(long after) {
+        return inventoryWebClient.get()
+                .uri("/v1/inventory/products/changes?after={after}", after)
+                .retrieve()
+                .onStatus(status -> status.isError(), this::toException)
+                .bodyToMono(CHANGE_LIST_RESPONSE);
+    }
+
+    @Override
+    public Flux<ProductChangeDTO> streamProductChanges(long after) {
+        return inventoryWebClient.get()
+                .uri("/v1/inventory/products/changes/stream?after={after}", after)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .retrieve()
+                .onStatus(status -> status.isError(), this::toException)
+                .bodyToFlux(ProductChangeDTO.class);
+    }
+
+    private <T> Mono<T> exchange(HttpMethod method, String uri, Object body,
+                                 ParameterizedTypeReference<T> responseType, Object... uriVariables) {
+        return inventoryWebClient.method(method)
+                .uri(uri, uriVariables)
+                .bodyValue(body)
+                .retrieve()
+                .onStatus(status -> status.isError(), this::toException)
+                .bodyToMono(responseType);
+    }
+
+    /**
+     * Mismo mapeo de errores que el ErrorDecoder de Feign
+     */
+    private Mono<? extends Throwable> toException(ClientResponse response) {
+        log.error("Error en WebClient de inventario - Status: {}", response.statusCode());
+
+        switch (response.statusCode()) {
+            case NOT_FOUND:
+                return Mono.error(new RuntimeException("Recurso no encontrado"));
+            case BAD_REQUEST:
+                return Mono.error(new RuntimeException("Petición inválida"));
+            case CONFLICT:
+                return Mono.error(new BusinessException("Stock insuficiente o producto no disponible", response.statusCode()));
+            case INTERNAL_SERVER_ERROR:
+                return Mono.error(new RuntimeException("Error interno del servidor"));
+            case SERVICE_UNAVAILABLE:
+                return Mono.error(new RuntimeException("Servicio no disponible temporalmente"));
+            default:
+                return Mono.error(new RuntimeException("Error de comunicación: " + response.statusCode()));
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.cuackstore.orders.config;
+
+import com.cuackstore.orders.datasource.ReadReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Pools orders-primary (spring.datasource) y orders-replica (orders.datasource.replica).
+ * Ambos quedan como beans para que actuator publique hikaricp.* por pool.
+ * Con orders.datasource.replica-enabled=false todo vuelve a ir al primario.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+    }
+
+    @Bean
+    @ConfigurationProperties("orders.datasource.replica")
+    @ConditionalOnProperty(name = "orders.datasource.replica-enabled", havingValue = "true")
+    public HikariDataSource replicaDataSource() {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("orders-replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    @ConditionalOnProperty(name = "orders.datasource.replica-enabled", havingValue = "true")
+    public DataSource routingDataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                        @Qualifier("replicaDataSource") DataSource replica,
+                                        MeterRegistry meterRegistry) {
+        ReadReplicaRoutingDataSource routing = new ReadReplicaRoutingDataSource(primary, replica, meterRegistry);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+}
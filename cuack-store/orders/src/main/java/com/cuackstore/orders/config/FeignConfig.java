@@ -1,5 +1,6 @@
 package com.cuackstore.orders.config;
 
+import com.cuackstore.commons.exceptions.BusinessException;
 import feign.Logger;
 import feign.codec.ErrorDecoder;
 import lombok.extern.slf4j.Slf4j;
@@ -35,6 +36,8 @@ public class FeignConfig {
                     return new RuntimeException("Recurso no encontrado");
                 case BAD_REQUEST:
                     return new RuntimeException("Petición inválida");
+                case CONFLICT:
+                    return new BusinessException("Stock insuficiente o producto no disponible", HttpStatus.CONFLICT);
                 case INTERNAL_SERVER_ERROR:
                     return new RuntimeException("Error interno del servidor");
                 case SERVICE_UNAVAILABLE:
@@ -0,0 +1,28 @@
+package com.cuackstore.orders.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.loadbalancer.LoadBalanced;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.client.WebClient;
+
+@Configuration
+public class WebClientConfig {
+
+    /**
+     * Builder balanceado por Eureka para resolver lb://msvc-inventory
+     */
+    @Bean
+    @LoadBalanced
+    WebClient.Builder loadBalancedWebClientBuilder() {
+        return WebClient.builder();
+    }
+
+    @Bean
+    public WebClient inventoryWebClient(WebClient.Builder loadBalancedWebClientBuilder,
+                                        @Value("${inventory.client.base-url:http://msvc-inventory}") String baseUrl) {
+        return loadBalancedWebClientBuilder
+                .baseUrl(baseUrl)
+                .build();
+    }
+}
@@ -2,8 +2,12 @@ package com.cuackstore.orders.controller;
 
 import com.cuackstore.commons.dto.ApiResponseDTO;
 import com.cuackstore.commons.dto.order.*;
+import com.cuackstore.commons.enums.OrderExportFormat;
 import com.cuackstore.commons.enums.OrderStatus;
+import com.cuackstore.commons.exceptions.BusinessException;
 import com.cuackstore.orders.business.OrderBusiness;
+import com.cuackstore.orders.service.IdempotencyService;
+import com.cuackstore.orders.service.OrderExportService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import lombok.RequiredArgsConstructor;
@@ -11,17 +15,28 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
+import javax.validation.constraints.Size;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/v1/orders")
@@ -30,6 +45,8 @@ import java.util.List;
 @Slf4j
 public class OrderController {
     private final OrderBusiness orderService;
+    private final IdempotencyService idempotencyService;
+    private final OrderExportService orderExportService;
 
 
     @PostMapping
@@ -38,15 +55,25 @@ public class OrderController {
     )
     public ResponseEntity<?> createOrder(
             @Valid @RequestBody OrderCreateDTO createDTO,
+            @RequestHeader(value = "Idempotency-Key", required = false) @Size(max = 100) String idempotencyKey,
             HttpServletRequest request) {
 
         log.info("POST /api/orders - Creando pedido para cliente: {}", createDTO.getCustomer().getName());
 
         // Capturar IP del usuario
         String userIp = getClientIpAddress(request);
-        createDTO.setUserIp(userIp);
 
-        OrderResponseDTO order = orderService.createOrder(createDTO);
+        OrderResponseDTO order;
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            createDTO.setUserIp(userIp);
+            order = orderService.createOrder(createDTO);
+        } else {
+            // La huella se calcula antes de asignar la IP: un reintento puede llegar por otro proxy
+            order = idempotencyService.execute(idempotencyKey, createDTO, () -> {
+                createDTO.setUserIp(userIp);
+                return orderService.createOrder(createDTO);
+            }, orderService::getOrderById);
+        }
 
         log.info("Pedido creado exitosamente con ID: {}", order.getId());
         return ResponseEntity.status(HttpStatus.CREATED)
@@ -73,14 +100,66 @@ public class OrderController {
 
     }
 
+    @GetMapping("/cursor")
+    @Operation(
+            security = @SecurityRequirement(name = "bearer-jwt")
+    )
+    public ResponseEntity<?> getOrdersByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") @Positive @Max(200) Integer size,
+            @RequestParam(required = false) OrderStatus status,
+            @RequestParam(required = false) String storeId) {
+
+        log.info("GET /api/orders/cursor - Tamaño: {}, Estatus: {}, Tienda: {}", size, status, storeId);
+
+        OrderSliceDTO orders = orderService.getOrdersSlice(cursor, size, status, storeId);
+
+        return ResponseEntity.ok(
+                ApiResponseDTO.handleBuild(orders, "Pedidos obtenidos exitosamente")
+        );
+
+    }
+
+    @GetMapping("/export")
+    @Operation(
+            security = @SecurityRequirement(name = "bearer-jwt")
+    )
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(defaultValue = "NDJSON") OrderExportFormat format) {
+
+        log.info("GET /api/orders/export - Rango: {} a {}, Formato: {}", startDate, endDate, format);
+
+        if (!startDate.isBefore(endDate)) {
+            throw new BusinessException("La fecha inicial debe ser anterior a la final", HttpStatus.BAD_REQUEST);
+        }
+
+        boolean csv = format == OrderExportFormat.CSV;
+        String fileName = "orders-" + startDate.toLocalDate() + "-" + endDate.toLocalDate() + (csv ? ".csv" : ".ndjson");
+
+        StreamingResponseBody body = out -> orderExportService.export(startDate, endDate, format, out);
+
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8) : MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .body(body);
+    }
 
     @GetMapping("/{id}")
     @Operation(
             security = @SecurityRequirement(name = "bearer-jwt")
     )
-    public ResponseEntity<?> getOrderById(@PathVariable @Positive Long id) {
+    public ResponseEntity<?> getOrderById(@PathVariable @Positive Long id, WebRequest webRequest) {
         log.info("GET /api/orders/{} - Obteniendo detalle del pedido", id);
 
+        // ETag fuerte por versión del pedido y por si aún puede cancelarse. Si coincide con
+        // If-None-Match se responde 304 sin cargar items ni serializar
+        Optional<String> eTag = orderService.getOrderETag(id);
+        if (eTag.isPresent() && webRequest.checkNotModified("\"" + eTag.get() + "\"")) {
+            return null;
+        }
+
         OrderResponseDTO order = orderService.getOrderById(id);
 
         return ResponseEntity.ok(
@@ -105,6 +184,23 @@ public class OrderController {
         );
     }
 
+    @PutMapping("/status")
+    @Operation(
+            security = @SecurityRequirement(name = "bearer-jwt")
+    )
+    public ResponseEntity<?> updateOrdersStatus(
+            @Valid @RequestBody OrderBulkStatusUpdateDTO statusDTO) {
+
+        log.info("PUT /api/orders/status - Cambiando estatus de {} pedidos a: {}",
+                statusDTO.getOrderIds().size(), statusDTO.getStatus());
+
+        OrderBulkStatusResultDTO result = orderService.updateOrdersStatus(statusDTO);
+
+        return ResponseEntity.ok(
+                ApiResponseDTO.handleBuild(result, "Cambio de estatus masivo procesado")
+        );
+    }
+
     @GetMapping("/status/{status}")
     @Operation(
             security = @SecurityRequirement(name = "bearer-jwt")
@@ -126,11 +222,13 @@ public class OrderController {
             security = @SecurityRequirement(name = "bearer-jwt")
     )
     public ResponseEntity<ApiResponseDTO<List<OrderSummaryDTO>>> searchOrdersByCustomer(
-            @RequestParam @NotBlank String name) {
+            @RequestParam @NotBlank @Size(max = 200) String name,
+            @RequestParam(defaultValue = "0") @PositiveOrZero Integer page,
+            @RequestParam(defaultValue = "20") @Positive @Max(200) Integer size) {
 
-        log.info("GET /api/orders/search/customer?name={}", name);
+        log.info("GET /api/orders/search/customer?name={} - Página: {}, Tamaño: {}", name, page, size);
 
-        List<OrderSummaryDTO> orders = orderService.searchOrdersByCustomer(name);
+        List<OrderSummaryDTO> orders = orderService.searchOrdersByCustomer(name, page, size);
 
         return ResponseEntity.ok(
                 ApiResponseDTO.handleBuild(orders, "Pedidos del cliente encontrados exitosamente")
@@ -143,11 +241,13 @@ public class OrderController {
             security = @SecurityRequirement(name = "bearer-jwt")
     )
     public ResponseEntity<ApiResponseDTO<List<OrderSummaryDTO>>> searchOrdersBySeller(
-            @RequestParam @NotBlank String name) {
+            @RequestParam @NotBlank @Size(max = 200) String name,
+            @RequestParam(defaultValue = "0") @PositiveOrZero Integer page,
+            @RequestParam(defaultValue = "20") @Positive @Max(200) Integer size) {
 
-        log.info("GET /api/orders/search/seller?name={}", name);
+        log.info("GET /api/orders/search/seller?name={} - Página: {}, Tamaño: {}", name, page, size);
 
-        List<OrderSummaryDTO> orders = orderService.searchOrdersBySeller(name);
+        List<OrderSummaryDTO> orders = orderService.searchOrdersBySeller(name, page, size);
 
         return ResponseEntity.ok(
                 ApiResponseDTO.handleBuild(orders, "Pedidos del vendedor encontrados exitosamente")
@@ -159,10 +259,13 @@ public class OrderController {
     @Operation(
             security = @SecurityRequirement(name = "bearer-jwt")
     )
-    public ResponseEntity<?> getOrderStatistics() {
-        log.info("GET /api/orders/stats - Obteniendo estadísticas");
+    public ResponseEntity<?> getOrderStatistics(
+            @RequestParam(required = false) String storeId) {
+        log.info("GET /api/orders/stats - Obteniendo estadísticas (tienda: {})", storeId);
 
-        OrderStatsDTO stats = orderService.getOrderStatistics();
+        OrderStatsDTO stats = storeId == null
+                ? orderService.getOrderStatistics()
+                : orderService.getOrderStatistics(storeId);
 
         return ResponseEntity.ok(
                 ApiResponseDTO.handleBuild(stats, "Estadísticas obtenidas exitosamente")
@@ -170,6 +273,59 @@ public class OrderController {
 
     }
 
+    @GetMapping("/stats/stores")
+    @Operation(
+            security = @SecurityRequirement(name = "bearer-jwt")
+    )
+    public ResponseEntity<?> getOrderStatisticsByStore() {
+        log.info("GET /api/orders/stats/stores - Obteniendo estadísticas por tienda");
+
+        List<OrderStatsDTO> stats = orderService.getOrderStatisticsByStore();
+
+        return ResponseEntity.ok(
+                ApiResponseDTO.handleBuild(stats, "Estadísticas por tienda obtenidas exitosamente")
+        );
+
+    }
+
+    @GetMapping("/reports/product-sales")
+    @Operation(
+            security = @SecurityRequirement(name = "bearer-jwt")
+    )
+    public ResponseEntity<ApiResponseDTO<List<ProductSalesDTO>>> getProductSales(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) String storeId,
+            @RequestParam(defaultValue = "20") @Positive @Max(500) Integer limit) {
+
+        log.info("GET /api/orders/reports/product-sales - Rango: {} a {}, Tienda: {}", startDate, endDate, storeId);
+
+        List<ProductSalesDTO> sales = orderService.getProductSales(startDate, endDate, storeId, limit);
+
+        return ResponseEntity.ok(
+                ApiResponseDTO.handleBuild(sales, "Ventas por producto obtenidas exitosamente")
+        );
+
+    }
+
+    @PostMapping("/reports/product-sales/rebuild")
+    @Operation(
+            security = @SecurityRequirement(name = "bearer-jwt")
+    )
+    public ResponseEntity<?> rebuildProductSales(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+
+        log.info("POST /api/orders/reports/product-sales/rebuild - Rango: {} a {}", startDate, endDate);
+
+        int rows = orderService.rebuildProductSales(startDate, endDate);
+
+        return ResponseEntity.ok(
+                ApiResponseDTO.handleBuild(rows, "Ventas por producto recalculadas exitosamente")
+        );
+
+    }
+
     @GetMapping("/health")
     public ResponseEntity<ApiResponseDTO<String>> healthCheck() {
         return ResponseEntity.ok(
@@ -0,0 +1,6 @@
+package com.cuackstore.orders.datasource;
+
+public enum DataSourceRoute {
+    PRIMARY,
+    REPLICA
+}
@@ -0,0 +1,25 @@
+package com.cuackstore.orders.datasource;
+
+/**
+ * Marca el hilo actual para que sus transacciones de solo lectura vayan al primario.
+ * La usa {@link ReadYourWritesFilter} cuando el cliente acaba de escribir.
+ */
+public final class ReadConsistencyContext {
+
+    private static final ThreadLocal<Boolean> PRIMARY_PINNED = new ThreadLocal<>();
+
+    private ReadConsistencyContext() {
+    }
+
+    public static void pinToPrimary() {
+        PRIMARY_PINNED.set(Boolean.TRUE);
+    }
+
+    public static boolean isPinnedToPrimary() {
+        return PRIMARY_PINNED.get() != null;
+    }
+
+    public static void clear() {
+        PRIMARY_PINNED.remove();
+    }
+}
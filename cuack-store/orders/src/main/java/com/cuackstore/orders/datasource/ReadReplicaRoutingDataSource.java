@@ -0,0 +1,46 @@
+package com.cuackstore.orders.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Envía las transacciones readOnly a la réplica y todo lo demás al primario. Debe ir detrás de
+ * un LazyConnectionDataSourceProxy: la conexión se pide en la primera sentencia, cuando el
+ * flag readOnly de la transacción ya está publicado.
+ * Métrica orders.datasource.route con route=PRIMARY|REPLICA por conexión entregada.
+ */
+public class ReadReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private final Map<DataSourceRoute, Counter> routeCounters = new EnumMap<>(DataSourceRoute.class);
+
+    public ReadReplicaRoutingDataSource(DataSource primary, DataSource replica, MeterRegistry meterRegistry) {
+        Map<Object, Object> targets = Map.of(
+                DataSourceRoute.PRIMARY, primary,
+                DataSourceRoute.REPLICA, replica);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+
+        for (DataSourceRoute route : DataSourceRoute.values()) {
+            routeCounters.put(route, Counter.builder("orders.datasource.route")
+                    .description("Conexiones entregadas por destino")
+                    .tag("route", route.name())
+                    .register(meterRegistry));
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        DataSourceRoute route = TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && !ReadConsistencyContext.isPinnedToPrimary()
+                ? DataSourceRoute.REPLICA
+                : DataSourceRoute.PRIMARY;
+        routeCounters.get(route).increment();
+        return route;
+    }
+}
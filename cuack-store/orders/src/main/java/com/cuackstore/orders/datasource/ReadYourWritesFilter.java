@@ -0,0 +1,65 @@
+package com.cuackstore.orders.datasource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Guarda contra lecturas atrasadas: toda escritura deja una cookie con vida igual al retraso
+ * tolerado de la réplica; mientras el cliente la envíe, sus lecturas van al primario.
+ * Los clientes sin cookies pueden pedir lo mismo con el header X-Read-Consistency: primary.
+ */
+@Component
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String PIN_COOKIE = "orders-read-primary";
+    static final String CONSISTENCY_HEADER = "X-Read-Consistency";
+
+    private final int pinSeconds;
+
+    public ReadYourWritesFilter(@Value("${orders.datasource.pin-after-write:5s}") Duration pinAfterWrite) {
+        this.pinSeconds = (int) Math.max(1, pinAfterWrite.getSeconds());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        boolean write = !isSafeMethod(request.getMethod());
+        if (write) {
+            // La cookie se agrega antes de procesar: después la respuesta ya puede estar enviada
+            Cookie cookie = new Cookie(PIN_COOKIE, "1");
+            cookie.setMaxAge(pinSeconds);
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            response.addCookie(cookie);
+        }
+
+        if (write
+                || WebUtils.getCookie(request, PIN_COOKIE) != null
+                || "primary".equalsIgnoreCase(request.getHeader(CONSISTENCY_HEADER))) {
+            ReadConsistencyContext.pinToPrimary();
+        }
+
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReadConsistencyContext.clear();
+        }
+    }
+
+    private boolean isSafeMethod(String method) {
+        return HttpMethod.GET.matches(method)
+                || HttpMethod.HEAD.matches(method)
+                || HttpMethod.OPTIONS.matches(method);
+    }
+}
@@ -1,6 +1,7 @@
 package com.cuackstore.orders.entity;
 
 import com.cuackstore.commons.enums.OrderStatus;
+import com.cuackstore.commons.money.Money;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -11,7 +12,7 @@ import org.hibernate.annotations.UpdateTimestamp;
 import javax.persistence.*;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
-import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -24,8 +25,10 @@ import java.util.List;
 @AllArgsConstructor
 public class Order {
 
+    // Secuencia con optimizador pooled: IDENTITY impide que Hibernate agrupe los INSERT en lotes
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = 50)
     private Long id;
 
     @CreationTimestamp
@@ -58,15 +61,24 @@ public class Order {
 
     @Column(name = "subtotal", precision = 12, scale = 2)
     @Builder.Default
-    private BigDecimal subtotal = BigDecimal.ZERO;
+    private Money subtotal = Money.ZERO;
 
     @Column(name = "total_discount", precision = 12, scale = 2)
     @Builder.Default
-    private BigDecimal totalDiscount = BigDecimal.ZERO;
+    private Money totalDiscount = Money.ZERO;
 
     @Column(name = "total", precision = 12, scale = 2)
     @Builder.Default
-    private BigDecimal total = BigDecimal.ZERO;
+    private Money total = Money.ZERO;
+
+    // Desnormalizados para que los listados no tengan que cargar los items
+    @Column(name = "item_count")
+    @Builder.Default
+    private Integer itemCount = 0;
+
+    @Column(name = "total_quantity")
+    @Builder.Default
+    private Integer totalQuantity = 0;
 
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @Builder.Default
@@ -75,37 +87,56 @@ public class Order {
     @Column(name = "comments", length = 1000)
     private String comments;
 
-    // Métodos de utilidad
-    public boolean canBeCancelled() {
+    // Control de concurrencia con la expiración automática y otros nodos
+    @Version
+    @Column(name = "version", nullable = false)
+    @Builder.Default
+    private Long version = 0L;
+
+    // Stock pendiente de devolver al inventario tras una expiración; solo lo escribe OrderExpiryService
+    @Column(name = "stock_return_pending", nullable = false, updatable = false)
+    @Builder.Default
+    private Boolean stockReturnPending = false;
+
+    @Column(name = "stock_return_lease_until", updatable = false)
+    private LocalDateTime stockReturnLeaseUntil;
+
+    // Métodos de utilidad. cancelWindow es orders.expiry.expire-after, el mismo plazo que usa la expiración
+    public boolean canBeCancelled(Duration cancelWindow) {
+        return canBeCancelled(status, createdAt, cancelWindow);
+    }
+
+    public static boolean canBeCancelled(OrderStatus status, LocalDateTime createdAt, Duration cancelWindow) {
         if (status != OrderStatus.PENDIENTE) {
             return false;
         }
-        // Verificar que no hayan pasado más de 10 minutos
-        LocalDateTime tenMinutesAgo = LocalDateTime.now().minusMinutes(10);
-        return createdAt.isAfter(tenMinutesAgo);
+        return createdAt.isAfter(LocalDateTime.now().minus(cancelWindow));
     }
 
+    // Subtotal = suma de importes brutos, total = subtotal - descuentos
     public void calculateTotals() {
-        this.subtotal = items.stream()
-                .map(OrderItem::getSubtotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        this.totalDiscount = items.stream()
-                .map(OrderItem::getDiscountAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        this.total = subtotal.subtract(totalDiscount);
+        this.subtotal = Money.ZERO;
+        this.totalDiscount = Money.ZERO;
+        this.itemCount = 0;
+        this.totalQuantity = 0;
+        for (OrderItem item : items) {
+            accumulate(item);
+        }
+        this.total = subtotal.minus(totalDiscount);
     }
 
     public void addItem(OrderItem item) {
+        item.calculateAmounts();
         items.add(item);
         item.setOrder(this);
-        calculateTotals();
+        accumulate(item);
+        this.total = subtotal.minus(totalDiscount);
     }
 
-    public int getTotalQuantity() {
-        return items.stream()
-                .mapToInt(OrderItem::getQuantity)
-                .sum();
+    private void accumulate(OrderItem item) {
+        this.subtotal = subtotal.plus(item.getSubtotal()).plus(item.getDiscountAmount());
+        this.totalDiscount = totalDiscount.plus(item.getDiscountAmount());
+        this.itemCount = itemCount + 1;
+        this.totalQuantity = totalQuantity + item.getQuantity();
     }
 }
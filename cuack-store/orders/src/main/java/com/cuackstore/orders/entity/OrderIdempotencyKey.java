@@ -0,0 +1,50 @@
+package com.cuackstore.orders.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "order_idempotency_keys")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderIdempotencyKey {
+
+    public enum Status {
+        PROCESANDO,
+        COMPLETADO
+    }
+
+    @Id
+    @Column(name = "idempotency_key", length = 100)
+    private String idempotencyKey;
+
+    // SHA-256 del cuerpo de la petición, para rechazar la misma llave con otro pedido
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private Status status;
+
+    @Column(name = "order_id")
+    private Long orderId;
+
+    @Lob
+    @Column(name = "response")
+    private String response;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+}
@@ -1,5 +1,6 @@
 package com.cuackstore.orders.entity;
 
+import com.cuackstore.commons.money.Money;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -19,7 +20,8 @@ import java.math.BigDecimal;
 public class OrderItem {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_items_seq")
+    @SequenceGenerator(name = "order_items_seq", sequenceName = "order_items_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -40,7 +42,7 @@ public class OrderItem {
 
     @Column(name = "unit_price", nullable = false, precision = 10, scale = 2)
     @NotNull(message = "Precio unitario es requerido")
-    private BigDecimal unitPrice;
+    private Money unitPrice;
 
     @Column(name = "discount_percentage", precision = 5, scale = 2)
     @Builder.Default
@@ -48,40 +50,35 @@ public class OrderItem {
 
     @Column(name = "discount_amount", precision = 10, scale = 2)
     @Builder.Default
-    private BigDecimal discountAmount = BigDecimal.ZERO;
+    private Money discountAmount = Money.ZERO;
 
     @Column(name = "subtotal", precision = 12, scale = 2)
     @Builder.Default
-    private BigDecimal subtotal = BigDecimal.ZERO;
+    private Money subtotal = Money.ZERO;
 
     // Métodos de cálculo
-    public BigDecimal calculateDiscountAmount() {
-        if (discountPercentage == null || discountPercentage.compareTo(BigDecimal.ZERO) == 0) {
-            return BigDecimal.ZERO;
-        }
-        return unitPrice.multiply(discountPercentage)
-                .divide(BigDecimal.valueOf(100))
-                .multiply(BigDecimal.valueOf(quantity));
+    public Money calculateGrossAmount() {
+        return unitPrice.times(quantity);
     }
 
-    public BigDecimal calculateSubtotal() {
-        BigDecimal totalBeforeDiscount = unitPrice.multiply(BigDecimal.valueOf(quantity));
-        return totalBeforeDiscount.subtract(calculateDiscountAmount());
+    public Money calculateDiscountAmount() {
+        return calculateGrossAmount().percentage(discountPercentage);
     }
 
-    public BigDecimal getFinalUnitPrice() {
-        if (discountPercentage == null || discountPercentage.compareTo(BigDecimal.ZERO) == 0) {
-            return unitPrice;
-        }
-        BigDecimal discountPerUnit = unitPrice.multiply(discountPercentage).divide(BigDecimal.valueOf(100));
-        return unitPrice.subtract(discountPerUnit);
+    public Money calculateSubtotal() {
+        return calculateGrossAmount().minus(calculateDiscountAmount());
     }
 
-    // PrePersist y PreUpdate para calcular automáticamente
+    public Money getFinalUnitPrice() {
+        return unitPrice.minus(unitPrice.percentage(discountPercentage));
+    }
+
+    // Se invoca al agregarse al pedido y de nuevo en PrePersist/PreUpdate por si cambió algún dato
     @PrePersist
     @PreUpdate
     public void calculateAmounts() {
-        this.discountAmount = calculateDiscountAmount();
-        this.subtotal = calculateSubtotal();
+        Money gross = calculateGrossAmount();
+        this.discountAmount = gross.percentage(discountPercentage);
+        this.subtotal = gross.minus(discountAmount);
     }
 }
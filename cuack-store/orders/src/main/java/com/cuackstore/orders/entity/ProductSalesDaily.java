@@ -0,0 +1,53 @@
+package com.cuackstore.orders.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Ventas acumuladas por producto, tienda y día. Excluye pedidos cancelados.
+ */
+@Entity
+@Table(name = "product_sales_daily",
+        uniqueConstraints = @UniqueConstraint(name = "UQ_product_sales_daily",
+                columnNames = {"sales_date", "store_id", "product_hawa"}))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSalesDaily {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "sales_date", nullable = false)
+    private LocalDate salesDate;
+
+    @Column(name = "store_id", nullable = false, length = 50)
+    private String storeId;
+
+    @Column(name = "product_hawa", nullable = false, length = 50)
+    private String productHawa;
+
+    @Column(name = "product_name", nullable = false, length = 200)
+    private String productName;
+
+    @Column(name = "quantity_sold", nullable = false)
+    @Builder.Default
+    private Long quantitySold = 0L;
+
+    // Pedidos distintos que incluyen el producto
+    @Column(name = "order_count", nullable = false)
+    @Builder.Default
+    private Long orderCount = 0L;
+
+    @Column(name = "revenue", nullable = false, precision = 14, scale = 2)
+    @Builder.Default
+    private BigDecimal revenue = BigDecimal.ZERO;
+}
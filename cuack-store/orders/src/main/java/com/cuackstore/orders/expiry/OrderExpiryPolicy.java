@@ -0,0 +1,13 @@
+package com.cuackstore.orders.expiry;
+
+/**
+ * Qué hacer con un pedido PENDIENTE cuando vence su plazo.
+ */
+public enum OrderExpiryPolicy {
+    // Se cancela y su stock vuelve al inventario
+    CANCEL,
+    // Se da por entregado; el stock queda descontado
+    DELIVER,
+    // Sin expiración automática
+    NONE
+}
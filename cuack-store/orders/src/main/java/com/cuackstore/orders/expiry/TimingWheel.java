@@ -0,0 +1,119 @@
+package com.cuackstore.orders.expiry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Rueda de tiempos jerárquica: cada nivel tiene wheelSize ranuras de tickMillis y los plazos que no
+ * caben en el nivel se delegan a uno superior cuya ranura mide una vuelta completa del inferior.
+ * Al avanzar, las ranuras vencidas de los niveles superiores se reinsertan en la raíz, que es la
+ * única que entrega elementos. Agregar y vencer son O(1) por elemento.
+ * No es segura para hilos por sí misma; el dueño sincroniza el acceso.
+ */
+public class TimingWheel<T> {
+
+    private final long tickMillis;
+    private final int wheelSize;
+    private final long intervalMillis;
+    // Ranuras creadas al primer uso; null mientras están vacías
+    private final List<List<Entry<T>>> buckets;
+
+    private long currentTime;
+    private TimingWheel<T> overflowWheel;
+    private int size;
+
+    public TimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis <= 0 || wheelSize <= 1) {
+            throw new IllegalArgumentException("tickMillis debe ser positivo y wheelSize mayor a 1");
+        }
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.intervalMillis = tickMillis * wheelSize;
+        this.buckets = new ArrayList<>(Collections.nCopies(wheelSize, null));
+        this.currentTime = startMillis - (startMillis % tickMillis);
+    }
+
+    /**
+     * Agrega un elemento con su plazo. Si el plazo cae en la ranura actual no se guarda y devuelve false:
+     * el llamador debe tratarlo como vencido.
+     */
+    public boolean add(T item, long deadlineMillis) {
+        if (!place(item, deadlineMillis)) {
+            return false;
+        }
+        size++;
+        return true;
+    }
+
+    /**
+     * Avanza el reloj hasta nowMillis entregando cada elemento vencido a onExpired.
+     */
+    public void advance(long nowMillis, Consumer<T> onExpired) {
+        advance(nowMillis, this, onExpired);
+    }
+
+    /**
+     * Elementos pendientes en todos los niveles; solo se lleva en la raíz.
+     */
+    public int size() {
+        return size;
+    }
+
+    private void advance(long nowMillis, TimingWheel<T> root, Consumer<T> onExpired) {
+        while (currentTime + tickMillis <= nowMillis) {
+            currentTime += tickMillis;
+            if (overflowWheel != null) {
+                overflowWheel.advance(currentTime, root, onExpired);
+            }
+            int index = (int) ((currentTime / tickMillis) % wheelSize);
+            List<Entry<T>> bucket = buckets.get(index);
+            if (bucket == null) {
+                continue;
+            }
+            buckets.set(index, null);
+            for (Entry<T> entry : bucket) {
+                // Baja al nivel que le corresponde o, si ya llegó su ranura, se entrega
+                if (!root.place(entry.item, entry.deadline)) {
+                    root.size--;
+                    onExpired.accept(entry.item);
+                }
+            }
+        }
+    }
+
+    private boolean place(T item, long deadlineMillis) {
+        if (deadlineMillis < currentTime + tickMillis) {
+            return false;
+        }
+        if (deadlineMillis < currentTime + intervalMillis) {
+            int index = (int) ((deadlineMillis / tickMillis) % wheelSize);
+            List<Entry<T>> bucket = buckets.get(index);
+            if (bucket == null) {
+                bucket = new ArrayList<>();
+                buckets.set(index, bucket);
+            }
+            bucket.add(new Entry<>(item, deadlineMillis));
+            return true;
+        }
+        return overflow().place(item, deadlineMillis);
+    }
+
+    private TimingWheel<T> overflow() {
+        if (overflowWheel == null) {
+            overflowWheel = new TimingWheel<>(intervalMillis, wheelSize, currentTime);
+        }
+        return overflowWheel;
+    }
+
+    private static final class Entry<T> {
+        private final T item;
+        private final long deadline;
+
+        private Entry(T item, long deadline) {
+            this.item = item;
+            this.deadline = deadline;
+        }
+    }
+}
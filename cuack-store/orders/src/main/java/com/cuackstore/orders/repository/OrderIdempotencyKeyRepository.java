@@ -0,0 +1,34 @@
+package com.cuackstore.orders.repository;
+
+import com.cuackstore.orders.entity.OrderIdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface OrderIdempotencyKeyRepository extends JpaRepository<OrderIdempotencyKey, String> {
+
+    // Un reclamo con order_id ya tiene su pedido guardado: no se libera, se repite
+    @Modifying
+    @Query("DELETE FROM OrderIdempotencyKey k WHERE k.idempotencyKey = :key " +
+            "AND k.status = :status AND k.orderId IS NULL AND k.createdAt < :staleBefore")
+    int deleteStaleClaim(@Param("key") String key,
+                         @Param("status") OrderIdempotencyKey.Status status,
+                         @Param("staleBefore") LocalDateTime staleBefore);
+
+    @Modifying
+    @Query("DELETE FROM OrderIdempotencyKey k WHERE k.idempotencyKey = :key AND k.orderId IS NULL")
+    int deleteUnboundClaim(@Param("key") String key);
+
+    @Modifying
+    @Query("UPDATE OrderIdempotencyKey k SET k.orderId = :orderId WHERE k.idempotencyKey = :key")
+    int bindOrder(@Param("key") String key, @Param("orderId") Long orderId);
+
+    @Modifying
+    @Query("DELETE FROM OrderIdempotencyKey k WHERE k.createdAt < :cutoff")
+    int deleteByCreatedAtBefore(@Param("cutoff") LocalDateTime cutoff);
+}
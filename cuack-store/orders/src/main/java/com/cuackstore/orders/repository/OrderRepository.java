@@ -2,6 +2,8 @@ package com.cuackstore.orders.repository;
 
 import com.cuackstore.commons.enums.OrderStatus;
 import com.cuackstore.orders.entity.Order;
+import com.cuackstore.orders.repository.projection.OrderSummaryView;
+import com.cuackstore.orders.repository.projection.OrderVersionView;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -10,11 +12,19 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
 
+    String SUMMARY_SELECT = "SELECT o.id AS id, o.createdAt AS createdAt, o.storeId AS storeId, " +
+            "o.sellerName AS sellerName, o.customer.name AS customerName, o.customer.email AS customerEmail, " +
+            "o.status AS status, o.total AS total, " +
+            "COALESCE(o.itemCount, 0) AS itemCount, COALESCE(o.totalQuantity, 0) AS totalQuantity " +
+            "FROM Order o ";
+
     List<Order> findByStatusOrderByCreatedAtDesc(OrderStatus status);
 
     Page<Order> findAllByOrderByCreatedAtDesc(Pageable pageable);
@@ -30,4 +40,53 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
 
     long countByStatus(OrderStatus status);
 
+    @Query(value = SUMMARY_SELECT + "ORDER BY o.createdAt DESC",
+            countQuery = "SELECT COUNT(o) FROM Order o")
+    Page<OrderSummaryView> findAllSummaries(Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE o.status = :status ORDER BY o.createdAt DESC")
+    List<OrderSummaryView> findSummariesByStatus(@Param("status") OrderStatus status);
+
+    @Query("SELECT o.version AS version, o.status AS status, o.createdAt AS createdAt FROM Order o WHERE o.id = :id")
+    Optional<OrderVersionView> findVersionById(@Param("id") Long id);
+
+    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.items WHERE o.id IN :ids")
+    List<Order> findWithItemsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query(SUMMARY_SELECT + "WHERE o.id IN :ids")
+    List<OrderSummaryView> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Paginación por cursor sobre (created_at DESC, id DESC): la primera comparación permite el seek por índice
+    String SEEK_AFTER = "o.createdAt <= :createdAt AND (o.createdAt < :createdAt OR o.id < :id) ";
+    String SEEK_ORDER = "ORDER BY o.createdAt DESC, o.id DESC";
+
+    @Query(SUMMARY_SELECT + "WHERE " + SEEK_AFTER + SEEK_ORDER)
+    List<OrderSummaryView> findSummariesAfter(@Param("createdAt") LocalDateTime createdAt,
+                                              @Param("id") Long id,
+                                              Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE o.status = :status AND " + SEEK_AFTER + SEEK_ORDER)
+    List<OrderSummaryView> findSummariesByStatusAfter(@Param("status") OrderStatus status,
+                                                      @Param("createdAt") LocalDateTime createdAt,
+                                                      @Param("id") Long id,
+                                                      Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE o.storeId = :storeId AND " + SEEK_AFTER + SEEK_ORDER)
+    List<OrderSummaryView> findSummariesByStoreAfter(@Param("storeId") String storeId,
+                                                     @Param("createdAt") LocalDateTime createdAt,
+                                                     @Param("id") Long id,
+                                                     Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE o.storeId = :storeId AND o.status = :status AND " + SEEK_AFTER + SEEK_ORDER)
+    List<OrderSummaryView> findSummariesByStoreAndStatusAfter(@Param("storeId") String storeId,
+                                                              @Param("status") OrderStatus status,
+                                                              @Param("createdAt") LocalDateTime createdAt,
+                                                              @Param("id") Long id,
+                                                              Pageable pageable);
+
+    @Query(value = "SELECT o.store_id, o.status, COUNT(*), COALESCE(SUM(o.item_count), 0), COALESCE(SUM(o.total), 0) " +
+            "FROM orders o " +
+            "GROUP BY o.store_id, o.status", nativeQuery = true)
+    List<Object[]> getStatisticsByStoreAndStatus();
+
 }
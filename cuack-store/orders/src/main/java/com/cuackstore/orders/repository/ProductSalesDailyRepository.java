@@ -0,0 +1,85 @@
+package com.cuackstore.orders.repository;
+
+import com.cuackstore.orders.entity.ProductSalesDaily;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ProductSalesDailyRepository extends JpaRepository<ProductSalesDaily, Long> {
+
+    /**
+     * Suma (sign = 1) o resta (sign = -1) las líneas de un pedido en el acumulado de su día.
+     * lines: [{"hawa": "...", "name": "...", "quantity": 1, "revenue": 10.00}, ...]
+     */
+    @Modifying
+    @Query(value = "MERGE product_sales_daily WITH (HOLDLOCK) AS t " +
+            "USING (" +
+            "  SELECT l.hawa, MAX(l.name) AS name, SUM(l.quantity) AS quantity, SUM(l.revenue) AS revenue " +
+            "  FROM OPENJSON(:lines) WITH (hawa NVARCHAR(50) '$.hawa', name NVARCHAR(200) '$.name', " +
+            "                            quantity INT '$.quantity', revenue DECIMAL(14,2) '$.revenue') l " +
+            "  GROUP BY l.hawa" +
+            ") AS s " +
+            "ON t.sales_date = :salesDate AND t.store_id = :storeId AND t.product_hawa = s.hawa " +
+            "WHEN MATCHED THEN UPDATE SET " +
+            "  t.product_name = s.name, " +
+            "  t.quantity_sold = t.quantity_sold + :sign * s.quantity, " +
+            "  t.order_count = t.order_count + :sign, " +
+            "  t.revenue = t.revenue + :sign * s.revenue " +
+            "WHEN NOT MATCHED THEN INSERT (sales_date, store_id, product_hawa, product_name, quantity_sold, order_count, revenue) " +
+            "  VALUES (:salesDate, :storeId, s.hawa, s.name, :sign * s.quantity, :sign, :sign * s.revenue);",
+            nativeQuery = true)
+    int applyOrderLines(@Param("salesDate") LocalDate salesDate,
+                        @Param("storeId") String storeId,
+                        @Param("lines") String lines,
+                        @Param("sign") int sign);
+
+    @Modifying
+    @Query("DELETE FROM ProductSalesDaily s WHERE s.salesDate >= :startDate AND s.salesDate < :endDate")
+    int deleteBySalesDateRange(@Param("startDate") LocalDate startDate,
+                               @Param("endDate") LocalDate endDate);
+
+    @Modifying
+    @Query(value = "INSERT INTO product_sales_daily (sales_date, store_id, product_hawa, product_name, quantity_sold, order_count, revenue) " +
+            "SELECT CAST(o.created_at AS DATE), o.store_id, i.product_hawa, MAX(i.product_name), " +
+            "       SUM(i.quantity), COUNT(DISTINCT o.id), COALESCE(SUM(i.subtotal), 0) " +
+            "FROM order_items i " +
+            "JOIN orders o ON o.id = i.order_id " +
+            "WHERE o.status <> 'CANCELADO' AND o.created_at >= :startDate AND o.created_at < :endDate " +
+            "GROUP BY CAST(o.created_at AS DATE), o.store_id, i.product_hawa",
+            nativeQuery = true)
+    int insertAggregatedFromOrders(@Param("startDate") LocalDateTime startDate,
+                                   @Param("endDate") LocalDateTime endDate);
+
+    @Query(value = "SELECT MIN(CAST(created_at AS DATE)) FROM orders", nativeQuery = true)
+    Date findFirstOrderDate();
+
+    @Query("SELECT s.productHawa, MAX(s.productName), SUM(s.quantitySold) as totalQuantity, SUM(s.orderCount), SUM(s.revenue) " +
+            "FROM ProductSalesDaily s " +
+            "WHERE s.salesDate BETWEEN :startDate AND :endDate " +
+            "GROUP BY s.productHawa " +
+            "HAVING SUM(s.quantitySold) > 0 " +
+            "ORDER BY totalQuantity DESC")
+    List<Object[]> findProductSales(@Param("startDate") LocalDate startDate,
+                                    @Param("endDate") LocalDate endDate,
+                                    Pageable pageable);
+
+    @Query("SELECT s.productHawa, MAX(s.productName), SUM(s.quantitySold) as totalQuantity, SUM(s.orderCount), SUM(s.revenue) " +
+            "FROM ProductSalesDaily s " +
+            "WHERE s.storeId = :storeId AND s.salesDate BETWEEN :startDate AND :endDate " +
+            "GROUP BY s.productHawa " +
+            "HAVING SUM(s.quantitySold) > 0 " +
+            "ORDER BY totalQuantity DESC")
+    List<Object[]> findProductSalesByStore(@Param("storeId") String storeId,
+                                           @Param("startDate") LocalDate startDate,
+                                           @Param("endDate") LocalDate endDate,
+                                           Pageable pageable);
+}
@@ -0,0 +1,22 @@
+package com.cuackstore.orders.repository.projection;
+
+import com.cuackstore.commons.enums.OrderStatus;
+import com.cuackstore.commons.money.Money;
+
+import java.time.LocalDateTime;
+
+/**
+ * Proyección de una fila de orders para los listados; no carga la entidad ni sus items
+ */
+public interface OrderSummaryView {
+    Long getId();
+    LocalDateTime getCreatedAt();
+    String getStoreId();
+    String getSellerName();
+    String getCustomerName();
+    String getCustomerEmail();
+    OrderStatus getStatus();
+    Money getTotal();
+    Integer getItemCount();
+    Integer getTotalQuantity();
+}
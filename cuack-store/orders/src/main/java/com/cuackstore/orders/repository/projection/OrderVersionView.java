@@ -0,0 +1,14 @@
+package com.cuackstore.orders.repository.projection;
+
+import com.cuackstore.commons.enums.OrderStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lo que decide el ETag del detalle de un pedido: su versión y lo necesario para saber si aún puede cancelarse
+ */
+public interface OrderVersionView {
+    Long getVersion();
+    OrderStatus getStatus();
+    LocalDateTime getCreatedAt();
+}
@@ -0,0 +1,12 @@
+package com.cuackstore.orders.service;
+
+import com.cuackstore.commons.dto.order.OrderResponseDTO;
+
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+public interface IdempotencyService {
+    OrderResponseDTO execute(String idempotencyKey, Object request, Supplier<OrderResponseDTO> action,
+                             Function<Long, OrderResponseDTO> replayOrder);
+    void bindOrder(Long orderId);
+}
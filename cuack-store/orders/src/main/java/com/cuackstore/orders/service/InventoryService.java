@@ -2,10 +2,27 @@ package com.cuackstore.orders.service;
 
 import com.cuackstore.commons.dto.order.AvailabilityResponseDTO;
 import com.cuackstore.commons.dto.order.InventoryProductDTO;
+import com.cuackstore.commons.dto.order.StockReservationItemDTO;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
 public interface InventoryService {
     InventoryProductDTO getProduct(String hawa);
     AvailabilityResponseDTO checkAvailability(String hawa);
+    Map<String, InventoryProductDTO> getProducts(Collection<String> hawas);
+    Map<String, AvailabilityResponseDTO> checkAvailability(Collection<String> hawas);
     boolean decrementStock(String hawa, Integer quantity);
     boolean incrementStock(String hawa, Integer quantity);
+    List<InventoryProductDTO> reserveStock(List<StockReservationItemDTO> items);
+    boolean releaseStock(List<StockReservationItemDTO> items);
+
+    /**
+     * Ejecuta varias llamadas al inventario bajo un mismo plazo. Por defecto cada llamada conserva su propio límite.
+     */
+    default <T> T withinDeadline(Supplier<T> calls) {
+        return calls.get();
+    }
 }
@@ -0,0 +1,17 @@
+package com.cuackstore.orders.service;
+
+import com.cuackstore.orders.entity.Order;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface OrderExpiryService {
+    Duration getExpireAfter();
+    void schedule(Long orderId, LocalDateTime createdAt);
+    int expireOverdue();
+    int retryStockReturns();
+    void markStockReturnPending(Collection<Long> orderIds);
+    void returnStock(List<Order> orders);
+}
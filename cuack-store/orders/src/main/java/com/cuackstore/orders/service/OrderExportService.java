@@ -0,0 +1,11 @@
+package com.cuackstore.orders.service;
+
+import com.cuackstore.commons.enums.OrderExportFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+
+public interface OrderExportService {
+    long export(LocalDateTime startDate, LocalDateTime endDate, OrderExportFormat format, OutputStream out) throws IOException;
+}
@@ -0,0 +1,11 @@
+package com.cuackstore.orders.service;
+
+import com.cuackstore.orders.entity.Order;
+
+import java.util.List;
+
+public interface OrderSearchIndexService {
+    void index(Order order);
+    List<Long> searchCustomers(String term, int page, int size);
+    List<Long> searchSellers(String term, int page, int size);
+}
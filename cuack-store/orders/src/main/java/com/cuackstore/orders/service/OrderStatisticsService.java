@@ -0,0 +1,16 @@
+package com.cuackstore.orders.service;
+
+import com.cuackstore.commons.dto.order.OrderStatsDTO;
+import com.cuackstore.commons.enums.OrderStatus;
+import com.cuackstore.commons.money.Money;
+
+import java.util.List;
+
+public interface OrderStatisticsService {
+    void recordCreated(String storeId, int itemCount, Money total);
+    void recordStatusChange(String storeId, OrderStatus previousStatus, OrderStatus newStatus, int itemCount, Money total);
+    OrderStatsDTO getStatistics();
+    OrderStatsDTO getStatistics(String storeId);
+    List<OrderStatsDTO> getStatisticsByStore();
+    void rebuild();
+}
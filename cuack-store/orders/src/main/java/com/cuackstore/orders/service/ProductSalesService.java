@@ -0,0 +1,14 @@
+package com.cuackstore.orders.service;
+
+import com.cuackstore.commons.dto.order.ProductSalesDTO;
+import com.cuackstore.orders.entity.Order;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface ProductSalesService {
+    void recordCreated(Order order);
+    void recordCancelled(Order order);
+    List<ProductSalesDTO> getProductSales(LocalDate startDate, LocalDate endDate, String storeId, int limit);
+    int rebuild(LocalDate startDate, LocalDate endDate);
+}
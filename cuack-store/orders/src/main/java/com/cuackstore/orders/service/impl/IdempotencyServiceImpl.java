@@ -0,0 +1,306 @@
+package com.cuackstore.orders.service.impl;
+
+import com.cuackstore.commons.dto.order.OrderResponseDTO;
+import com.cuackstore.commons.exceptions.BusinessException;
+import com.cuackstore.orders.entity.OrderIdempotencyKey;
+import com.cuackstore.orders.repository.OrderIdempotencyKeyRepository;
+import com.cuackstore.orders.service.IdempotencyService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Llaves de idempotencia para la creación de pedidos. La tabla order_idempotency_keys es la
+ * fuente de verdad entre nodos; delante hay un LRU en memoria con las respuestas ya completadas
+ * y, dentro del mismo nodo, los duplicados concurrentes esperan el resultado de la primera petición.
+ *
+ * El order_id se escribe en la misma transacción que el pedido ({@link #bindOrder(Long)}): si la
+ * respuesta no llega a guardarse, un reintento encuentra el pedido y lo repite en vez de crear otro.
+ */
+@Service
+@Slf4j
+public class IdempotencyServiceImpl implements IdempotencyService {
+
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(200);
+
+    private final OrderIdempotencyKeyRepository idempotencyKeyRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration waitTimeout;
+    private final Duration staleAfter;
+    private final Duration retention;
+
+    private final Cache<String, StoredResponse> completed;
+    private final ConcurrentMap<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    // Llave que se está ejecutando en este hilo, para que el pedido la reclame dentro de su transacción
+    private final ThreadLocal<String> runningKey = new ThreadLocal<>();
+
+    public IdempotencyServiceImpl(OrderIdempotencyKeyRepository idempotencyKeyRepository,
+                                  TransactionTemplate transactionTemplate,
+                                  ObjectMapper objectMapper,
+                                  @Value("${orders.idempotency.cache-size:10000}") long cacheSize,
+                                  @Value("${orders.idempotency.wait-timeout:30s}") Duration waitTimeout,
+                                  @Value("${orders.idempotency.stale-after:2m}") Duration staleAfter,
+                                  @Value("${orders.idempotency.retention:24h}") Duration retention) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.waitTimeout = waitTimeout;
+        this.staleAfter = staleAfter;
+        this.retention = retention;
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(retention)
+                .build();
+    }
+
+    @Override
+    public OrderResponseDTO execute(String idempotencyKey, Object request, Supplier<OrderResponseDTO> action,
+                                    Function<Long, OrderResponseDTO> replayOrder) {
+        String requestHash = hash(request);
+
+        StoredResponse cached = completed.getIfPresent(idempotencyKey);
+        if (cached != null) {
+            log.info("Respuesta repetida desde memoria para la llave de idempotencia {}", idempotencyKey);
+            return replay(idempotencyKey, requestHash, cached);
+        }
+
+        InFlight mine = new InFlight(requestHash, new CompletableFuture<>());
+        InFlight existing = inFlight.putIfAbsent(idempotencyKey, mine);
+        if (existing != null) {
+            log.info("Petición duplicada en curso para la llave {}, esperando a la primera", idempotencyKey);
+            checkSameRequest(idempotencyKey, requestHash, existing.getRequestHash());
+            return await(existing.getResult());
+        }
+
+        try {
+            OrderResponseDTO response = claimAndRun(idempotencyKey, requestHash, action, replayOrder);
+            mine.getResult().complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            mine.getResult().completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(idempotencyKey, mine);
+        }
+    }
+
+    /**
+     * Debe llamarse dentro de la transacción que guarda el pedido. Fuera de execute no hace nada.
+     */
+    @Override
+    public void bindOrder(Long orderId) {
+        String idempotencyKey = runningKey.get();
+        if (idempotencyKey != null) {
+            idempotencyKeyRepository.bindOrder(idempotencyKey, orderId);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${orders.idempotency.cleanup-interval:PT1H}")
+    public void purgeExpired() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        Integer deleted = transactionTemplate.execute(status -> idempotencyKeyRepository.deleteByCreatedAtBefore(cutoff));
+        log.info("Llaves de idempotencia expiradas eliminadas: {}", deleted);
+    }
+
+    private OrderResponseDTO claimAndRun(String idempotencyKey, String requestHash, Supplier<OrderResponseDTO> action,
+                                         Function<Long, OrderResponseDTO> replayOrder) {
+        long deadline = System.nanoTime() + waitTimeout.toNanos();
+
+        while (true) {
+            Optional<OrderIdempotencyKey> record = idempotencyKeyRepository.findById(idempotencyKey);
+
+            if (record.isPresent()) {
+                OrderIdempotencyKey current = record.get();
+                checkSameRequest(idempotencyKey, requestHash, current.getRequestHash());
+
+                if (current.getStatus() == OrderIdempotencyKey.Status.COMPLETADO) {
+                    StoredResponse stored = new StoredResponse(current.getRequestHash(), current.getResponse());
+                    completed.put(idempotencyKey, stored);
+                    log.info("Respuesta repetida desde base de datos para la llave {}", idempotencyKey);
+                    return deserialize(stored.getResponse());
+                }
+
+                // El pedido ya está guardado pero su respuesta no: se arma desde el pedido y se completa la llave
+                if (current.getOrderId() != null) {
+                    log.info("Repitiendo el pedido {} ya creado para la llave {}", current.getOrderId(), idempotencyKey);
+                    OrderResponseDTO response = replayOrder.apply(current.getOrderId());
+                    complete(idempotencyKey, requestHash, response);
+                    return response;
+                }
+
+                // Otro nodo la está procesando; si su reclamo quedó abandonado se libera y se reintenta
+                Integer released = transactionTemplate.execute(status -> idempotencyKeyRepository.deleteStaleClaim(
+                        idempotencyKey, OrderIdempotencyKey.Status.PROCESANDO, LocalDateTime.now().minus(staleAfter)));
+                if (released == null || released == 0) {
+                    if (System.nanoTime() > deadline) {
+                        throw new BusinessException("La petición con llave de idempotencia " + idempotencyKey +
+                                " sigue en proceso", HttpStatus.CONFLICT);
+                    }
+                    sleep();
+                }
+                continue;
+            }
+
+            if (claim(idempotencyKey, requestHash)) {
+                return run(idempotencyKey, requestHash, action);
+            }
+        }
+    }
+
+    private boolean claim(String idempotencyKey, String requestHash) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> idempotencyKeyRepository.saveAndFlush(
+                    OrderIdempotencyKey.builder()
+                            .idempotencyKey(idempotencyKey)
+                            .requestHash(requestHash)
+                            .status(OrderIdempotencyKey.Status.PROCESANDO)
+                            .build()));
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            // Otro nodo la reclamó primero
+            return false;
+        }
+    }
+
+    private OrderResponseDTO run(String idempotencyKey, String requestHash, Supplier<OrderResponseDTO> action) {
+        OrderResponseDTO response;
+        runningKey.set(idempotencyKey);
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            // Si la petición falló se libera la llave para que el reintento vuelva a ejecutarse,
+            // salvo que el pedido ya se haya guardado: entonces el reintento lo repite
+            transactionTemplate.executeWithoutResult(status -> idempotencyKeyRepository.deleteUnboundClaim(idempotencyKey));
+            throw e;
+        } finally {
+            runningKey.remove();
+        }
+
+        try {
+            complete(idempotencyKey, requestHash, response);
+        } catch (RuntimeException e) {
+            // El pedido ya existe y la llave tiene su order_id: un reintento lo repite desde la base
+            log.error("No se pudo guardar la respuesta de la llave {} (pedido {}): {}",
+                    idempotencyKey, response.getId(), e.getMessage());
+        }
+        return response;
+    }
+
+    private void complete(String idempotencyKey, String requestHash, OrderResponseDTO response) {
+        String body = serialize(response);
+        transactionTemplate.executeWithoutResult(status -> idempotencyKeyRepository.save(
+                OrderIdempotencyKey.builder()
+                        .idempotencyKey(idempotencyKey)
+                        .requestHash(requestHash)
+                        .status(OrderIdempotencyKey.Status.COMPLETADO)
+                        .orderId(response.getId())
+                        .response(body)
+                        .completedAt(LocalDateTime.now())
+                        .build()));
+        completed.put(idempotencyKey, new StoredResponse(requestHash, body));
+    }
+
+    private OrderResponseDTO replay(String idempotencyKey, String requestHash, StoredResponse stored) {
+        checkSameRequest(idempotencyKey, requestHash, stored.getRequestHash());
+        return deserialize(stored.getResponse());
+    }
+
+    private void checkSameRequest(String idempotencyKey, String requestHash, String storedHash) {
+        if (!requestHash.equals(storedHash)) {
+            throw new BusinessException("La llave de idempotencia " + idempotencyKey +
+                    " ya se usó con una petición diferente", HttpStatus.UNPROCESSABLE_ENTITY);
+        }
+    }
+
+    private OrderResponseDTO await(CompletableFuture<OrderResponseDTO> result) {
+        try {
+            return result.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new BusinessException("Error en la petición original: " + e.getCause().getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        } catch (TimeoutException e) {
+            throw new BusinessException("La petición original sigue en proceso", HttpStatus.CONFLICT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("Espera interrumpida", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(POLL_INTERVAL.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("Espera interrumpida", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+
+    private String hash(Object request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(objectMapper.writeValueAsString(request).getBytes(StandardCharsets.UTF_8));
+            return String.format("%064x", new BigInteger(1, digest));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new BusinessException("No se pudo calcular la huella de la petición: " + e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    private String serialize(OrderResponseDTO response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new BusinessException("No se pudo guardar la respuesta idempotente: " + e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    private OrderResponseDTO deserialize(String body) {
+        try {
+            return objectMapper.readValue(body, OrderResponseDTO.class);
+        } catch (JsonProcessingException e) {
+            throw new BusinessException("No se pudo leer la respuesta idempotente: " + e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class InFlight {
+        private final String requestHash;
+        private final CompletableFuture<OrderResponseDTO> result;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class StoredResponse {
+        private final String requestHash;
+        private final String response;
+    }
+}
@@ -0,0 +1,186 @@
+package com.cuackstore.orders.service.impl;
+
+import com.cuackstore.commons.dto.ApiResponseDTO;
+import com.cuackstore.commons.dto.order.AvailabilityResponseDTO;
+import com.cuackstore.commons.dto.order.InventoryProductDTO;
+import com.cuackstore.commons.dto.order.StockOperationDTO;
+import com.cuackstore.commons.dto.order.StockReservationDTO;
+import com.cuackstore.commons.dto.order.StockReservationItemDTO;
+import com.cuackstore.commons.exceptions.BusinessException;
+import com.cuackstore.orders.cache.ProductSnapshotCache;
+import com.cuackstore.orders.client.InventoryReactiveClient;
+import com.cuackstore.orders.service.InventoryService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Implementación sobre WebClient: las consultas por producto se lanzan en paralelo
+ * (con concurrencia acotada). Dentro de {@link #withinDeadline} todas las llamadas comparten un
+ * mismo plazo de order-deadline; fuera de él, cada llamada tiene ese plazo por separado.
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "inventory.client.mode", havingValue = "webclient")
+public class InventoryReactiveServiceImpl implements InventoryService {
+
+    private final InventoryReactiveClient inventoryClient;
+    private final ProductSnapshotCache productCache;
+    private final int maxConcurrency;
+    private final Duration orderDeadline;
+    // Fin del plazo compartido por las llamadas de este hilo, si hay uno abierto
+    private final ThreadLocal<Instant> deadline = new ThreadLocal<>();
+
+    public InventoryReactiveServiceImpl(InventoryReactiveClient inventoryClient,
+                                        ProductSnapshotCache productCache,
+                                        @Value("${inventory.client.max-concurrency:8}") int maxConcurrency,
+                                        @Value("${inventory.client.order-deadline:5s}") Duration orderDeadline) {
+        this.inventoryClient = inventoryClient;
+        this.productCache = productCache;
+        this.maxConcurrency = maxConcurrency;
+        this.orderDeadline = orderDeadline;
+    }
+
+    @Override
+    public InventoryProductDTO getProduct(String hawa) {
+        return productCache.get(hawa, key -> {
+            log.info("Obteniendo producto del inventario: {}", key);
+            return await(data(inventoryClient.getProductByHawa(key)));
+        });
+    }
+
+    @Override
+    public AvailabilityResponseDTO checkAvailability(String hawa) {
+
+        log.info("Verificando disponibilidad del producto: {}", hawa);
+
+        return await(data(inventoryClient.checkAvailability(hawa)));
+    }
+
+    @Override
+    public Map<String, InventoryProductDTO> getProducts(Collection<String> hawas) {
+        return productCache.getAll(hawas, missing -> {
+            log.info("Obteniendo {} productos del inventario en paralelo", missing.size());
+            return fanOut(missing, hawa -> data(inventoryClient.getProductByHawa(hawa)));
+        });
+    }
+
+    @Override
+    public Map<String, AvailabilityResponseDTO> checkAvailability(Collection<String> hawas) {
+
+        log.info("Verificando disponibilidad de {} productos en paralelo", hawas.size());
+
+        return fanOut(hawas, hawa -> data(inventoryClient.checkAvailability(hawa)));
+    }
+
+    @Override
+    public boolean decrementStock(String hawa, Integer quantity) {
+
+        log.info("Decrementando stock del producto: {} en {} unidades", hawa, quantity);
+
+        StockOperationDTO operation = StockOperationDTO.builder()
+                .quantity(quantity)
+                .build();
+
+        return await(inventoryClient.decrementStock(hawa, operation)
+                .map(response -> response.getData() != null)
+                .defaultIfEmpty(false));
+    }
+
+    @Override
+    public boolean incrementStock(String hawa, Integer quantity) {
+
+        log.info("Incrementando stock del producto: {} en {} unidades", hawa, quantity);
+
+        StockOperationDTO operation = StockOperationDTO.builder()
+                .quantity(quantity)
+                .build();
+
+        return await(inventoryClient.incrementStock(hawa, operation)
+                .map(response -> response.getData() != null)
+                .defaultIfEmpty(false));
+    }
+
+    @Override
+    public List<InventoryProductDTO> reserveStock(List<StockReservationItemDTO> items) {
+
+        log.info("Reservando stock para {} items en una sola operación", items.size());
+
+        List<InventoryProductDTO> reserved = await(data(inventoryClient.reserveStock(StockReservationDTO.builder().items(items).build())));
+
+        if (reserved == null) {
+            throw new BusinessException("No se pudo reservar stock en el inventario", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        productCache.putAll(reserved);
+        return reserved;
+    }
+
+    @Override
+    public boolean releaseStock(List<StockReservationItemDTO> items) {
+
+        log.info("Liberando stock para {} items en una sola operación", items.size());
+
+        return await(inventoryClient.releaseStock(StockReservationDTO.builder().items(items).build())
+                .map(response -> response.getData() != null)
+                .defaultIfEmpty(false));
+    }
+
+    @Override
+    public <T> T withinDeadline(Supplier<T> calls) {
+        // Anidado: sigue valiendo el plazo de afuera
+        if (deadline.get() != null) {
+            return calls.get();
+        }
+        deadline.set(Instant.now().plus(orderDeadline));
+        try {
+            return calls.get();
+        } finally {
+            deadline.remove();
+        }
+    }
+
+    // Una respuesta sin data cuenta como producto inexistente, igual que en la implementación con Feign
+    private static <T> Mono<T> data(Mono<ApiResponseDTO<T>> response) {
+        return response.flatMap(body -> Mono.justOrEmpty(body.getData()));
+    }
+
+    private <T> Map<String, T> fanOut(Collection<String> hawas, Function<String, Mono<T>> call) {
+        return await(Flux.fromIterable(hawas)
+                .distinct()
+                .flatMap(hawa -> call.apply(hawa).map(result -> Map.entry(hawa, result)), maxConcurrency)
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue, LinkedHashMap::new));
+    }
+
+    /**
+     * Único punto de bloqueo: el hilo del request espera como máximo lo que le queda al plazo
+     */
+    private <T> T await(Mono<T> call) {
+        Instant end = deadline.get();
+        Duration remaining = end != null ? Duration.between(Instant.now(), end) : orderDeadline;
+        if (remaining.isNegative() || remaining.isZero()) {
+            throw timeout();
+        }
+        return call
+                .timeout(remaining)
+                .onErrorMap(TimeoutException.class, e -> timeout())
+                .block();
+    }
+
+    private BusinessException timeout() {
+        return new BusinessException("El inventario no respondió en " + orderDeadline.toMillis() + " ms", HttpStatus.GATEWAY_TIMEOUT);
+    }
+}
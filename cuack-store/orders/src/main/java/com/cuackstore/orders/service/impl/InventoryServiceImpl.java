@@ -4,26 +4,35 @@ import com.cuackstore.commons.dto.ApiResponseDTO;
 import com.cuackstore.commons.dto.order.AvailabilityResponseDTO;
 import com.cuackstore.commons.dto.order.InventoryProductDTO;
 import com.cuackstore.commons.dto.order.StockOperationDTO;
+import com.cuackstore.commons.dto.order.StockReservationDTO;
+import com.cuackstore.commons.dto.order.StockReservationItemDTO;
+import com.cuackstore.commons.exceptions.BusinessException;
+import com.cuackstore.orders.cache.ProductSnapshotCache;
 import com.cuackstore.orders.client.InventoryClient;
 import com.cuackstore.orders.service.InventoryService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
+@ConditionalOnProperty(name = "inventory.client.mode", havingValue = "feign", matchIfMissing = true)
 public class InventoryServiceImpl implements InventoryService {
 
     private final InventoryClient inventoryClient;
+    private final ProductSnapshotCache productCache;
 
     @Override
     public InventoryProductDTO getProduct(String hawa) {
-
-        log.info("Obteniendo producto del inventario: {}", hawa);
-
-        ApiResponseDTO<InventoryProductDTO> response = inventoryClient.getProductByHawa(hawa);
-        return response.getData();
+        return productCache.get(hawa, this::fetchProduct);
     }
 
     @Override
@@ -36,6 +45,26 @@ public class InventoryServiceImpl implements InventoryService {
 
     }
 
+    @Override
+    public Map<String, InventoryProductDTO> getProducts(Collection<String> hawas) {
+        return productCache.getAll(hawas, missing -> {
+            Map<String, InventoryProductDTO> products = new LinkedHashMap<>();
+            for (String hawa : missing) {
+                products.put(hawa, fetchProduct(hawa));
+            }
+            return products;
+        });
+    }
+
+    @Override
+    public Map<String, AvailabilityResponseDTO> checkAvailability(Collection<String> hawas) {
+        Map<String, AvailabilityResponseDTO> availability = new LinkedHashMap<>();
+        for (String hawa : hawas) {
+            availability.put(hawa, checkAvailability(hawa));
+        }
+        return availability;
+    }
+
     @Override
     public boolean decrementStock(String hawa, Integer quantity) {
 
@@ -81,4 +110,47 @@ public class InventoryServiceImpl implements InventoryService {
         }
 
     }
+
+    @Override
+    public List<InventoryProductDTO> reserveStock(List<StockReservationItemDTO> items) {
+
+        log.info("Reservando stock para {} items en una sola operación", items.size());
+
+        ApiResponseDTO<List<InventoryProductDTO>> response =
+                inventoryClient.reserveStock(StockReservationDTO.builder().items(items).build());
+
+        if (response == null || response.getData() == null) {
+            throw new BusinessException("No se pudo reservar stock en el inventario", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+
+        log.info("Stock reservado exitosamente para {} productos", response.getData().size());
+        productCache.putAll(response.getData());
+        return response.getData();
+    }
+
+    @Override
+    public boolean releaseStock(List<StockReservationItemDTO> items) {
+
+        log.info("Liberando stock para {} items en una sola operación", items.size());
+
+        ApiResponseDTO<List<InventoryProductDTO>> response =
+                inventoryClient.releaseStock(StockReservationDTO.builder().items(items).build());
+
+        if (response != null && response.getData() != null) {
+            log.info("Stock liberado exitosamente para {} productos", response.getData().size());
+            return true;
+        } else {
+            log.warn("No se pudo liberar stock: {}",
+                    response != null && response.getMessage() != null ? response.getMessage() : "Error desconocido");
+            return false;
+        }
+    }
+
+    private InventoryProductDTO fetchProduct(String hawa) {
+
+        log.info("Obteniendo producto del inventario: {}", hawa);
+
+        ApiResponseDTO<InventoryProductDTO> response = inventoryClient.getProductByHawa(hawa);
+        return response.getData();
+    }
 }
@@ -0,0 +1,352 @@
+package com.cuackstore.orders.service.impl;
+
+import com.cuackstore.commons.dto.order.StockReservationItemDTO;
+import com.cuackstore.commons.enums.OrderStatus;
+import com.cuackstore.orders.entity.Order;
+import com.cuackstore.orders.entity.OrderItem;
+import com.cuackstore.orders.expiry.OrderExpiryPolicy;
+import com.cuackstore.orders.expiry.TimingWheel;
+import com.cuackstore.orders.repository.OrderRepository;
+import com.cuackstore.orders.service.InventoryService;
+import com.cuackstore.orders.service.OrderExpiryService;
+import com.cuackstore.orders.service.OrderStatisticsService;
+import com.cuackstore.orders.service.ProductSalesService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Expira los pedidos PENDIENTE cuyo plazo venció. Cada nodo lleva en una rueda de tiempos los pedidos
+ * que conoce (los que crea y, al arrancar, los pendientes de la base que aún no vencen) y los procesa
+ * por lotes. Los ya vencidos al arrancar, y los de nodos caídos, los recoge el barrido periódico.
+ *
+ * Entre nodos no hay coordinación previa: la transición es un UPDATE condicionado a status = 'PENDIENTE',
+ * así que cada pedido lo expira un solo nodo. Ese mismo UPDATE marca stock_return_pending con un lease;
+ * el stock se devuelve después del commit agrupado por producto y, si el nodo cae antes de terminar,
+ * otro nodo reclama la devolución cuando vence el lease. Las cancelaciones en lote usan el mismo
+ * mecanismo con {@link #markStockReturnPending} y {@link #returnStock}.
+ */
+@Service
+@Slf4j
+public class OrderExpiryServiceImpl implements OrderExpiryService {
+
+    // orders tiene el trigger TR_orders_update_timestamp y SQL Server no admite OUTPUT sin INTO en una
+    // tabla con triggers: los ids pasan por una variable de tabla. El SET NOCOUNT solo dura la sentencia
+    // (se ejecuta con sp_prepexec) y evita que el conteo del UPDATE llegue antes que el SELECT
+    private static final String EXPIRE_PENDING =
+            "SET NOCOUNT ON; DECLARE @expired TABLE (id BIGINT); " +
+            "UPDATE orders SET status = :newStatus, version = version + 1, " +
+            "stock_return_pending = :returnStock, stock_return_lease_until = :leaseUntil " +
+            "OUTPUT inserted.id INTO @expired (id) " +
+            "WHERE id IN (:ids) AND status = 'PENDIENTE' AND created_at < :cutoff; " +
+            "SELECT id FROM @expired";
+
+    private static final String FIND_OVERDUE =
+            "SELECT TOP (:batchSize) id FROM orders " +
+            "WHERE status = 'PENDIENTE' AND created_at < :cutoff ORDER BY created_at";
+
+    private static final String FIND_PENDING =
+            "SELECT id, created_at FROM orders WHERE status = 'PENDIENTE' AND created_at >= :cutoff";
+
+    private static final String CLAIM_STOCK_RETURNS =
+            "SET NOCOUNT ON; DECLARE @claimed TABLE (id BIGINT); " +
+            "UPDATE TOP (:batchSize) orders SET stock_return_lease_until = :leaseUntil " +
+            "OUTPUT inserted.id INTO @claimed (id) " +
+            "WHERE stock_return_pending = 1 AND (stock_return_lease_until IS NULL OR stock_return_lease_until < :now); " +
+            "SELECT id FROM @claimed";
+
+    private static final String MARK_STOCK_RETURNS =
+            "UPDATE orders SET stock_return_pending = 1, stock_return_lease_until = :leaseUntil WHERE id IN (:ids)";
+
+    private static final String COMPLETE_STOCK_RETURNS =
+            "UPDATE orders SET stock_return_pending = 0, stock_return_lease_until = NULL WHERE id IN (:ids)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final OrderRepository orderRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final InventoryService inventoryService;
+    private final ProductSalesService productSalesService;
+    private final OrderStatisticsService orderStatisticsService;
+
+    private final OrderExpiryPolicy policy;
+    private final Duration expireAfter;
+    private final long tickMillis;
+    private final int batchSize;
+    private final Duration stockReturnLease;
+
+    private final TimingWheel<Long> wheel;
+    private final Queue<Long> due = new ConcurrentLinkedQueue<>();
+    private ScheduledExecutorService ticker;
+
+    public OrderExpiryServiceImpl(NamedParameterJdbcTemplate jdbcTemplate,
+                                  OrderRepository orderRepository,
+                                  TransactionTemplate transactionTemplate,
+                                  InventoryService inventoryService,
+                                  ProductSalesService productSalesService,
+                                  OrderStatisticsService orderStatisticsService,
+                                  @Value("${orders.expiry.policy:CANCEL}") OrderExpiryPolicy policy,
+                                  @Value("${orders.expiry.expire-after:10m}") Duration expireAfter,
+                                  @Value("${orders.expiry.tick:1s}") Duration tick,
+                                  @Value("${orders.expiry.wheel-size:60}") int wheelSize,
+                                  @Value("${orders.expiry.batch-size:100}") int batchSize,
+                                  @Value("${orders.expiry.stock-return-lease:2m}") Duration stockReturnLease) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.orderRepository = orderRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.inventoryService = inventoryService;
+        this.productSalesService = productSalesService;
+        this.orderStatisticsService = orderStatisticsService;
+        this.policy = policy;
+        this.expireAfter = expireAfter;
+        this.tickMillis = tick.toMillis();
+        this.batchSize = batchSize;
+        this.stockReturnLease = stockReturnLease;
+        this.wheel = new TimingWheel<>(tickMillis, wheelSize, System.currentTimeMillis());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (policy == OrderExpiryPolicy.NONE) {
+            log.info("Expiración automática de pedidos deshabilitada");
+            return;
+        }
+
+        // Reconstruir la rueda con los pendientes de la base que aún no vencen, incluidos los de otros nodos
+        int[] pending = {0};
+        MapSqlParameterSource params = new MapSqlParameterSource("cutoff", LocalDateTime.now().minus(expireAfter));
+        jdbcTemplate.query(FIND_PENDING, params, rs -> {
+            schedule(rs.getLong("id"), rs.getTimestamp("created_at").toLocalDateTime());
+            pending[0]++;
+        });
+        log.info("Expiración de pedidos iniciada: política {}, plazo {}, {} pedidos pendientes en la rueda",
+                policy, expireAfter, pending[0]);
+
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "order-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleWithFixedDelay(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+    }
+
+    @Override
+    public Duration getExpireAfter() {
+        return expireAfter;
+    }
+
+    @Override
+    public void schedule(Long orderId, LocalDateTime createdAt) {
+        if (policy == OrderExpiryPolicy.NONE) {
+            return;
+        }
+        // Un tick de margen: la rueda entrega hasta un tick antes del plazo y el UPDATE lo exige vencido
+        long deadline = createdAt.plus(expireAfter).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() + tickMillis;
+        boolean scheduled;
+        synchronized (wheel) {
+            scheduled = wheel.add(orderId, deadline);
+        }
+        if (!scheduled) {
+            due.add(orderId);
+        }
+    }
+
+    @Override
+    @Scheduled(initialDelayString = "${orders.expiry.sweep-interval:PT5M}",
+            fixedDelayString = "${orders.expiry.sweep-interval:PT5M}")
+    public int expireOverdue() {
+        if (policy == OrderExpiryPolicy.NONE) {
+            // Sin expiración automática, pero las cancelaciones en lote también dejan devoluciones pendientes
+            retryStockReturns();
+            return 0;
+        }
+        // Respaldo de la rueda: pedidos de nodos caídos o que no se pudieron expirar en su momento
+        int expired = 0;
+        List<Long> overdue;
+        do {
+            MapSqlParameterSource params = new MapSqlParameterSource()
+                    .addValue("batchSize", batchSize)
+                    .addValue("cutoff", LocalDateTime.now().minus(expireAfter));
+            overdue = jdbcTemplate.queryForList(FIND_OVERDUE, params, Long.class);
+            if (overdue.isEmpty()) {
+                break;
+            }
+            int batchExpired = expire(overdue);
+            expired += batchExpired;
+            if (batchExpired == 0) {
+                // Otro nodo los está procesando; se reintenta en el siguiente barrido
+                break;
+            }
+        } while (overdue.size() == batchSize);
+
+        int returned = retryStockReturns();
+        if (expired > 0 || returned > 0) {
+            log.info("Barrido de expiración: {} pedidos expirados, {} devoluciones de stock reintentadas", expired, returned);
+        }
+        return expired;
+    }
+
+    @Override
+    public int retryStockReturns() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Order> orders = transactionTemplate.execute(status -> {
+            List<Long> claimed = jdbcTemplate.queryForList(CLAIM_STOCK_RETURNS, new MapSqlParameterSource()
+                    .addValue("batchSize", batchSize)
+                    .addValue("leaseUntil", now.plus(stockReturnLease))
+                    .addValue("now", now), Long.class);
+            return claimed.isEmpty() ? Collections.<Order>emptyList() : orderRepository.findWithItemsByIdIn(claimed);
+        });
+        if (orders == null || orders.isEmpty()) {
+            return 0;
+        }
+        returnStock(orders);
+        return orders.size();
+    }
+
+    /**
+     * Marca los pedidos con devolución de stock pendiente y un lease; debe correr en la transacción
+     * que los cancela. Si {@link #returnStock} no termina, el barrido la reintenta al vencer el lease.
+     */
+    @Override
+    public void markStockReturnPending(Collection<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update(MARK_STOCK_RETURNS, new MapSqlParameterSource()
+                .addValue("leaseUntil", LocalDateTime.now().plus(stockReturnLease))
+                .addValue("ids", orderIds));
+    }
+
+    private void tick() {
+        try {
+            List<Long> expired = new ArrayList<>();
+            synchronized (wheel) {
+                wheel.advance(System.currentTimeMillis(), expired::add);
+            }
+            Long id;
+            while ((id = due.poll()) != null) {
+                expired.add(id);
+            }
+            for (int from = 0; from < expired.size(); from += batchSize) {
+                expire(expired.subList(from, Math.min(from + batchSize, expired.size())));
+            }
+        } catch (RuntimeException e) {
+            // Lo que no se expire aquí lo recoge el barrido periódico
+            log.error("Error expirando pedidos: {}", e.getMessage(), e);
+        }
+    }
+
+    private int expire(List<Long> ids) {
+        OrderStatus newStatus = policy == OrderExpiryPolicy.CANCEL ? OrderStatus.CANCELADO : OrderStatus.ENTREGADO;
+        boolean returnStock = policy == OrderExpiryPolicy.CANCEL;
+        LocalDateTime now = LocalDateTime.now();
+
+        List<Order> expired = transactionTemplate.execute(status -> {
+            List<Long> claimed = jdbcTemplate.queryForList(EXPIRE_PENDING, new MapSqlParameterSource()
+                    .addValue("newStatus", newStatus.name())
+                    .addValue("returnStock", returnStock)
+                    .addValue("leaseUntil", returnStock ? now.plus(stockReturnLease) : null)
+                    .addValue("cutoff", now.minus(expireAfter))
+                    .addValue("ids", ids), Long.class);
+            if (claimed.isEmpty()) {
+                return Collections.<Order>emptyList();
+            }
+
+            List<Order> orders = orderRepository.findWithItemsByIdIn(claimed);
+            for (Order order : orders) {
+                if (returnStock) {
+                    productSalesService.recordCancelled(order);
+                }
+            }
+            afterCommit(() -> orders.forEach(order -> orderStatisticsService.recordStatusChange(
+                    order.getStoreId(), OrderStatus.PENDIENTE, newStatus, order.getItemCount(), order.getTotal())));
+            return orders;
+        });
+
+        if (expired == null || expired.isEmpty()) {
+            return 0;
+        }
+        log.info("{} pedidos expirados a {}", expired.size(), newStatus);
+
+        if (returnStock) {
+            returnStock(expired);
+        }
+        return expired.size();
+    }
+
+    // Una sola llamada al inventario por lote; el inventario suma las cantidades por producto.
+    // Cada item lleva el id de su pedido como releaseId: si la llamada llegó pero el lease venció
+    // antes de marcar el pedido, el reintento no vuelve a sumar su stock
+    @Override
+    public void returnStock(List<Order> orders) {
+        List<StockReservationItemDTO> items = new ArrayList<>();
+        for (Order order : orders) {
+            for (OrderItem item : order.getItems()) {
+                items.add(StockReservationItemDTO.builder()
+                        .hawa(item.getProductHawa())
+                        .quantity(item.getQuantity())
+                        .releaseId("order-" + order.getId())
+                        .build());
+            }
+        }
+        List<Long> ids = orders.stream().map(Order::getId).collect(Collectors.toList());
+
+        boolean released;
+        try {
+            released = items.isEmpty() || inventoryService.releaseStock(items);
+        } catch (RuntimeException e) {
+            log.error("Error devolviendo stock de los pedidos {}: {}", ids, e.getMessage());
+            released = false;
+        }
+
+        if (!released) {
+            log.warn("No se pudo devolver el stock de los pedidos {}; se reintentará al vencer el lease", ids);
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status ->
+                jdbcTemplate.update(COMPLETE_STOCK_RETURNS, new MapSqlParameterSource("ids", ids)));
+    }
+
+    // Un fallo de los contadores no debe hacer creer que el lote no se expiró
+    private void afterCommit(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    action.run();
+                } catch (RuntimeException e) {
+                    log.error("Error en tarea posterior al commit: {}", e.getMessage(), e);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,284 @@
+package com.cuackstore.orders.service.impl;
+
+import com.cuackstore.commons.enums.OrderExportFormat;
+import com.cuackstore.orders.service.OrderExportService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Exporta pedidos con sus items directamente desde un cursor JDBC de solo avance.
+ * No pasa por el contexto de persistencia: cada fila se escribe a la respuesta y se descarta,
+ * así la memoria usada no depende del número de pedidos del rango.
+ */
+@Service
+@Slf4j
+public class OrderExportServiceImpl implements OrderExportService {
+
+    private static final String EXPORT_QUERY =
+            "SELECT o.id, o.created_at, o.updated_at, o.store_id, o.seller_name, o.status, " +
+            "o.customer_name, o.customer_email, o.customer_phone, o.customer_document, o.customer_document_type, " +
+            "o.subtotal, o.total_discount, o.total, o.item_count, o.total_quantity, " +
+            "i.product_hawa, i.product_name, i.quantity, i.unit_price, i.discount_percentage, " +
+            "i.discount_amount, i.subtotal AS item_subtotal " +
+            "FROM orders o " +
+            "LEFT JOIN order_items i ON i.order_id = o.id " +
+            "WHERE o.created_at >= ? AND o.created_at < ? " +
+            "ORDER BY o.created_at, o.id, i.id";
+
+    private static final String[] CSV_HEADER = {
+            "order_id", "created_at", "updated_at", "store_id", "seller_name", "status",
+            "customer_name", "customer_email", "customer_phone", "customer_document", "customer_document_type",
+            "subtotal", "total_discount", "total", "item_count", "total_quantity",
+            "product_hawa", "product_name", "quantity", "unit_price", "discount_percentage",
+            "discount_amount", "item_subtotal"
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public OrderExportServiceImpl(DataSource dataSource,
+                                  ObjectMapper objectMapper,
+                                  @Value("${orders.export.fetch-size:1000}") int fetchSize) {
+        // Plantilla propia para no cambiar el fetch size de otros usos de JdbcTemplate
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public long export(LocalDateTime startDate, LocalDateTime endDate, OrderExportFormat format, OutputStream out)
+            throws IOException {
+        log.info("Exportando pedidos de {} a {} en formato {}", startDate, endDate, format);
+
+        ExportHandler handler = format == OrderExportFormat.CSV
+                ? new CsvHandler(out)
+                : new NdjsonHandler(out);
+
+        try {
+            handler.start();
+            jdbcTemplate.query(EXPORT_QUERY, handler, Timestamp.valueOf(startDate), Timestamp.valueOf(endDate));
+            handler.finish();
+        } catch (UncheckedIOException e) {
+            // El cliente cerró la conexión a mitad de la exportación
+            throw e.getCause();
+        }
+
+        log.info("Exportación terminada: {} pedidos", handler.orders);
+        return handler.orders;
+    }
+
+    private abstract static class ExportHandler implements RowCallbackHandler {
+        long orders;
+        private Long currentOrderId;
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            try {
+                long orderId = rs.getLong("id");
+                if (currentOrderId == null || currentOrderId != orderId) {
+                    if (currentOrderId != null) {
+                        endOrder();
+                    }
+                    currentOrderId = orderId;
+                    orders++;
+                    beginOrder(rs);
+                }
+                if (rs.getString("product_hawa") != null) {
+                    writeItem(rs);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void finish() throws IOException {
+            if (currentOrderId != null) {
+                endOrder();
+            }
+            flush();
+        }
+
+        abstract void start() throws IOException;
+
+        abstract void beginOrder(ResultSet rs) throws SQLException, IOException;
+
+        abstract void writeItem(ResultSet rs) throws SQLException, IOException;
+
+        abstract void endOrder() throws IOException;
+
+        abstract void flush() throws IOException;
+    }
+
+    /**
+     * Un objeto JSON por pedido y por línea, con sus items anidados.
+     */
+    private class NdjsonHandler extends ExportHandler {
+        private final JsonGenerator generator;
+
+        NdjsonHandler(OutputStream out) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(out);
+            this.generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        void start() {
+        }
+
+        @Override
+        void beginOrder(ResultSet rs) throws SQLException, IOException {
+            generator.writeStartObject();
+            generator.writeNumberField("id", rs.getLong("id"));
+            writeTimestamp("createdAt", rs.getTimestamp("created_at"));
+            writeTimestamp("updatedAt", rs.getTimestamp("updated_at"));
+            generator.writeStringField("storeId", rs.getString("store_id"));
+            generator.writeStringField("sellerName", rs.getString("seller_name"));
+            generator.writeStringField("status", rs.getString("status"));
+
+            generator.writeObjectFieldStart("customer");
+            generator.writeStringField("name", rs.getString("customer_name"));
+            generator.writeStringField("email", rs.getString("customer_email"));
+            generator.writeStringField("phone", rs.getString("customer_phone"));
+            generator.writeStringField("document", rs.getString("customer_document"));
+            generator.writeStringField("documentType", rs.getString("customer_document_type"));
+            generator.writeEndObject();
+
+            writeDecimal("subtotal", rs.getBigDecimal("subtotal"));
+            writeDecimal("totalDiscount", rs.getBigDecimal("total_discount"));
+            writeDecimal("total", rs.getBigDecimal("total"));
+            generator.writeNumberField("itemCount", rs.getInt("item_count"));
+            generator.writeNumberField("totalQuantity", rs.getInt("total_quantity"));
+            generator.writeArrayFieldStart("items");
+        }
+
+        @Override
+        void writeItem(ResultSet rs) throws SQLException, IOException {
+            generator.writeStartObject();
+            generator.writeStringField("productHawa", rs.getString("product_hawa"));
+            generator.writeStringField("productName", rs.getString("product_name"));
+            generator.writeNumberField("quantity", rs.getInt("quantity"));
+            writeDecimal("unitPrice", rs.getBigDecimal("unit_price"));
+            writeDecimal("discountPercentage", rs.getBigDecimal("discount_percentage"));
+            writeDecimal("discountAmount", rs.getBigDecimal("discount_amount"));
+            writeDecimal("subtotal", rs.getBigDecimal("item_subtotal"));
+            generator.writeEndObject();
+        }
+
+        @Override
+        void endOrder() throws IOException {
+            generator.writeEndArray();
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        void flush() throws IOException {
+            generator.flush();
+        }
+
+        private void writeTimestamp(String field, Timestamp value) throws IOException {
+            if (value == null) {
+                generator.writeNullField(field);
+            } else {
+                generator.writeStringField(field, value.toLocalDateTime().toString());
+            }
+        }
+
+        private void writeDecimal(String field, BigDecimal value) throws IOException {
+            if (value == null) {
+                generator.writeNullField(field);
+            } else {
+                generator.writeNumberField(field, value);
+            }
+        }
+    }
+
+    /**
+     * Una línea por item con los datos del pedido repetidos; los pedidos sin items salen en una sola línea.
+     */
+    private static class CsvHandler extends ExportHandler {
+        private final Writer writer;
+        private final String[] orderColumns = new String[16];
+        private boolean itemWritten;
+
+        CsvHandler(OutputStream out) {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        void start() throws IOException {
+            writeLine(CSV_HEADER);
+        }
+
+        @Override
+        void beginOrder(ResultSet rs) throws SQLException {
+            for (int i = 0; i < orderColumns.length; i++) {
+                orderColumns[i] = rs.getString(CSV_HEADER[i].equals("order_id") ? "id" : CSV_HEADER[i]);
+            }
+            itemWritten = false;
+        }
+
+        @Override
+        void writeItem(ResultSet rs) throws SQLException, IOException {
+            String[] line = new String[CSV_HEADER.length];
+            System.arraycopy(orderColumns, 0, line, 0, orderColumns.length);
+            for (int i = orderColumns.length; i < CSV_HEADER.length; i++) {
+                line[i] = rs.getString(CSV_HEADER[i]);
+            }
+            writeLine(line);
+            itemWritten = true;
+        }
+
+        @Override
+        void endOrder() throws IOException {
+            if (!itemWritten) {
+                String[] line = new String[CSV_HEADER.length];
+                System.arraycopy(orderColumns, 0, line, 0, orderColumns.length);
+                writeLine(line);
+            }
+        }
+
+        @Override
+        void flush() throws IOException {
+            writer.flush();
+        }
+
+        private void writeLine(String[] values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(escape(values[i]));
+            }
+            writer.write("\r\n");
+        }
+
+        private String escape(String value) {
+            if (value == null) {
+                return "";
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+}
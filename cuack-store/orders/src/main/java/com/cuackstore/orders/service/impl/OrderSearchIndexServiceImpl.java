@@ -0,0 +1,169 @@
+package com.cuackstore.orders.service.impl;
+
+import com.cuackstore.orders.entity.Order;
+import com.cuackstore.orders.service.OrderSearchIndexService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Índice de trigramas en order_search_grams para buscar por subcadena sin recorrer orders.
+ * Los trigramas se escriben en la misma transacción que el pedido; la búsqueda reduce los
+ * candidatos a los pedidos que contienen todos los trigramas del término y solo sobre ellos
+ * confirma la coincidencia con LIKE. Términos de menos de tres letras no tienen trigramas y se
+ * buscan por prefijo en las mismas columnas (nombre, email y documento del cliente; nombre del
+ * vendedor), cada una con su propio índice en orders.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderSearchIndexServiceImpl implements OrderSearchIndexService {
+
+    private static final int GRAM_SIZE = 3;
+    private static final String FIELD_CUSTOMER = "C";
+    private static final String FIELD_SELLER = "S";
+
+    // Misma intercalación que la columna gram: sin distinguir mayúsculas ni acentos
+    private static final String CI_AI = " COLLATE Latin1_General_100_CI_AI ";
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    private static final String INSERT_GRAM =
+            "INSERT INTO order_search_grams (field, gram, order_id) VALUES (:field, :gram, :orderId)";
+
+    private static final String CANDIDATES =
+            "WITH candidates AS (" +
+            "  SELECT g.order_id FROM order_search_grams g " +
+            "  WHERE g.field = :field AND g.gram IN (:grams) " +
+            "  GROUP BY g.order_id " +
+            "  HAVING COUNT(DISTINCT g.gram) = :gramCount" +
+            ") " +
+            "SELECT o.id FROM orders o JOIN candidates c ON c.order_id = o.id ";
+
+    private static final String PAGE = ", o.created_at DESC, o.id DESC OFFSET :offset ROWS FETCH NEXT :size ROWS ONLY";
+
+    private static final String CUSTOMER_SEARCH = CANDIDATES +
+            "WHERE o.customer_name" + CI_AI + "LIKE :pattern ESCAPE '\\' " +
+            "OR o.customer_email" + CI_AI + "LIKE :pattern ESCAPE '\\' " +
+            "OR o.customer_document" + CI_AI + "LIKE :pattern ESCAPE '\\' " +
+            "ORDER BY CASE " +
+            "  WHEN o.customer_name" + CI_AI + "= :term THEN 0 " +
+            "  WHEN o.customer_name" + CI_AI + "LIKE :prefix ESCAPE '\\' THEN 1 " +
+            "  WHEN o.customer_email" + CI_AI + "LIKE :prefix ESCAPE '\\' THEN 2 " +
+            "  ELSE 3 END" + PAGE;
+
+    private static final String SELLER_SEARCH = CANDIDATES +
+            "WHERE o.seller_name" + CI_AI + "LIKE :pattern ESCAPE '\\' " +
+            "ORDER BY CASE " +
+            "  WHEN o.seller_name" + CI_AI + "= :term THEN 0 " +
+            "  WHEN o.seller_name" + CI_AI + "LIKE :prefix ESCAPE '\\' THEN 1 " +
+            "  ELSE 2 END" + PAGE;
+
+    // Una búsqueda por índice para cada columna; el pedido se ordena por la mejor columna que coincidió
+    private static final String CUSTOMER_PREFIX_SEARCH =
+            "SELECT o.id FROM (" +
+            "  SELECT id, 1 AS match_rank FROM orders WHERE customer_name LIKE :prefix ESCAPE '\\' " +
+            "  UNION ALL SELECT id, 2 FROM orders WHERE customer_email LIKE :prefix ESCAPE '\\' " +
+            "  UNION ALL SELECT id, 3 FROM orders WHERE customer_document LIKE :prefix ESCAPE '\\'" +
+            ") m JOIN orders o ON o.id = m.id " +
+            "GROUP BY o.id, o.created_at " +
+            "ORDER BY MIN(m.match_rank)" + PAGE;
+
+    private static final String SELLER_PREFIX_SEARCH =
+            "SELECT o.id FROM orders o " +
+            "WHERE o.seller_name LIKE :prefix ESCAPE '\\' " +
+            "ORDER BY o.seller_name" + PAGE;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Override
+    public void index(Order order) {
+        Set<String> customerGrams = new LinkedHashSet<>();
+        customerGrams.addAll(grams(order.getCustomer().getName()));
+        customerGrams.addAll(grams(order.getCustomer().getEmail()));
+        customerGrams.addAll(grams(order.getCustomer().getDocument()));
+        Set<String> sellerGrams = grams(order.getSellerName());
+
+        List<MapSqlParameterSource> rows = new ArrayList<>(customerGrams.size() + sellerGrams.size());
+        customerGrams.forEach(gram -> rows.add(gramRow(FIELD_CUSTOMER, gram, order.getId())));
+        sellerGrams.forEach(gram -> rows.add(gramRow(FIELD_SELLER, gram, order.getId())));
+
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_GRAM, rows.toArray(new MapSqlParameterSource[0]));
+        }
+        log.debug("Pedido {} indexado para búsqueda con {} trigramas", order.getId(), rows.size());
+    }
+
+    @Override
+    public List<Long> searchCustomers(String term, int page, int size) {
+        return search(FIELD_CUSTOMER, CUSTOMER_SEARCH, CUSTOMER_PREFIX_SEARCH, term, page, size);
+    }
+
+    @Override
+    public List<Long> searchSellers(String term, int page, int size) {
+        return search(FIELD_SELLER, SELLER_SEARCH, SELLER_PREFIX_SEARCH, term, page, size);
+    }
+
+    private List<Long> search(String field, String gramQuery, String prefixQuery, String term, int page, int size) {
+        String trimmed = term.trim();
+        Set<String> grams = grams(trimmed);
+        String escaped = escapeLike(trimmed);
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("term", trimmed)
+                .addValue("prefix", escaped + "%")
+                .addValue("offset", page * size)
+                .addValue("size", size);
+
+        if (grams.isEmpty()) {
+            return jdbcTemplate.queryForList(prefixQuery, params, Long.class);
+        }
+
+        params.addValue("field", field)
+                .addValue("grams", grams)
+                .addValue("gramCount", grams.size())
+                .addValue("pattern", "%" + escaped + "%");
+        return jdbcTemplate.queryForList(gramQuery, params, Long.class);
+    }
+
+    private MapSqlParameterSource gramRow(String field, String gram, Long orderId) {
+        return new MapSqlParameterSource()
+                .addValue("field", field)
+                .addValue("gram", gram)
+                .addValue("orderId", orderId);
+    }
+
+    /**
+     * Trigramas sin acentos y en minúsculas; deben coincidir con el respaldo del script SQL.
+     */
+    private Set<String> grams(String value) {
+        Set<String> grams = new LinkedHashSet<>();
+        if (value == null) {
+            return grams;
+        }
+        String normalized = DIACRITICS.matcher(Normalizer.normalize(value.trim(), Normalizer.Form.NFD))
+                .replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        for (int i = 0; i + GRAM_SIZE <= normalized.length(); i++) {
+            grams.add(normalized.substring(i, i + GRAM_SIZE));
+        }
+        return grams;
+    }
+
+    private String escapeLike(String value) {
+        return value.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_")
+                .replace("[", "\\[");
+    }
+}
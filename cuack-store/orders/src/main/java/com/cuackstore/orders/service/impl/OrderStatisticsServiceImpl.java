@@ -0,0 +1,159 @@
+package com.cuackstore.orders.service.impl;
+
+import com.cuackstore.commons.dto.order.OrderStatsDTO;
+import com.cuackstore.commons.enums.OrderStatus;
+import com.cuackstore.commons.money.Money;
+import com.cuackstore.orders.repository.OrderRepository;
+import com.cuackstore.orders.service.OrderStatisticsService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Contadores de pedidos por tienda y estatus que se actualizan en cada alta o cambio de estatus.
+ * Se reconstruyen con una sola consulta agrupada al arrancar y se reconcilian periódicamente,
+ * lo que también corrige los cambios hechos por otros nodos.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderStatisticsServiceImpl implements OrderStatisticsService {
+
+    private final OrderRepository orderRepository;
+
+    private volatile Snapshot snapshot = new Snapshot();
+
+    @Override
+    public void recordCreated(String storeId, int itemCount, Money total) {
+        Snapshot current = snapshot;
+        current.global.add(OrderStatus.PENDIENTE, 1, itemCount, total.getMinorUnits());
+        current.forStore(storeId).add(OrderStatus.PENDIENTE, 1, itemCount, total.getMinorUnits());
+    }
+
+    @Override
+    public void recordStatusChange(String storeId, OrderStatus previousStatus, OrderStatus newStatus,
+                                   int itemCount, Money total) {
+        long cents = total.getMinorUnits();
+        Snapshot current = snapshot;
+        for (Counters counters : List.of(current.global, current.forStore(storeId))) {
+            counters.add(previousStatus, -1, -itemCount, -cents);
+            counters.add(newStatus, 1, itemCount, cents);
+        }
+    }
+
+    @Override
+    public OrderStatsDTO getStatistics() {
+        return snapshot.global.toDTO(null);
+    }
+
+    @Override
+    public OrderStatsDTO getStatistics(String storeId) {
+        Counters counters = snapshot.stores.get(storeId);
+        return counters != null ? counters.toDTO(storeId) : new Counters().toDTO(storeId);
+    }
+
+    @Override
+    public List<OrderStatsDTO> getStatisticsByStore() {
+        return snapshot.stores.entrySet().stream()
+                .map(entry -> entry.getValue().toDTO(entry.getKey()))
+                .sorted(Comparator.comparing(OrderStatsDTO::getStoreId))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${orders.stats.reconcile-interval:PT5M}",
+            fixedDelayString = "${orders.stats.reconcile-interval:PT5M}")
+    // Transacción de escritura a propósito: se lee del primario, una réplica atrasada borraría incrementos recientes
+    @Transactional
+    public void rebuild() {
+        Snapshot rebuilt = new Snapshot();
+
+        for (Object[] row : orderRepository.getStatisticsByStoreAndStatus()) {
+            String storeId = (String) row[0];
+            OrderStatus status = OrderStatus.valueOf((String) row[1]);
+            long orders = ((Number) row[2]).longValue();
+            long items = ((Number) row[3]).longValue();
+            long cents = Money.of(new BigDecimal(row[4].toString())).getMinorUnits();
+
+            rebuilt.global.add(status, orders, items, cents);
+            rebuilt.forStore(storeId).add(status, orders, items, cents);
+        }
+
+        long previousTotal = snapshot.global.totalOrders();
+        snapshot = rebuilt;
+        if (previousTotal != rebuilt.global.totalOrders()) {
+            log.info("Estadísticas de pedidos reconciliadas: {} -> {} pedidos", previousTotal, rebuilt.global.totalOrders());
+        }
+    }
+
+    private static class Snapshot {
+        private final Counters global = new Counters();
+        private final Map<String, Counters> stores = new ConcurrentHashMap<>();
+
+        private Counters forStore(String storeId) {
+            return stores.computeIfAbsent(storeId, id -> new Counters());
+        }
+    }
+
+    private static class Counters {
+        private final Map<OrderStatus, LongAdder> orders = new EnumMap<>(OrderStatus.class);
+        private final Map<OrderStatus, LongAdder> items = new EnumMap<>(OrderStatus.class);
+        private final Map<OrderStatus, LongAdder> cents = new EnumMap<>(OrderStatus.class);
+
+        private Counters() {
+            for (OrderStatus status : OrderStatus.values()) {
+                orders.put(status, new LongAdder());
+                items.put(status, new LongAdder());
+                cents.put(status, new LongAdder());
+            }
+        }
+
+        private void add(OrderStatus status, long orderDelta, long itemDelta, long centsDelta) {
+            orders.get(status).add(orderDelta);
+            items.get(status).add(itemDelta);
+            cents.get(status).add(centsDelta);
+        }
+
+        private long totalOrders() {
+            return orders.values().stream().mapToLong(LongAdder::sum).sum();
+        }
+
+        private OrderStatsDTO toDTO(String storeId) {
+            long pending = orders.get(OrderStatus.PENDIENTE).sum();
+            long delivered = orders.get(OrderStatus.ENTREGADO).sum();
+            long cancelled = orders.get(OrderStatus.CANCELADO).sum();
+
+            // Los ingresos y promedios no consideran pedidos cancelados
+            long billableOrders = pending + delivered;
+            long billableItems = items.get(OrderStatus.PENDIENTE).sum() + items.get(OrderStatus.ENTREGADO).sum();
+            BigDecimal revenue = BigDecimal.valueOf(cents.get(OrderStatus.PENDIENTE).sum() + cents.get(OrderStatus.ENTREGADO).sum(), 2);
+
+            return OrderStatsDTO.builder()
+                    .storeId(storeId)
+                    .totalOrders(pending + delivered + cancelled)
+                    .pendingOrders(pending)
+                    .deliveredOrders(delivered)
+                    .cancelledOrders(cancelled)
+                    .totalRevenue(revenue)
+                    .averageOrderValue(billableOrders == 0 ? BigDecimal.ZERO.setScale(2)
+                            : revenue.divide(BigDecimal.valueOf(billableOrders), 2, RoundingMode.HALF_UP))
+                    .averageItemsPerOrder(billableOrders == 0 ? 0 : (int) (billableItems / billableOrders))
+                    .build();
+        }
+    }
+}
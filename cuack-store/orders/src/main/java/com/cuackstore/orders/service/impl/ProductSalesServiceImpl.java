@@ -0,0 +1,162 @@
+package com.cuackstore.orders.service.impl;
+
+import com.cuackstore.commons.dto.order.ProductSalesDTO;
+import com.cuackstore.commons.exceptions.BusinessException;
+import com.cuackstore.orders.entity.Order;
+import com.cuackstore.orders.entity.OrderItem;
+import com.cuackstore.orders.repository.ProductSalesDailyRepository;
+import com.cuackstore.orders.service.ProductSalesService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Acumulado diario de ventas por producto y tienda (product_sales_daily). Cada alta suma las
+ * líneas del pedido en su día y cada cancelación las resta, dentro de la misma transacción del
+ * pedido, así los reportes solo agregan un renglón por producto y día consultado.
+ */
+@Service
+@Slf4j
+public class ProductSalesServiceImpl implements ProductSalesService {
+
+    private static final LocalDate FIRST_SALES_DATE = LocalDate.of(2000, 1, 1);
+
+    private final ProductSalesDailyRepository salesRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate rebuildTransaction;
+    private final int rebuildChunkDays;
+
+    public ProductSalesServiceImpl(ProductSalesDailyRepository salesRepository,
+                                   ObjectMapper objectMapper,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${orders.sales.rebuild-chunk-days:31}") int rebuildChunkDays) {
+        this.salesRepository = salesRepository;
+        this.objectMapper = objectMapper;
+        // Serializable: bloquea el rango de días mientras se recalcula para no mezclarse con altas concurrentes
+        this.rebuildTransaction = new TransactionTemplate(transactionManager);
+        this.rebuildTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_SERIALIZABLE);
+        this.rebuildChunkDays = rebuildChunkDays;
+    }
+
+    @Override
+    public void recordCreated(Order order) {
+        applyOrder(order, 1);
+    }
+
+    @Override
+    public void recordCancelled(Order order) {
+        applyOrder(order, -1);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ProductSalesDTO> getProductSales(LocalDate startDate, LocalDate endDate, String storeId, int limit) {
+        LocalDate from = startDate != null ? startDate : FIRST_SALES_DATE;
+        LocalDate to = endDate != null ? endDate : LocalDate.now();
+        PageRequest top = PageRequest.of(0, limit);
+
+        List<Object[]> rows = storeId == null
+                ? salesRepository.findProductSales(from, to, top)
+                : salesRepository.findProductSalesByStore(storeId, from, to, top);
+
+        return rows.stream()
+                .map(row -> ProductSalesDTO.builder()
+                        .productHawa((String) row[0])
+                        .productName((String) row[1])
+                        .totalQuantitySold(((Number) row[2]).longValue())
+                        .orderCount(((Number) row[3]).longValue())
+                        .totalRevenue((BigDecimal) row[4])
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Recalcula el acumulado desde orders/order_items para [startDate, endDate], por bloques de días
+     * en transacciones separadas para no retener bloqueos sobre todo el historial.
+     */
+    @Override
+    public int rebuild(LocalDate startDate, LocalDate endDate) {
+        if (startDate.isAfter(endDate)) {
+            throw new BusinessException("La fecha inicial debe ser anterior a la final", HttpStatus.BAD_REQUEST);
+        }
+        log.info("Recalculando ventas diarias de {} a {}", startDate, endDate);
+
+        int rows = 0;
+        LocalDate chunkStart = startDate;
+        while (!chunkStart.isAfter(endDate)) {
+            LocalDate chunkEnd = chunkStart.plusDays(rebuildChunkDays);
+            if (chunkEnd.isAfter(endDate.plusDays(1))) {
+                chunkEnd = endDate.plusDays(1);
+            }
+            LocalDate from = chunkStart;
+            LocalDate to = chunkEnd;
+            Integer inserted = rebuildTransaction.execute(status -> {
+                salesRepository.deleteBySalesDateRange(from, to);
+                return salesRepository.insertAggregatedFromOrders(from.atStartOfDay(), to.atStartOfDay());
+            });
+            rows += inserted != null ? inserted : 0;
+            chunkStart = chunkEnd;
+        }
+
+        log.info("Ventas diarias recalculadas: {} registros", rows);
+        return rows;
+    }
+
+    // Respaldo inicial: si el acumulado está vacío se llena con todo el historial
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (salesRepository.count() > 0) {
+            return;
+        }
+        Date firstOrderDate = salesRepository.findFirstOrderDate();
+        if (firstOrderDate == null) {
+            return;
+        }
+        log.info("Acumulado de ventas vacío, cargando historial desde {}", firstOrderDate);
+        rebuild(firstOrderDate.toLocalDate(), LocalDate.now());
+    }
+
+    private void applyOrder(Order order, int sign) {
+        if (order.getItems().isEmpty()) {
+            return;
+        }
+        salesRepository.applyOrderLines(order.getCreatedAt().toLocalDate(), order.getStoreId(),
+                toLinesJson(order.getItems()), sign);
+    }
+
+    private String toLinesJson(List<OrderItem> items) {
+        List<Map<String, Object>> lines = items.stream()
+                .map(item -> {
+                    Map<String, Object> line = new LinkedHashMap<>();
+                    line.put("hawa", item.getProductHawa());
+                    line.put("name", item.getProductName());
+                    line.put("quantity", item.getQuantity());
+                    line.put("revenue", item.getSubtotal().toBigDecimal());
+                    return line;
+                })
+                .collect(Collectors.toList());
+        try {
+            return objectMapper.writeValueAsString(lines);
+        } catch (JsonProcessingException e) {
+            throw new BusinessException("No se pudo serializar las líneas del pedido", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+}
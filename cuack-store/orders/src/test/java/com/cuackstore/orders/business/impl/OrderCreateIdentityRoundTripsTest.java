@@ -0,0 +1,22 @@
+package com.cuackstore.orders.business.impl;
+
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * El arnés de {@link OrderCreateRoundTripsTest} con los ids de orders y order_items por IDENTITY
+ * (orders-identity-orm.xml), como estaban antes de las secuencias. Hibernate necesita el id generado
+ * de cada fila, así que no agrupa los INSERT: cada pedido cuesta 1 + N viajes.
+ */
+// La configuración anidada de la clase base no se hereda sola
+@ContextConfiguration(classes = OrderCreateRoundTripsTest.RoundTripsConfig.class)
+@TestPropertySource(properties = "spring.jpa.mapping-resources=orders-identity-orm.xml")
+class OrderCreateIdentityRoundTripsTest extends OrderCreateRoundTripsTest {
+
+    @Override
+    void assertRoundTrips(int itemCount, long roundTrips) {
+        assertThat(roundTrips).isEqualTo((long) ORDERS * (1 + itemCount));
+    }
+}
@@ -0,0 +1,199 @@
+package com.cuackstore.orders.business.impl;
+
+import com.cuackstore.commons.dto.order.CustomerDTO;
+import com.cuackstore.commons.dto.order.InventoryProductDTO;
+import com.cuackstore.commons.dto.order.OrderCreateDTO;
+import com.cuackstore.commons.dto.order.OrderItemCreateDTO;
+import com.cuackstore.orders.entity.Order;
+import com.cuackstore.orders.entity.converter.MoneyConverter;
+import com.cuackstore.orders.repository.OrderRepository;
+import com.cuackstore.orders.service.IdempotencyService;
+import com.cuackstore.orders.service.InventoryService;
+import com.cuackstore.orders.service.OrderExpiryService;
+import com.cuackstore.orders.service.OrderSearchIndexService;
+import com.cuackstore.orders.service.OrderStatisticsService;
+import com.cuackstore.orders.service.ProductSalesService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+
+/**
+ * Viajes a la base por createOrder con 1, 10 y 100 items: cada ejecución de sentencia o de lote
+ * JDBC cuenta como un viaje. Corre contra H2 con la misma configuración de lotes que msvc-orders.yml;
+ * inventario, trigramas de búsqueda y acumulado de ventas son mocks. En SQL Server estos dos
+ * últimos suman un viaje fijo cada uno (un lote de trigramas y un MERGE), sin importar los items.
+ *
+ * Con secuencias son 1 + ceil(N/50) lotes más las llamadas a la secuencia, una por cada 50 pedidos
+ * y una por cada 50 items. {@link OrderCreateIdentityRoundTripsTest} mide lo mismo con IDENTITY.
+ */
+@DataJpaTest(properties = {
+        "eureka.client.enabled=false",
+        "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+        "spring.jpa.properties.hibernate.jdbc.batch_versioned_data=true",
+        "spring.jpa.properties.hibernate.order_inserts=true",
+        "spring.jpa.properties.hibernate.order_updates=true",
+        "spring.jpa.show-sql=false"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderCreateRoundTripsTest {
+
+    static final int ORDERS = 50;
+    private static final int BATCH_SIZE = 50;
+    private static final AtomicLong ROUND_TRIPS = new AtomicLong();
+
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @MockBean
+    private InventoryService inventoryService;
+    @MockBean
+    private OrderStatisticsService orderStatisticsService;
+    @MockBean
+    private OrderSearchIndexService orderSearchIndexService;
+    @MockBean
+    private ProductSalesService productSalesService;
+    @MockBean
+    private OrderExpiryService orderExpiryService;
+    @MockBean
+    private IdempotencyService idempotencyService;
+
+    private OrderBusinessImpl orderBusiness;
+
+    @BeforeEach
+    void setUp() {
+        orderBusiness = new OrderBusinessImpl(orderRepository, inventoryService, transactionTemplate,
+                orderStatisticsService, orderSearchIndexService, productSalesService, orderExpiryService, idempotencyService);
+        when(orderExpiryService.getExpireAfter()).thenReturn(Duration.ofMinutes(10));
+        when(inventoryService.withinDeadline(any())).thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(0).get());
+        when(inventoryService.getProducts(anyList())).thenAnswer(invocation -> {
+            List<String> hawas = invocation.getArgument(0);
+            return hawas.stream().collect(Collectors.toMap(Function.identity(), OrderCreateRoundTripsTest::product));
+        });
+        when(inventoryService.reserveStock(anyList())).thenReturn(List.of());
+    }
+
+    @ParameterizedTest(name = "{0} items")
+    @ValueSource(ints = {1, 10, 100})
+    void roundTripsPerCreateOrder(int itemCount) {
+        OrderCreateDTO request = request(itemCount);
+        // Calentamiento: la primera llamada a cada secuencia no cuenta para el régimen estable
+        orderBusiness.createOrder(request);
+
+        ROUND_TRIPS.set(0);
+        for (int i = 0; i < ORDERS; i++) {
+            orderBusiness.createOrder(request);
+        }
+
+        assertRoundTrips(itemCount, ROUND_TRIPS.get());
+    }
+
+    void assertRoundTrips(int itemCount, long roundTrips) {
+        long batches = (long) ORDERS * (1 + ceilDiv(itemCount, BATCH_SIZE));
+        long sequenceCalls = ceilDiv(ORDERS, BATCH_SIZE) + ceilDiv((long) ORDERS * itemCount, BATCH_SIZE) + 2;
+        assertThat(roundTrips).isBetween(batches, batches + sequenceCalls);
+    }
+
+    private static long ceilDiv(long dividend, long divisor) {
+        return (dividend + divisor - 1) / divisor;
+    }
+
+    private static OrderCreateDTO request(int itemCount) {
+        return OrderCreateDTO.builder()
+                .storeId("TIENDA-01")
+                .sellerName("Vendedor")
+                .customer(CustomerDTO.builder()
+                        .name("Cliente de prueba")
+                        .email("cliente@cuackstore.com")
+                        .build())
+                .items(IntStream.rangeClosed(1, itemCount)
+                        .mapToObj(i -> OrderItemCreateDTO.builder()
+                                .productHawa("HAWA-" + i)
+                                .quantity(1 + i % 3)
+                                .build())
+                        .collect(Collectors.toList()))
+                .build();
+    }
+
+    private static InventoryProductDTO product(String hawa) {
+        return InventoryProductDTO.builder()
+                .hawa(hawa)
+                .name("Producto " + hawa)
+                .listPrice(new BigDecimal("19.99"))
+                .discount(new BigDecimal("5.00"))
+                .stock(1000)
+                .available(true)
+                .build();
+    }
+
+    @Configuration
+    @EntityScan(basePackageClasses = {Order.class, MoneyConverter.class})
+    @EnableJpaRepositories(basePackageClasses = OrderRepository.class)
+    static class RoundTripsConfig {
+
+        @Bean
+        static BeanPostProcessor roundTripCounter() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource ? counting(bean, DataSource.class) : bean;
+                }
+            };
+        }
+
+        // DataSource -> Connection -> Statement: se cuentan las ejecuciones de sentencias y lotes
+        private static Object counting(Object target, Class<?> type) {
+            InvocationHandler handler = (proxy, method, args) -> {
+                if (target instanceof Statement && method.getName().startsWith("execute")) {
+                    ROUND_TRIPS.incrementAndGet();
+                }
+                Object result;
+                try {
+                    result = method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+                if (result instanceof Connection && method.getReturnType() == Connection.class) {
+                    return counting(result, Connection.class);
+                }
+                if (result instanceof Statement && Statement.class.isAssignableFrom(method.getReturnType())) {
+                    return counting(result, method.getReturnType());
+                }
+                return result;
+            };
+            return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.cuackstore.orders.entity;
+
+import com.cuackstore.commons.money.Money;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Importes del pedido con Money. Los valores "antes" son los de las fórmulas con BigDecimal
+ * que se reemplazaron, como quedaban guardados en DECIMAL(x,2).
+ */
+class OrderTest {
+
+    @Test
+    void subtotalIsGrossAndTotalSubtractsDiscountOnce() {
+        Order order = Order.builder().build();
+        order.addItem(item("100.00", 2, "10.00"));
+        order.addItem(item("19.99", 3, "0"));
+
+        // Antes: subtotal 239.97 (suma de subtotales netos) y total 219.97 (descuento restado dos veces)
+        assertThat(order.getSubtotal().toBigDecimal()).isEqualTo(new BigDecimal("259.97"));
+        assertThat(order.getTotalDiscount().toBigDecimal()).isEqualTo(new BigDecimal("20.00"));
+        assertThat(order.getTotal().toBigDecimal()).isEqualTo(new BigDecimal("239.97"));
+        assertThat(order.getItemCount()).isEqualTo(2);
+        assertThat(order.getTotalQuantity()).isEqualTo(5);
+    }
+
+    @Test
+    void calculateTotalsMatchesIncrementalTotals() {
+        Order order = Order.builder().build();
+        order.addItem(item("10.00", 1, "1.25"));
+        order.addItem(item("3.33", 7, "33.33"));
+        Money subtotal = order.getSubtotal();
+        Money total = order.getTotal();
+
+        order.calculateTotals();
+
+        assertThat(order.getSubtotal()).isEqualTo(subtotal);
+        assertThat(order.getTotal()).isEqualTo(total);
+        assertThat(order.getTotal()).isEqualTo(order.getSubtotal().minus(order.getTotalDiscount()));
+    }
+
+    @Test
+    void itemAmountsMatchLegacyStoredValues() {
+        OrderItem item = item("19.99", 3, "12.50");
+        item.calculateAmounts();
+
+        // Antes: 19.99 * 12.50 / 100 * 3 = 7.49625 -> 7.50 y 59.97 - 7.49625 = 52.47375 -> 52.47
+        assertThat(item.getDiscountAmount().toBigDecimal()).isEqualTo(new BigDecimal("7.50"));
+        assertThat(item.getSubtotal().toBigDecimal()).isEqualTo(new BigDecimal("52.47"));
+    }
+
+    @Test
+    void halfCentDiscountKeepsSubtotalPlusDiscountEqualToGross() {
+        OrderItem item = item("10.00", 1, "1.25");
+        item.calculateAmounts();
+
+        // Antes: descuento 0.125 -> 0.13 y subtotal 9.875 -> 9.88, que suman 10.01
+        assertThat(item.getDiscountAmount().toBigDecimal()).isEqualTo(new BigDecimal("0.13"));
+        assertThat(item.getSubtotal().toBigDecimal()).isEqualTo(new BigDecimal("9.87"));
+    }
+
+    @Test
+    void finalUnitPriceIsRoundedToCents() {
+        // Antes: 19.99 - 2.49875 = 17.49125
+        assertThat(item("19.99", 1, "12.50").getFinalUnitPrice().toBigDecimal()).isEqualTo(new BigDecimal("17.49"));
+        assertThat(item("19.99", 1, "0").getFinalUnitPrice().toBigDecimal()).isEqualTo(new BigDecimal("19.99"));
+    }
+
+    private static OrderItem item(String unitPrice, int quantity, String discountPercentage) {
+        return OrderItem.builder()
+                .productHawa("HAWA-TEST")
+                .productName("Producto de prueba")
+                .quantity(quantity)
+                .unitPrice(Money.of(new BigDecimal(unitPrice)))
+                .discountPercentage(new BigDecimal(discountPercentage))
+                .build();
+    }
+}
@@ -0,0 +1,175 @@
+package com.cuackstore.orders.service.impl;
+
+import com.cuackstore.commons.dto.order.StockReservationItemDTO;
+import com.cuackstore.commons.money.Money;
+import com.cuackstore.orders.entity.Order;
+import com.cuackstore.orders.entity.OrderItem;
+import com.cuackstore.orders.expiry.OrderExpiryPolicy;
+import com.cuackstore.orders.repository.OrderRepository;
+import com.cuackstore.orders.service.InventoryService;
+import com.cuackstore.orders.service.OrderStatisticsService;
+import com.cuackstore.orders.service.ProductSalesService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.mockito.ArgumentCaptor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Expiración contra SQL Server con el esquema de db/quack-store.sql, incluido el trigger de orders
+ * (con un trigger habilitado SQL Server rechaza OUTPUT sin INTO). H2 no entiende OUTPUT ni variables
+ * de tabla, así que la prueba necesita un servidor desechable: ORDERS_TEST_SQLSERVER_URL (sin base
+ * de datos; se crea quack_store), ORDERS_TEST_SQLSERVER_USER y ORDERS_TEST_SQLSERVER_PASSWORD.
+ * Inventario, ventas y estadísticas son mocks; el repositorio arma los pedidos a partir de los ids.
+ */
+@EnabledIfEnvironmentVariable(named = "ORDERS_TEST_SQLSERVER_URL", matches = ".+")
+class OrderExpirySqlServerTest {
+
+    private static final String SCRIPT = "../../db/quack-store.sql";
+    private static final Duration EXPIRE_AFTER = Duration.ofMinutes(10);
+
+    private static SingleConnectionDataSource dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+    private InventoryService inventoryService;
+    private OrderExpiryServiceImpl expiryService;
+
+    @BeforeAll
+    static void createSchema() {
+        // Una sola conexión: el USE quack_store del script vale para todo lo que sigue
+        dataSource = new SingleConnectionDataSource(System.getenv("ORDERS_TEST_SQLSERVER_URL"),
+                System.getenv("ORDERS_TEST_SQLSERVER_USER"), System.getenv("ORDERS_TEST_SQLSERVER_PASSWORD"), true);
+        new JdbcTemplate(dataSource).execute("IF DB_ID('quack_store') IS NULL CREATE DATABASE quack_store");
+        ScriptUtils.executeSqlScript(DataSourceUtils.getConnection(dataSource),
+                new EncodedResource(new FileSystemResource(SCRIPT), StandardCharsets.UTF_8),
+                false, false, "--", "GO", "/*", "*/");
+    }
+
+    @AfterAll
+    static void closeConnection() {
+        dataSource.destroy();
+    }
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        OrderRepository orderRepository = mock(OrderRepository.class);
+        when(orderRepository.findWithItemsByIdIn(anyCollection()))
+                .thenAnswer(invocation -> orders(invocation.getArgument(0)));
+        inventoryService = mock(InventoryService.class);
+
+        expiryService = new OrderExpiryServiceImpl(
+                new NamedParameterJdbcTemplate(dataSource),
+                orderRepository,
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)),
+                inventoryService,
+                mock(ProductSalesService.class),
+                mock(OrderStatisticsService.class),
+                OrderExpiryPolicy.CANCEL, EXPIRE_AFTER, Duration.ofSeconds(1), 60, 100, Duration.ofMinutes(2));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void expireOverdueCancelsAndReturnsStock() {
+        long id = insertPendingOrder(LocalDateTime.now().minus(EXPIRE_AFTER).minusMinutes(5));
+        when(inventoryService.releaseStock(anyList())).thenReturn(true);
+
+        assertThat(expiryService.expireOverdue()).isPositive();
+
+        Map<String, Object> row = row(id);
+        assertThat(row.get("status")).isEqualTo("CANCELADO");
+        assertThat(row.get("stock_return_pending")).isEqualTo(false);
+        assertThat(row.get("updated_at")).as("el trigger de orders se ejecutó").isNotNull();
+
+        ArgumentCaptor<List<StockReservationItemDTO>> items = ArgumentCaptor.forClass(List.class);
+        verify(inventoryService, atLeastOnce()).releaseStock(items.capture());
+        assertThat(items.getAllValues().stream().flatMap(List::stream).map(StockReservationItemDTO::getReleaseId))
+                .contains("order-" + id);
+    }
+
+    @Test
+    void failedStockReturnIsClaimedAgainAfterLease() {
+        long id = insertPendingOrder(LocalDateTime.now().minus(EXPIRE_AFTER).minusMinutes(5));
+        when(inventoryService.releaseStock(anyList())).thenReturn(false);
+
+        expiryService.expireOverdue();
+        assertThat(row(id).get("status")).isEqualTo("CANCELADO");
+        assertThat(row(id).get("stock_return_pending")).isEqualTo(true);
+
+        // Vence el lease del nodo que lo expiró y el inventario vuelve a responder
+        jdbcTemplate.update("UPDATE orders SET stock_return_lease_until = DATEADD(MINUTE, -1, GETDATE()) WHERE id = ?", id);
+        when(inventoryService.releaseStock(anyList())).thenReturn(true);
+
+        assertThat(expiryService.retryStockReturns()).isPositive();
+        assertThat(row(id).get("stock_return_pending")).isEqualTo(false);
+    }
+
+    @Test
+    void orderWithinDeadlineStaysPending() {
+        long id = insertPendingOrder(LocalDateTime.now().minusMinutes(1));
+        when(inventoryService.releaseStock(anyList())).thenReturn(true);
+
+        expiryService.expireOverdue();
+
+        assertThat(row(id).get("status")).isEqualTo("PENDIENTE");
+        assertThat(row(id).get("stock_return_pending")).isEqualTo(false);
+    }
+
+    // Sin OUTPUT: el trigger de orders también lo prohibiría en el INSERT
+    private long insertPendingOrder(LocalDateTime createdAt) {
+        Long id = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR orders_seq", Long.class);
+        jdbcTemplate.update("INSERT INTO orders (id, created_at, store_id, seller_name, customer_name, item_count, total_quantity) " +
+                "VALUES (?, ?, 'STORE-TEST', 'Vendedor de prueba', 'Cliente de prueba', 1, 2)", id, Timestamp.valueOf(createdAt));
+        return id;
+    }
+
+    private Map<String, Object> row(long id) {
+        return jdbcTemplate.queryForMap("SELECT status, stock_return_pending, updated_at FROM orders WHERE id = ?", id);
+    }
+
+    private static List<Order> orders(Collection<Long> ids) {
+        return ids.stream()
+                .map(id -> {
+                    Order order = Order.builder()
+                            .id(id)
+                            .storeId("STORE-TEST")
+                            .itemCount(1)
+                            .total(Money.ZERO)
+                            .build();
+                    order.getItems().add(OrderItem.builder()
+                            .order(order)
+                            .productHawa("HAWA-TEST")
+                            .quantity(2)
+                            .build());
+                    return order;
+                })
+                .collect(Collectors.toList());
+    }
+}
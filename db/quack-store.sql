@@ -15,6 +15,9 @@ BEGIN
         created_at DATETIME2 DEFAULT GETDATE(),
         updated_at DATETIME2,
         created_by NVARCHAR(100),
+        row_version ROWVERSION,
+        stock_buckets INT NOT NULL DEFAULT 1 CHECK (stock_buckets >= 1),
+        reorder_threshold INT NOT NULL DEFAULT 5 CHECK (reorder_threshold >= 0),
 
         INDEX IX_products_hawa (hawa),
         INDEX IX_products_available (available),
@@ -28,6 +31,76 @@ ELSE
     PRINT 'La tabla products ya existe';
 GO
 
+-- Versión de fila para ETags del catálogo; SQL Server la cambia en cada UPDATE (bases existentes)
+IF COL_LENGTH('products', 'row_version') IS NULL
+BEGIN
+    ALTER TABLE products ADD row_version ROWVERSION;
+    PRINT 'Columna row_version agregada a products';
+END
+GO
+
+-- Número de cubetas de stock por producto; 1 = el stock vive en products.stock (bases existentes)
+IF COL_LENGTH('products', 'stock_buckets') IS NULL
+BEGIN
+    ALTER TABLE products ADD stock_buckets INT NOT NULL DEFAULT 1 CHECK (stock_buckets >= 1);
+    PRINT 'Columna stock_buckets agregada a products';
+END
+GO
+
+-- Punto de reorden por producto: con stock <= reorder_threshold el producto entra a la lista de stock bajo (bases existentes)
+IF COL_LENGTH('products', 'reorder_threshold') IS NULL
+BEGIN
+    ALTER TABLE products ADD reorder_threshold INT NOT NULL DEFAULT 5 CHECK (reorder_threshold >= 0);
+    PRINT 'Columna reorder_threshold agregada a products';
+END
+GO
+
+-- Stock de productos con stock_buckets > 1, repartido en N filas para que las reservaciones
+-- concurrentes del mismo HAWA no se formen en un solo bloqueo de fila
+IF NOT EXISTS (SELECT * FROM sysobjects WHERE name='product_stock_buckets' AND xtype='U')
+BEGIN
+    CREATE TABLE product_stock_buckets (
+        id BIGINT IDENTITY(1,1) PRIMARY KEY NONCLUSTERED,
+        hawa NVARCHAR(50) NOT NULL,
+        bucket INT NOT NULL,
+        stock INT NOT NULL DEFAULT 0 CHECK (stock >= 0),
+        row_version ROWVERSION,
+
+        CONSTRAINT UQ_product_stock_buckets UNIQUE CLUSTERED (hawa, bucket),
+        CONSTRAINT FK_product_stock_buckets_products FOREIGN KEY (hawa) REFERENCES products(hawa)
+    );
+
+    PRINT 'Tabla product_stock_buckets creada exitosamente';
+END
+ELSE
+    PRINT 'La tabla product_stock_buckets ya existe';
+GO
+
+-- Devoluciones de stock ya aplicadas por release_id (p. ej. order-<id>): un reintento con el mismo
+-- release_id no vuelve a sumar el stock. Se registran en la misma transacción que el movimiento
+IF NOT EXISTS (SELECT * FROM sysobjects WHERE name='stock_releases' AND xtype='U')
+BEGIN
+    CREATE TABLE stock_releases (
+        release_id NVARCHAR(100) PRIMARY KEY,
+        created_at DATETIME2 DEFAULT GETDATE() NOT NULL,
+
+        INDEX IX_stock_releases_created_at (created_at)
+    );
+
+    PRINT 'Tabla stock_releases creada exitosamente';
+END
+ELSE
+    PRINT 'La tabla stock_releases ya existe';
+GO
+
+-- MAX(row_version) da la versión del catálogo completo sin recorrer la tabla
+IF NOT EXISTS (SELECT * FROM sys.indexes WHERE name = 'IX_products_row_version' AND object_id = OBJECT_ID('products'))
+BEGIN
+    CREATE INDEX IX_products_row_version ON products (row_version);
+    PRINT 'Índice IX_products_row_version creado';
+END
+GO
+
 IF NOT EXISTS (SELECT 1 FROM products WHERE hawa = 'HAWA001')
 BEGIN
     INSERT INTO products (hawa, name, description, list_price, discount, stock, available, created_by)
@@ -46,11 +119,58 @@ ELSE
 GO
 
 
+-- Migración de ids IDENTITY a secuencias (bases existentes).
+-- Las tablas anteriores se renombran y sus datos se copian más abajo, una vez creadas las nuevas.
+IF COLUMNPROPERTY(OBJECT_ID('orders'), 'id', 'IsIdentity') = 1
+BEGIN
+    DECLARE @dropForeignKeys NVARCHAR(MAX) = N'';
+    SELECT @dropForeignKeys = @dropForeignKeys
+        + N'ALTER TABLE ' + QUOTENAME(OBJECT_NAME(fk.parent_object_id)) + N' DROP CONSTRAINT ' + QUOTENAME(fk.name) + N'; '
+    FROM sys.foreign_keys fk
+    WHERE fk.referenced_object_id IN (OBJECT_ID('orders'), OBJECT_ID('order_items'));
+    EXEC sp_executesql @dropForeignKeys;
+
+    IF EXISTS (SELECT * FROM sys.triggers WHERE name = 'TR_orders_update_timestamp')
+        DROP TRIGGER TR_orders_update_timestamp;
+
+    EXEC sp_rename 'orders', 'orders_identity';
+    EXEC sp_rename 'order_items', 'order_items_identity';
+    PRINT 'Tablas orders y order_items renombradas para migrar a secuencias';
+END
+GO
+
+-- Secuencias de ids; INCREMENT BY debe coincidir con allocationSize de las entidades.
+-- Con el optimizador pooled, un valor V obtenido de la secuencia reserva los ids [V-49, V]
+-- (salvo el primero, 1), así que al migrar la secuencia arranca en MAX(id)+50 y no en MAX(id)+1.
+IF NOT EXISTS (SELECT * FROM sys.sequences WHERE name = 'orders_seq')
+BEGIN
+    DECLARE @nextOrderId BIGINT = 1;
+    IF OBJECT_ID('orders_identity') IS NOT NULL
+        SELECT @nextOrderId = ISNULL(MAX(id) + 50, 1) FROM orders_identity;
+    DECLARE @createOrdersSeq NVARCHAR(200) = N'CREATE SEQUENCE orders_seq AS BIGINT START WITH '
+        + CAST(@nextOrderId AS NVARCHAR(20)) + N' INCREMENT BY 50';
+    EXEC sp_executesql @createOrdersSeq;
+    PRINT 'Secuencia orders_seq creada exitosamente';
+END
+GO
+
+IF NOT EXISTS (SELECT * FROM sys.sequences WHERE name = 'order_items_seq')
+BEGIN
+    DECLARE @nextItemId BIGINT = 1;
+    IF OBJECT_ID('order_items_identity') IS NOT NULL
+        SELECT @nextItemId = ISNULL(MAX(id) + 50, 1) FROM order_items_identity;
+    DECLARE @createItemsSeq NVARCHAR(200) = N'CREATE SEQUENCE order_items_seq AS BIGINT START WITH '
+        + CAST(@nextItemId AS NVARCHAR(20)) + N' INCREMENT BY 50';
+    EXEC sp_executesql @createItemsSeq;
+    PRINT 'Secuencia order_items_seq creada exitosamente';
+END
+GO
+
 -- Crear la tabla orders
 IF NOT EXISTS (SELECT * FROM sysobjects WHERE name='orders' AND xtype='U')
 BEGIN
     CREATE TABLE orders (
-        id BIGINT IDENTITY(1,1) PRIMARY KEY,
+        id BIGINT NOT NULL CONSTRAINT DF_orders_id DEFAULT (NEXT VALUE FOR orders_seq) PRIMARY KEY,
         
         -- Datos de auditoría
         created_at DATETIME2 DEFAULT GETDATE() NOT NULL,
@@ -75,6 +195,13 @@ BEGIN
         subtotal DECIMAL(12,2) DEFAULT 0.00,
         total_discount DECIMAL(12,2) DEFAULT 0.00,
         total DECIMAL(12,2) DEFAULT 0.00,
+        item_count INT DEFAULT 0 NOT NULL,
+        total_quantity INT DEFAULT 0 NOT NULL,
+        
+        -- Control de concurrencia y expiración automática
+        version BIGINT DEFAULT 0 NOT NULL,
+        stock_return_pending BIT DEFAULT 0 NOT NULL,
+        stock_return_lease_until DATETIME2,
         
         -- Índices
         INDEX IX_orders_created_at (created_at DESC),
@@ -83,7 +210,9 @@ BEGIN
         INDEX IX_orders_seller_name (seller_name),
         INDEX IX_orders_customer_name (customer_name),
         INDEX IX_orders_customer_email (customer_email),
-        INDEX IX_orders_status_created_at (status, created_at DESC)
+        INDEX IX_orders_customer_document (customer_document),
+        INDEX IX_orders_status_created_at (status, created_at DESC),
+        INDEX IX_orders_store_created_at (store_id, created_at DESC)
     );
     
     PRINT 'Tabla orders creada exitosamente';
@@ -92,11 +221,58 @@ ELSE
     PRINT 'La tabla orders ya existe';
 GO
 
+-- Contadores denormalizados de items para los listados (bases existentes)
+IF COL_LENGTH('orders', 'item_count') IS NULL
+BEGIN
+    ALTER TABLE orders ADD
+        item_count INT DEFAULT 0 NOT NULL,
+        total_quantity INT DEFAULT 0 NOT NULL;
+    PRINT 'Columnas item_count y total_quantity agregadas a orders';
+END
+GO
+
+-- Columnas de versión y devolución de stock por expiración (bases existentes)
+IF COL_LENGTH('orders', 'version') IS NULL
+BEGIN
+    ALTER TABLE orders ADD
+        version BIGINT DEFAULT 0 NOT NULL,
+        stock_return_pending BIT DEFAULT 0 NOT NULL,
+        stock_return_lease_until DATETIME2;
+    PRINT 'Columnas version y stock_return_pending agregadas a orders';
+END
+GO
+
+-- Devoluciones de stock pendientes; el índice filtrado solo contiene las que faltan
+IF NOT EXISTS (SELECT * FROM sys.indexes WHERE name = 'IX_orders_stock_return_pending' AND object_id = OBJECT_ID('orders'))
+BEGIN
+    CREATE INDEX IX_orders_stock_return_pending ON orders (stock_return_lease_until)
+        WHERE stock_return_pending = 1;
+    PRINT 'Índice IX_orders_stock_return_pending creado';
+END
+GO
+
+-- Índice para la paginación por cursor filtrada por tienda (bases existentes).
+-- El id (llave del índice clustered) queda implícito como desempate de created_at.
+IF NOT EXISTS (SELECT * FROM sys.indexes WHERE name = 'IX_orders_store_created_at' AND object_id = OBJECT_ID('orders'))
+BEGIN
+    CREATE INDEX IX_orders_store_created_at ON orders (store_id, created_at DESC);
+    PRINT 'Índice IX_orders_store_created_at creado';
+END
+GO
+
+-- Búsqueda por prefijo de documento para términos cortos (bases existentes)
+IF NOT EXISTS (SELECT * FROM sys.indexes WHERE name = 'IX_orders_customer_document' AND object_id = OBJECT_ID('orders'))
+BEGIN
+    CREATE INDEX IX_orders_customer_document ON orders (customer_document);
+    PRINT 'Índice IX_orders_customer_document creado';
+END
+GO
+
 -- Crear la tabla order_items
 IF NOT EXISTS (SELECT * FROM sysobjects WHERE name='order_items' AND xtype='U')
 BEGIN
     CREATE TABLE order_items (
-        id BIGINT IDENTITY(1,1) PRIMARY KEY,
+        id BIGINT NOT NULL CONSTRAINT DF_order_items_id DEFAULT (NEXT VALUE FOR order_items_seq) PRIMARY KEY,
         order_id BIGINT NOT NULL,
         
         -- Datos del producto
@@ -123,6 +299,98 @@ ELSE
     PRINT 'La tabla order_items ya existe';
 GO
 
+-- Crear la tabla order_idempotency_keys (respuestas de POST /api/v1/orders por Idempotency-Key)
+IF NOT EXISTS (SELECT * FROM sysobjects WHERE name='order_idempotency_keys' AND xtype='U')
+BEGIN
+    CREATE TABLE order_idempotency_keys (
+        idempotency_key NVARCHAR(100) PRIMARY KEY,
+        request_hash NVARCHAR(64) NOT NULL,
+        status NVARCHAR(20) NOT NULL CHECK (status IN ('PROCESANDO', 'COMPLETADO')),
+        order_id BIGINT,
+        response NVARCHAR(MAX),
+        created_at DATETIME2 DEFAULT GETDATE() NOT NULL,
+        completed_at DATETIME2,
+
+        -- Índices
+        INDEX IX_order_idempotency_keys_created_at (created_at)
+    );
+
+    PRINT 'Tabla order_idempotency_keys creada exitosamente';
+END
+ELSE
+    PRINT 'La tabla order_idempotency_keys ya existe';
+GO
+
+-- Crear la tabla order_search_grams (índice de trigramas para buscar por cliente y vendedor)
+-- field: 'C' = nombre, email y documento del cliente; 'S' = vendedor
+IF NOT EXISTS (SELECT * FROM sysobjects WHERE name='order_search_grams' AND xtype='U')
+BEGIN
+    CREATE TABLE order_search_grams (
+        field CHAR(1) NOT NULL,
+        gram NVARCHAR(3) COLLATE Latin1_General_100_CI_AI NOT NULL,
+        order_id BIGINT NOT NULL,
+
+        CONSTRAINT PK_order_search_grams PRIMARY KEY (field, gram, order_id),
+        CONSTRAINT FK_order_search_grams_orders FOREIGN KEY (order_id) REFERENCES orders(id) ON DELETE CASCADE
+    );
+
+    PRINT 'Tabla order_search_grams creada exitosamente';
+END
+ELSE
+    PRINT 'La tabla order_search_grams ya existe';
+GO
+
+-- Crear la tabla product_sales_daily (acumulado de ventas por producto, tienda y día)
+IF NOT EXISTS (SELECT * FROM sysobjects WHERE name='product_sales_daily' AND xtype='U')
+BEGIN
+    CREATE TABLE product_sales_daily (
+        id BIGINT IDENTITY(1,1) PRIMARY KEY,
+        sales_date DATE NOT NULL,
+        store_id NVARCHAR(50) NOT NULL,
+        product_hawa NVARCHAR(50) NOT NULL,
+        product_name NVARCHAR(200) NOT NULL,
+        quantity_sold BIGINT DEFAULT 0 NOT NULL,
+        order_count BIGINT DEFAULT 0 NOT NULL,
+        revenue DECIMAL(14,2) DEFAULT 0.00 NOT NULL,
+
+        CONSTRAINT UQ_product_sales_daily UNIQUE (sales_date, store_id, product_hawa)
+    );
+
+    PRINT 'Tabla product_sales_daily creada exitosamente';
+END
+ELSE
+    PRINT 'La tabla product_sales_daily ya existe';
+GO
+
+-- Copiar los datos de las tablas IDENTITY renombradas (bases existentes).
+-- orders_identity puede no tener item_count/total_quantity (se agregaron a la tabla nueva):
+-- se copian en 0 y el recálculo de contadores de más abajo los llena desde order_items.
+IF OBJECT_ID('orders_identity') IS NOT NULL
+BEGIN
+    BEGIN TRANSACTION;
+
+    INSERT INTO orders (id, created_at, updated_at, user_ip, store_id, seller_name, status, comments, customer_name, customer_email, customer_phone, customer_address, customer_document, customer_document_type, subtotal, total_discount, total, item_count, total_quantity)
+    SELECT id, created_at, updated_at, user_ip, store_id, seller_name, status, comments, customer_name, customer_email, customer_phone, customer_address, customer_document, customer_document_type, subtotal, total_discount, total, 0, 0 FROM orders_identity;
+
+    INSERT INTO order_items (id, order_id, product_hawa, product_name, quantity, unit_price, discount_percentage, discount_amount, subtotal)
+    SELECT id, order_id, product_hawa, product_name, quantity, unit_price, discount_percentage, discount_amount, subtotal FROM order_items_identity;
+
+    DROP TABLE order_items_identity;
+    DROP TABLE orders_identity;
+
+    COMMIT TRANSACTION;
+    PRINT 'Datos de orders y order_items migrados a tablas con secuencia';
+END
+GO
+
+IF OBJECT_ID('order_search_grams') IS NOT NULL
+    AND NOT EXISTS (SELECT * FROM sys.foreign_keys WHERE name = 'FK_order_search_grams_orders')
+BEGIN
+    ALTER TABLE order_search_grams ADD CONSTRAINT FK_order_search_grams_orders
+        FOREIGN KEY (order_id) REFERENCES orders(id) ON DELETE CASCADE;
+END
+GO
+
 -- Trigger para actualizar updated_at en orders
 IF NOT EXISTS (SELECT * FROM sys.triggers WHERE name = 'TR_orders_update_timestamp')
 BEGIN
@@ -146,26 +414,30 @@ ELSE
 GO
 
 -- Insertar datos de prueba
-IF NOT EXISTS (SELECT 1 FROM orders WHERE id = 1)
+IF NOT EXISTS (SELECT 1 FROM orders)
 BEGIN
+    DECLARE @order1 BIGINT = NEXT VALUE FOR orders_seq;
+    DECLARE @order2 BIGINT = NEXT VALUE FOR orders_seq;
+    DECLARE @order3 BIGINT = NEXT VALUE FOR orders_seq;
+
     -- Pedido 1: Pendiente (reciente)
     INSERT INTO orders (
-        store_id, seller_name, status, customer_name, customer_email, 
+        id, store_id, seller_name, status, customer_name, customer_email, 
         customer_phone, customer_address, customer_document, customer_document_type,
         comments, user_ip
     ) VALUES (
-        'STORE001', 'Juan Pérez', 'PENDIENTE', 'María González', 'maria.gonzalez@email.com',
+        @order1, 'STORE001', 'Juan Pérez', 'PENDIENTE', 'María González', 'maria.gonzalez@email.com',
         '555-0101', 'Av. Principal 123, Guanajuato', '12345678', 'RFC',
         'Cliente frecuente, solicita entrega rápida', '192.168.1.100'
     );
     
     -- Pedido 2: Entregado
     INSERT INTO orders (
-        store_id, seller_name, status, customer_name, customer_email, 
+        id, store_id, seller_name, status, customer_name, customer_email, 
         customer_phone, customer_address, customer_document, customer_document_type,
         created_at, updated_at, comments, user_ip
     ) VALUES (
-        'STORE001', 'Ana López', 'ENTREGADO', 'Carlos Rodríguez', 'carlos.rodriguez@email.com',
+        @order2, 'STORE001', 'Ana López', 'ENTREGADO', 'Carlos Rodríguez', 'carlos.rodriguez@email.com',
         '555-0102', 'Calle Reforma 456, Guanajuato', '87654321', 'RFC',
         DATEADD(DAY, -2, GETDATE()), DATEADD(DAY, -1, GETDATE()),
         'Pedido entregado sin problemas', '192.168.1.101'
@@ -173,11 +445,11 @@ BEGIN
     
     -- Pedido 3: Cancelado (más de 10 minutos)
     INSERT INTO orders (
-        store_id, seller_name, status, customer_name, customer_email, 
+        id, store_id, seller_name, status, customer_name, customer_email, 
         customer_phone, customer_address, customer_document, customer_document_type,
         created_at, updated_at, comments, user_ip
     ) VALUES (
-        'STORE002', 'Roberto Silva', 'CANCELADO', 'Laura Martínez', 'laura.martinez@email.com',
+        @order3, 'STORE002', 'Roberto Silva', 'CANCELADO', 'Laura Martínez', 'laura.martinez@email.com',
         '555-0103', 'Blvd. Constitución 789, Guanajuato', '11223344', 'RFC',
         DATEADD(HOUR, -1, GETDATE()), DATEADD(MINUTE, -30, GETDATE()),
         'Cliente canceló por cambio de planes', '192.168.1.102'
@@ -188,25 +460,59 @@ BEGIN
         order_id, product_hawa, product_name, quantity, 
         unit_price, discount_percentage, discount_amount, subtotal
     ) VALUES 
-    (1, 'HAWA001', 'Camioneta Ford F-150', 1, 850000.00, 5.00, 42500.00, 807500.00),
-    (1, 'HAWA004', 'Tsuru tuneado', 1, 650000.00, 2.00, 13000.00, 637000.00);
+    (@order1, 'HAWA001', 'Camioneta Ford F-150', 1, 850000.00, 5.00, 42500.00, 807500.00),
+    (@order1, 'HAWA004', 'Tsuru tuneado', 1, 650000.00, 2.00, 13000.00, 637000.00);
     
     -- Items para el Pedido 2  
     INSERT INTO order_items (
         order_id, product_hawa, product_name, quantity, 
         unit_price, discount_percentage, discount_amount, subtotal
     ) VALUES 
-    (2, 'HAWA003', 'Chevy', 2, 920000.00, 7.00, 128800.00, 1711200.00);
+    (@order2, 'HAWA003', 'Chevy', 2, 920000.00, 7.00, 128800.00, 1711200.00);
     
     -- Items para el Pedido 3
     INSERT INTO order_items (
         order_id, product_hawa, product_name, quantity, 
         unit_price, discount_percentage, discount_amount, subtotal
     ) VALUES 
-    (3, 'HAWA002', 'Camioneta Chevrolet Silverado', 1, 780000.00, 3.00, 23400.00, 756600.00);
+    (@order3, 'HAWA002', 'Camioneta Chevrolet Silverado', 1, 780000.00, 3.00, 23400.00, 756600.00);
     
     PRINT 'Datos de prueba insertados exitosamente';
 END
 ELSE
     PRINT 'Los datos de prueba ya existen';
+GO
+
+-- Recalcular contadores de items de pedidos existentes
+UPDATE o
+SET o.item_count = i.item_count,
+    o.total_quantity = i.total_quantity
+FROM orders o
+JOIN (
+    SELECT order_id, COUNT(*) AS item_count, SUM(quantity) AS total_quantity
+    FROM order_items
+    GROUP BY order_id
+) i ON i.order_id = o.id
+WHERE o.item_count <> i.item_count OR o.total_quantity <> i.total_quantity;
+GO
+
+-- Indexar para búsqueda los pedidos que aún no tienen trigramas
+WITH source_values AS (
+    SELECT id AS order_id, 'C' AS field, LTRIM(RTRIM(customer_name)) AS value FROM orders
+    UNION ALL
+    SELECT id, 'C', LTRIM(RTRIM(customer_email)) FROM orders WHERE customer_email IS NOT NULL
+    UNION ALL
+    SELECT id, 'C', LTRIM(RTRIM(customer_document)) FROM orders WHERE customer_document IS NOT NULL
+    UNION ALL
+    SELECT id, 'S', LTRIM(RTRIM(seller_name)) FROM orders
+),
+positions AS (
+    SELECT TOP (500) ROW_NUMBER() OVER (ORDER BY (SELECT NULL)) AS n
+    FROM sys.all_objects a CROSS JOIN sys.all_objects b
+)
+INSERT INTO order_search_grams (field, gram, order_id)
+SELECT DISTINCT v.field, LOWER(SUBSTRING(v.value, p.n, 3)) COLLATE Latin1_General_100_CI_AI, v.order_id
+FROM source_values v
+JOIN positions p ON p.n <= LEN(v.value) - 2
+WHERE NOT EXISTS (SELECT 1 FROM order_search_grams g WHERE g.order_id = v.order_id);
 GO
\ No newline at end of file